@@ -16,16 +16,20 @@
 
 package edu.harvard.drs.verify;
 
+import edu.harvard.drs.verify.config.AuditConfig;
 import edu.harvard.drs.verify.config.AwsConfig;
+import edu.harvard.drs.verify.config.VerifyConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * DRS Verify Application.
  */
 @SpringBootApplication
-@EnableConfigurationProperties(AwsConfig.class)
+@EnableScheduling
+@EnableConfigurationProperties({ AwsConfig.class, AuditConfig.class, VerifyConfig.class })
 public class VerifyApplication {
 
     /**
@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+
+import edu.harvard.drs.verify.dto.BatchResult;
+import edu.harvard.drs.verify.service.BatchVerifyService;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * DRS Verify batch command line, verifying objects without HTTP.
+ *
+ * <pre>
+ * java -Dloader.main=edu.harvard.drs.verify.VerifyBatch -jar drs-verify.jar \
+ *   --input=requests.ndjson --output=results.ndjson [--offset=0] [--resume] [--verify.batch.concurrency=16]
+ * </pre>
+ *
+ * <p>Input and output default to stdin and stdout. Each input line is a request, i.e.
+ * {@code {"id":1254624,"input":{"data/400000254.txt":"872c..."},"update":false}}. Each output line
+ * is the result of a request with the offset of its input line.
+ */
+@Slf4j
+public final class VerifyBatch {
+
+    private static final String STANDARD = "-";
+
+    /**
+     * Private verify batch constructor.
+     */
+    private VerifyBatch() { }
+
+    /**
+     * DRS Verify batch entry point.
+     *
+     * @param args batch arguments, and application arguments
+     * @throws IOException          failed to read input or write output
+     * @throws InterruptedException interrupted waiting on verification
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<String> arguments = new ArrayList<>(List.of(args));
+        // the batch competes with nothing for S3, not even a scheduled audit
+        arguments.add("--audit.enabled=false");
+        if (arguments.stream().noneMatch(arg -> arg.startsWith("--output=") && !arg.equals("--output=" + STANDARD))) {
+            // keep results written to stdout free of banner and console logging
+            arguments.add("--spring.main.banner-mode=off");
+            arguments.add("--logging.pattern.console=");
+        }
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(VerifyApplication.class)
+            .web(WebApplicationType.NONE)
+            .run(arguments.toArray(String[]::new));
+
+        try (context) {
+            ApplicationArguments options = context.getBean(ApplicationArguments.class);
+            BatchVerifyService batchVerifyService = context.getBean(BatchVerifyService.class);
+
+            String input = option(options, "input", STANDARD);
+            String output = option(options, "output", STANDARD);
+
+            long offset = Long.parseLong(option(options, "offset", "0"));
+            if (options.containsOption("resume")) {
+                if (output.equals(STANDARD)) {
+                    throw new IllegalArgumentException("Resume requires --output file");
+                }
+                offset = batchVerifyService.resumeOffset(Path.of(output));
+                log.info("Resuming batch from offset {}", offset);
+            }
+
+            try (BufferedReader reader = reader(input); Writer writer = writer(output, offset > 0)) {
+                Map<BatchResult.Status, Long> counts = batchVerifyService.run(reader, writer, offset);
+                log.info("Batch verification complete {}", counts);
+            }
+        }
+    }
+
+    private static String option(ApplicationArguments options, String name, String defaultValue) {
+        List<String> values = options.getOptionValues(name);
+
+        return values == null || values.isEmpty() ? defaultValue : values.get(0);
+    }
+
+    private static BufferedReader reader(String input) throws IOException {
+        return input.equals(STANDARD)
+            ? new BufferedReader(new InputStreamReader(System.in, UTF_8))
+            : Files.newBufferedReader(Path.of(input), UTF_8);
+    }
+
+    private static Writer writer(String output, boolean append) throws IOException {
+        return output.equals(STANDARD)
+            ? new BufferedWriter(new OutputStreamWriter(System.out, UTF_8))
+            : Files.newBufferedWriter(Path.of(output), UTF_8, CREATE, append ? APPEND : TRUNCATE_EXISTING);
+    }
+
+}
@@ -16,6 +16,9 @@
 
 package edu.harvard.drs.verify.config;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import software.amazon.awssdk.regions.Region;
@@ -31,4 +34,91 @@ public class AwsConfig {
     private String accessKeyId = "foo";
     private String secretAccessKey = "bar";
     private String endpointOverride;
+    private int maxConnections = 50;
+    private Duration apiCallAttemptTimeout = Duration.ofSeconds(10);
+    private Hedge hedge = new Hedge();
+    private Breaker breaker = new Breaker();
+    private Bulkhead bulkhead = new Bulkhead();
+    private Sidecar sidecar = new Sidecar();
+    private Duration probeInterval = Duration.ofSeconds(10);
+    private Map<String, Target> targets = new LinkedHashMap<>();
+
+    /**
+     * AWS config of named target, inheriting anything not set on target from this config.
+     *
+     * @param target named storage target
+     * @return AWS config of target
+     */
+    public AwsConfig forTarget(Target target) {
+        AwsConfig config = new AwsConfig();
+        config.setRegion(target.getRegion() != null ? target.getRegion() : region);
+        config.setBucketName(target.getBucketName() != null ? target.getBucketName() : bucketName);
+        config.setAccessKeyId(target.getAccessKeyId() != null ? target.getAccessKeyId() : accessKeyId);
+        config.setSecretAccessKey(target.getSecretAccessKey() != null ? target.getSecretAccessKey() : secretAccessKey);
+        config.setEndpointOverride(
+            target.getEndpointOverride() != null ? target.getEndpointOverride() : endpointOverride);
+        config.setMaxConnections(target.getMaxConnections() != null ? target.getMaxConnections() : maxConnections);
+        config.setApiCallAttemptTimeout(apiCallAttemptTimeout);
+        config.setHedge(hedge);
+        config.setBreaker(breaker);
+        config.setBulkhead(bulkhead);
+        config.setSidecar(sidecar);
+
+        return config;
+    }
+
+    /**
+     * Hedged S3 request config.
+     */
+    @Data
+    public static class Hedge {
+        private boolean enabled = false;
+        private double percentile = 0.95;
+        private Duration minDelay = Duration.ofMillis(20);
+        private double budget = 0.05;
+        private int window = 1024;
+        private int maxConcurrent = 16;
+    }
+
+    /**
+     * S3 circuit breaker config.
+     */
+    @Data
+    public static class Breaker {
+        private boolean enabled = true;
+        private int window = 100;
+        private int minimumCalls = 20;
+        private double failureRateThreshold = 0.5;
+        private Duration openDuration = Duration.ofSeconds(30);
+    }
+
+    /**
+     * S3 bulkhead config.
+     */
+    @Data
+    public static class Bulkhead {
+        private int maxConcurrentCalls = 100;
+        private Duration maxWait = Duration.ofSeconds(5);
+    }
+
+    /**
+     * Inventory sidecar digest validation config.
+     */
+    @Data
+    public static class Sidecar {
+        private boolean enabled = false;
+    }
+
+    /**
+     * Named storage target, i.e. replica bucket in another region.
+     */
+    @Data
+    public static class Target {
+        private Region region;
+        private String bucketName;
+        private String accessKeyId;
+        private String secretAccessKey;
+        private String endpointOverride;
+        private Integer maxConnections;
+    }
 }
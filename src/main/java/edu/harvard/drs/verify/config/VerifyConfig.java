@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Verify config.
+ */
+@Data
+@ConfigurationProperties(prefix = "verify")
+public class VerifyConfig {
+    private DataSize maxInflatedRequestSize = DataSize.ofMegabytes(512);
+    private boolean pipelineInventory = false;
+    private Scheduler scheduler = new Scheduler();
+    private Admission admission = new Admission();
+    private Ledger ledger = new Ledger();
+    private InventoryCache inventoryCache = new InventoryCache();
+    private Codec codec = new Codec();
+    private Results results = new Results();
+    private Batch batch = new Batch();
+    private Warmup warmup = new Warmup();
+    private SharedCache sharedCache = new SharedCache();
+    private Affinity affinity = new Affinity();
+    private Coordinator coordinator = new Coordinator();
+    private Grpc grpc = new Grpc();
+
+    /**
+     * S3 work scheduler config.
+     */
+    @Data
+    public static class Scheduler {
+        private int workers = 32;
+        private int ingestWeight = 8;
+        private int updateWeight = 4;
+        private int auditWeight = 1;
+    }
+
+    /**
+     * Admission control config.
+     */
+    @Data
+    public static class Admission {
+        private int maxInFlight = 64;
+        private long maxPendingRequests = 500_000;
+    }
+
+    /**
+     * Verification ledger config.
+     */
+    @Data
+    public static class Ledger {
+        private boolean enabled = false;
+        private String directory = "ledger";
+        private Duration freshness = Duration.ofDays(1);
+        private boolean validateEtag = true;
+    }
+
+    /**
+     * Disk cache of parsed inventories config.
+     */
+    @Data
+    public static class InventoryCache {
+        private boolean enabled = false;
+        private String directory = "inventory-cache";
+        private DataSize maxSize = DataSize.ofGigabytes(1);
+    }
+
+    /**
+     * JSON codec config.
+     */
+    @Data
+    public static class Codec {
+        private boolean blackbird = true;
+        private boolean internStrings = false;
+    }
+
+    /**
+     * Stored results of failed verifications config.
+     */
+    @Data
+    public static class Results {
+        private int maxErrors = 1000;
+        private int maxPageSize = 10_000;
+        private String directory = "results";
+        private Duration retention = Duration.ofDays(1);
+    }
+
+    /**
+     * Batch command line config.
+     */
+    @Data
+    public static class Batch {
+        private int concurrency = 16;
+    }
+
+    /**
+     * Startup warm-up config.
+     */
+    @Data
+    public static class Warmup {
+        private boolean enabled = false;
+        private int connections = 4;
+        private int iterations = 200;
+        private Duration fastRequest = Duration.ofMillis(500);
+        private boolean exit = false;
+    }
+
+    /**
+     * Cache of inventories and content eTags shared by replicas config.
+     */
+    @Data
+    public static class SharedCache {
+        private boolean enabled = false;
+        private String directory = "shared-cache";
+        private Duration etagTtl = Duration.ofHours(1);
+        private Duration inventoryRetention = Duration.ofDays(7);
+        private int maxMemoryEtags = 100_000;
+        private Duration readTimeout = Duration.ofMillis(50);
+    }
+
+    /**
+     * Object affinity of replicas config.
+     */
+    @Data
+    public static class Affinity {
+        private List<String> replicas = new ArrayList<>();
+        private int virtualNodes = 128;
+    }
+
+    /**
+     * Coordinator sharding verification of huge objects across peers config.
+     */
+    @Data
+    public static class Coordinator {
+        private List<String> peers = new ArrayList<>();
+        private int minInput = 50_000;
+        private int shardSize = 10_000;
+        private int concurrency = 8;
+        private int retries = 2;
+        private Duration shardTimeout = Duration.ofMinutes(10);
+    }
+
+    /**
+     * gRPC streaming verification server config.
+     */
+    @Data
+    public static class Grpc {
+        private boolean enabled = false;
+        private int port = 9090;
+        private int concurrency = 16;
+        private int maxInFlight = 4;
+        private int maxOpenObjects = 64;
+        private long maxChecksums = 1_000_000;
+        private DataSize maxMessageSize = DataSize.ofMegabytes(4);
+    }
+
+}
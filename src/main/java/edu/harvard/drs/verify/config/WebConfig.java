@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import edu.harvard.drs.verify.filter.AffinityFilter;
+import edu.harvard.drs.verify.filter.GzipRequestFilter;
+import edu.harvard.drs.verify.filter.StartupTimingFilter;
+import edu.harvard.drs.verify.utility.ConsistentHash;
+import java.util.List;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Web config.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<Module> modules;
+
+    private final VerifyConfig verifyConfig;
+
+    /**
+     * Web config constructor.
+     *
+     * @param modules      Jackson modules in context
+     * @param verifyConfig verify config
+     */
+    public WebConfig(ObjectProvider<Module> modules, VerifyConfig verifyConfig) {
+        this.modules = modules;
+        this.verifyConfig = verifyConfig;
+    }
+
+    /**
+     * Executor of admitted verifications, continuing off the request thread. Admission bounds
+     * verifications in flight, so a thread each never queues behind another.
+     *
+     * @return verification executor
+     */
+    @Bean
+    public ThreadPoolTaskExecutor verifyTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(verifyConfig.getAdmission().getMaxInFlight());
+        executor.setMaxPoolSize(verifyConfig.getAdmission().getMaxInFlight());
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("verify-");
+
+        return executor;
+    }
+
+    /**
+     * Run verifications on their executor without timing out, their deadline header bounding them
+     * instead, so the container detects a client disconnecting while verification is in flight.
+     *
+     * @param configurer async support configurer
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(verifyTaskExecutor());
+        configurer.setDefaultTimeout(-1);
+    }
+
+    /**
+     * Register gzip request filter ahead of request body parsing.
+     *
+     * @param verifyConfig verify config
+     * @return gzip request filter registration
+     */
+    @Bean
+    public FilterRegistrationBean<GzipRequestFilter> gzipRequestFilter(VerifyConfig verifyConfig) {
+        FilterRegistrationBean<GzipRequestFilter> registration = new FilterRegistrationBean<>(
+            new GzipRequestFilter(verifyConfig.getMaxInflatedRequestSize().toBytes())
+        );
+        registration.addUrlPatterns("/verify/*");
+
+        return registration;
+    }
+
+    /**
+     * Register filter measuring time after start to first fast verification, outermost so the
+     * measure includes inflating and parsing request bodies.
+     *
+     * @param verifyConfig verify config
+     * @return startup timing filter registration
+     */
+    @Bean
+    public FilterRegistrationBean<StartupTimingFilter> startupTimingFilter(VerifyConfig verifyConfig) {
+        FilterRegistrationBean<StartupTimingFilter> registration = new FilterRegistrationBean<>(
+            new StartupTimingFilter(verifyConfig.getWarmup().getFastRequest())
+        );
+        registration.addUrlPatterns("/verify/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+
+        return registration;
+    }
+
+    /**
+     * Register filter responding with replica owning object of verification, when replicas are
+     * configured.
+     *
+     * @param verifyConfig verify config
+     * @return affinity filter registration
+     */
+    @Bean
+    public FilterRegistrationBean<AffinityFilter> affinityFilter(VerifyConfig verifyConfig) {
+        VerifyConfig.Affinity affinity = verifyConfig.getAffinity();
+        FilterRegistrationBean<AffinityFilter> registration = new FilterRegistrationBean<>(
+            new AffinityFilter(new ConsistentHash(affinity.getReplicas(), affinity.getVirtualNodes()))
+        );
+        registration.addUrlPatterns("/verify/*");
+        registration.setEnabled(!affinity.getReplicas().isEmpty());
+
+        return registration;
+    }
+
+    /**
+     * Blackbird module generating property access of request and response bodies, picked up by the
+     * JSON object mapper and the binary converters alike.
+     *
+     * @return blackbird module
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "verify.codec", name = "blackbird", matchIfMissing = true)
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        Module[] installed = modules.orderedStream().toArray(Module[]::new);
+
+        converters.add(new MappingJackson2SmileHttpMessageConverter(
+            Jackson2ObjectMapperBuilder.smile().modulesToInstall(installed).build()
+        ));
+        converters.add(new MappingJackson2CborHttpMessageConverter(
+            Jackson2ObjectMapperBuilder.cbor().modulesToInstall(installed).build()
+        ));
+    }
+
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.controller;
+
+import edu.harvard.drs.verify.dto.AuditStatus;
+import edu.harvard.drs.verify.service.AuditService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Audit actuator endpoint.
+ */
+@Component
+@Endpoint(id = "audit")
+public class AuditEndpoint {
+
+    @Autowired
+    private AuditService auditService;
+
+    @ReadOperation
+    public AuditStatus status() {
+        return auditService.status();
+    }
+
+    /**
+     * Start audit, resuming from checkpoint if one exists.
+     *
+     * @return audit status
+     */
+    @WriteOperation
+    public AuditStatus start() {
+        auditService.start();
+        return auditService.status();
+    }
+
+    /**
+     * Stop running audit.
+     *
+     * @return audit status
+     */
+    @DeleteOperation
+    public AuditStatus stop() {
+        auditService.stop();
+        return auditService.status();
+    }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.controller;
+
+import edu.harvard.drs.verify.config.AwsConfig;
+import edu.harvard.drs.verify.service.S3Service;
+import edu.harvard.drs.verify.service.S3TargetRegistry;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * S3 health indicator probing latency of every storage target bucket.
+ *
+ * <p>Down if any bucket cannot be reached. Probes are reused for the probe interval so frequent
+ * health checks do not each reach S3. Circuit breaker state is only reported, as an open circuit
+ * already fails requests fast and recovers on its own.
+ */
+@Component("s3")
+public class S3HealthIndicator implements HealthIndicator {
+
+    private final S3TargetRegistry targetRegistry;
+
+    private final long probeIntervalNanos;
+
+    private final Map<String, Probe> probes = new ConcurrentHashMap<>();
+
+    /**
+     * S3 health indicator constructor with default probe interval.
+     *
+     * @param targetRegistry storage target registry
+     */
+    public S3HealthIndicator(S3TargetRegistry targetRegistry) {
+        this(new AwsConfig(), targetRegistry);
+    }
+
+    /**
+     * Autowired S3 health indicator constructor.
+     *
+     * @param awsConfig      AWS config
+     * @param targetRegistry storage target registry
+     */
+    @Autowired
+    public S3HealthIndicator(AwsConfig awsConfig, S3TargetRegistry targetRegistry) {
+        this.targetRegistry = targetRegistry;
+        this.probeIntervalNanos = awsConfig.getProbeInterval().toNanos();
+    }
+
+    @Override
+    public Health health() {
+        boolean up = true;
+        Map<String, Object> targets = new LinkedHashMap<>();
+
+        for (Map.Entry<String, S3Service> target : targetRegistry.all().entrySet()) {
+            S3Service s3Service = target.getValue();
+
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("bucket", s3Service.getBucket());
+            details.put("circuit", s3Service.getCircuitState());
+
+            // one probe at a time per target, concurrent checks wait for and share it
+            Probe probe = probes.compute(
+                target.getKey(),
+                (key, previous) -> previous != null && previous.isFresh(probeIntervalNanos)
+                    ? previous
+                    : Probe.of(s3Service)
+            );
+
+            if (probe.error == null) {
+                details.put("latency", probe.latency);
+            } else {
+                details.put("error", probe.error);
+                up = false;
+            }
+
+            targets.put(target.getKey(), details);
+        }
+
+        return (up ? Health.up() : Health.down())
+            .withDetails(targets)
+            .build();
+    }
+
+    private static final class Probe {
+
+        private final long probedAt;
+
+        private final double latency;
+
+        private final String error;
+
+        private Probe(double latency, String error) {
+            this.probedAt = System.nanoTime();
+            this.latency = latency;
+            this.error = error;
+        }
+
+        private static Probe of(S3Service s3Service) {
+            try {
+                return new Probe(s3Service.probe() / 1_000_000.0, null);
+            } catch (Exception e) {
+                return new Probe(0, e.getMessage());
+            }
+        }
+
+        private boolean isFresh(long intervalNanos) {
+            return System.nanoTime() - probedAt < intervalNanos;
+        }
+
+    }
+
+}
@@ -16,26 +16,62 @@
 
 package edu.harvard.drs.verify.controller;
 
+import static java.lang.String.format;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.CONFLICT;
+import static org.springframework.http.HttpStatus.GATEWAY_TIMEOUT;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
 
 import edu.harvard.drs.verify.dto.VerificationError;
+import edu.harvard.drs.verify.dto.VerificationStats;
+import edu.harvard.drs.verify.dto.VerificationSummary;
+import edu.harvard.drs.verify.exception.DeadlineExceededException;
+import edu.harvard.drs.verify.exception.OverloadedException;
+import edu.harvard.drs.verify.exception.ResultNotFoundException;
+import edu.harvard.drs.verify.exception.S3UnavailableException;
+import edu.harvard.drs.verify.exception.UnknownTargetException;
+import edu.harvard.drs.verify.exception.UnsupportedAlgorithmException;
 import edu.harvard.drs.verify.exception.VerificationException;
+import edu.harvard.drs.verify.service.AdmissionService;
+import edu.harvard.drs.verify.service.ResultStore;
+import edu.harvard.drs.verify.service.S3TargetRegistry;
 import edu.harvard.drs.verify.service.VerifyService;
+import edu.harvard.drs.verify.utility.Deadline;
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.scope.ScopedObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.bind.ServletRequestBindingException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 
 /**
@@ -46,39 +82,145 @@ import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 @RequestMapping("verify")
 public class VerifyController {
 
+    static final String SERVER_TIMING = "Server-Timing";
+
+    static final String RETRY_AFTER = "Retry-After";
+
+    static final String NDJSON = "application/x-ndjson";
+
     @Autowired
     private VerifyService verifyService;
 
+    @Autowired
+    private AdmissionService admissionService;
+
+    @Autowired
+    private ResultStore resultStore;
+
     /**
      * Verify endpoint.
      *
-     * @param id    DRS object id
-     * @param input input checksum map
-     * @throws IOException either not found or internal server error
-     * @throws VerificationException verification failed
+     * @param id       DRS object id
+     * @param input    input checksum map
+     * @param stats    whether to respond with verification stats
+     * @param targets  storage targets to verify against
+     * @param algorithm digest algorithm of input checksums to verify against inventory, rather than eTags
+     * @param timeout  time after which the caller no longer waits for the result
+     * @param request  servlet request
+     * @param response servlet response
+     * @return verification, responding with stats if requested
+     * @throws OverloadedException no capacity for verification
+     * @throws ServletRequestBindingException invalid timeout
      */
     @PostMapping("{id}")
-    public void verify(
+    public WebAsyncTask<VerificationStats> verify(
         @PathVariable(required = true) Long id,
-        @RequestBody Map<String, String> input
-    ) throws IOException, VerificationException {
-        verifyService.verifyIngest(id, input);
+        @RequestBody Map<String, String> input,
+        @RequestParam(defaultValue = "false") boolean stats,
+        @RequestParam(defaultValue = S3TargetRegistry.DEFAULT_TARGET) List<String> targets,
+        @RequestParam(required = false) String algorithm,
+        @RequestHeader(value = Deadline.HEADER, required = false) String timeout,
+        HttpServletRequest request,
+        HttpServletResponse response
+    ) throws OverloadedException, ServletRequestBindingException {
+        VerifyService service = requestVerifyService();
+        service.setDeadline(deadline(timeout));
+        AdmissionService.Permit permit = admissionService.admit(AdmissionService.requests(input, targets, algorithm));
+        service.setPermit(permit);
+
+        return verification(service, permit, stats, request, response,
+            () -> service.verifyIngest(id, input, targets, algorithm));
     }
 
     /**
      * Verify update endpoint.
      *
-     * @param id    DRS object id
-     * @param input input checksum map
-     * @throws IOException either not found or internal server error
-     * @throws VerificationException verification failed
+     * @param id       DRS object id
+     * @param input    input checksum map
+     * @param stats    whether to respond with verification stats
+     * @param targets  storage targets to verify against
+     * @param algorithm digest algorithm of input checksums to verify against inventory, rather than eTags
+     * @param timeout  time after which the caller no longer waits for the result
+     * @param request  servlet request
+     * @param response servlet response
+     * @return verification, responding with stats if requested
+     * @throws OverloadedException no capacity for verification
+     * @throws ServletRequestBindingException invalid timeout
      */
     @PostMapping("{id}/update")
-    public void verifyUpdate(
+    public WebAsyncTask<VerificationStats> verifyUpdate(
         @PathVariable(required = true) Long id,
-        @RequestBody Map<String, String> input
-    ) throws IOException, VerificationException {
-        verifyService.verifyUpdate(id, input);
+        @RequestBody Map<String, String> input,
+        @RequestParam(defaultValue = "false") boolean stats,
+        @RequestParam(defaultValue = S3TargetRegistry.DEFAULT_TARGET) List<String> targets,
+        @RequestParam(required = false) String algorithm,
+        @RequestHeader(value = Deadline.HEADER, required = false) String timeout,
+        HttpServletRequest request,
+        HttpServletResponse response
+    ) throws OverloadedException, ServletRequestBindingException {
+        VerifyService service = requestVerifyService();
+        service.setDeadline(deadline(timeout));
+        AdmissionService.Permit permit = admissionService.admit(AdmissionService.requests(input, targets, algorithm));
+        service.setPermit(permit);
+
+        return verification(service, permit, stats, request, response,
+            () -> service.verifyUpdate(id, input, targets, algorithm));
+    }
+
+    /**
+     * Page of errors of a verification result too large to respond with.
+     *
+     * @param resultId result id of summarized verification failure
+     * @param offset   errors to skip
+     * @param limit    maximum errors in page, clamped to the maximum page size
+     * @param response servlet response
+     * @return page of errors by path
+     * @throws IOException failed to read result
+     * @throws ResultNotFoundException no such result, or expired
+     * @throws ServletRequestBindingException negative offset or limit less than one
+     */
+    @GetMapping("results/{resultId}")
+    public Map<String, VerificationError> result(
+        @PathVariable String resultId,
+        @RequestParam(defaultValue = "0") long offset,
+        @RequestParam(defaultValue = "1000") int limit,
+        HttpServletResponse response
+    ) throws IOException, ResultNotFoundException, ServletRequestBindingException {
+        if (offset < 0) {
+            throw new ServletRequestBindingException(format("Invalid offset: %d", offset));
+        }
+        if (limit < 1) {
+            throw new ServletRequestBindingException(format("Invalid limit: %d", limit));
+        }
+
+        int pageSize = Math.min(limit, resultStore.getMaxPageSize());
+        Map<String, VerificationError> page = resultStore.page(resultId, offset, pageSize);
+
+        // a full page may be followed by more, a short or empty page is the last
+        if (!page.isEmpty() && page.size() == pageSize) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("offset", offset + pageSize)
+                .replaceQueryParam("limit", pageSize)
+                .toUriString();
+            response.setHeader(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+
+        return page;
+    }
+
+    /**
+     * Download all errors of a verification result too large to respond with, one per line.
+     *
+     * @param resultId result id of summarized verification failure
+     * @return NDJSON of errors
+     * @throws ResultNotFoundException no such result, or expired
+     */
+    @GetMapping("results/{resultId}/download")
+    public ResponseEntity<Resource> downloadResult(@PathVariable String resultId) throws ResultNotFoundException {
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(NDJSON))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + resultId + ".ndjson\"")
+            .body(new FileSystemResource(resultStore.path(resultId)));
     }
 
     @ResponseStatus(value = BAD_REQUEST)
@@ -87,10 +229,87 @@ public class VerifyController {
         return e.getMessage();
     }
 
+    @ResponseStatus(value = BAD_REQUEST)
+    @ExceptionHandler(ServletRequestBindingException.class)
+    public String handleBadHeader(ServletRequestBindingException e) {
+        return e.getMessage();
+    }
+
+    @ResponseStatus(value = BAD_REQUEST)
+    @ExceptionHandler(UnknownTargetException.class)
+    public String handleUnknownTarget(UnknownTargetException e) {
+        return e.getMessage();
+    }
+
+    @ResponseStatus(value = BAD_REQUEST)
+    @ExceptionHandler(UnsupportedAlgorithmException.class)
+    public String handleUnsupportedAlgorithm(UnsupportedAlgorithmException e) {
+        return e.getMessage();
+    }
+
+    /**
+     * Respond with errors of failed verification, or a summary and the first errors when there are
+     * more than a response carries, linking to the stored result.
+     *
+     * @param e        verification exception
+     * @param response servlet response
+     * @return errors by path, or verification summary
+     */
     @ResponseStatus(value = CONFLICT)
     @ExceptionHandler(VerificationException.class)
-    public Map<String, VerificationError> handleVerificationFailed(VerificationException e) {
-        return e.getErrors();
+    public Object handleVerificationFailed(VerificationException e, HttpServletResponse response) {
+        Optional<VerificationSummary> summary = e.getSummary();
+
+        if (summary.isEmpty()) {
+            return e.getErrors();
+        }
+
+        response.setHeader(HttpHeaders.LOCATION, ServletUriComponentsBuilder.fromCurrentContextPath()
+            .path("/verify/results/{resultId}")
+            .buildAndExpand(summary.get().getResultId())
+            .toUriString());
+
+        return summary.get();
+    }
+
+    /**
+     * Reject verification with suggested delay to retry after.
+     *
+     * @param e        overloaded exception
+     * @param response servlet response
+     * @return reason for rejection
+     */
+    @ResponseStatus(value = TOO_MANY_REQUESTS)
+    @ExceptionHandler(OverloadedException.class)
+    public String handleOverloaded(OverloadedException e, HttpServletResponse response) {
+        response.setHeader(RETRY_AFTER, String.valueOf(e.getRetryAfter()));
+        return e.getMessage();
+    }
+
+    /**
+     * Fail fast while S3 is unavailable with suggested delay to retry after.
+     *
+     * @param e        S3 unavailable exception
+     * @param response servlet response
+     * @return reason S3 is unavailable
+     */
+    @ResponseStatus(value = SERVICE_UNAVAILABLE)
+    @ExceptionHandler(S3UnavailableException.class)
+    public String handleS3Unavailable(S3UnavailableException e, HttpServletResponse response) {
+        response.setHeader(RETRY_AFTER, String.valueOf(e.getRetryAfter()));
+        return e.getMessage();
+    }
+
+    @ResponseStatus(value = GATEWAY_TIMEOUT)
+    @ExceptionHandler(DeadlineExceededException.class)
+    public String handleDeadlineExceeded(DeadlineExceededException e) {
+        return e.getMessage();
+    }
+
+    @ResponseStatus(value = NOT_FOUND)
+    @ExceptionHandler(ResultNotFoundException.class)
+    public String handleResultNotFound(ResultNotFoundException e) {
+        return e.getMessage();
     }
 
     @ResponseStatus(value = NOT_FOUND)
@@ -106,4 +325,74 @@ public class VerifyController {
         return e.getMessage();
     }
 
+    /**
+     * Verification continuing off the request thread once admitted, so a client disconnecting or the
+     * request timing out cancels its queued S3 requests rather than leaving them to run for nobody.
+     */
+    private WebAsyncTask<VerificationStats> verification(
+        VerifyService service,
+        AdmissionService.Permit permit,
+        boolean stats,
+        HttpServletRequest request,
+        HttpServletResponse response,
+        Verification verification
+    ) {
+        WebAsyncTask<VerificationStats> task = new WebAsyncTask<>(() -> {
+            try (permit) {
+                verification.run();
+            } finally {
+                response.setHeader(SERVER_TIMING, service.getStats().serverTiming());
+            }
+
+            return stats ? service.getStats() : null;
+        });
+
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(task, new CallableProcessingInterceptor() {
+            @Override
+            public <T> Object handleTimeout(NativeWebRequest webRequest, Callable<T> callable) {
+                return cancel(service);
+            }
+
+            @Override
+            public <T> Object handleError(NativeWebRequest webRequest, Callable<T> callable, Throwable t) {
+                return cancel(service);
+            }
+        });
+
+        return task;
+    }
+
+    private Object cancel(VerifyService service) {
+        log.debug("Verification request ended before verification completed, cancelling");
+        service.cancel();
+
+        return CallableProcessingInterceptor.RESULT_NONE;
+    }
+
+    /**
+     * Verify service of current request, rather than its scoped proxy, which only resolves on the
+     * request thread.
+     */
+    private VerifyService requestVerifyService() {
+        return verifyService instanceof ScopedObject
+            ? (VerifyService) ((ScopedObject) verifyService).getTargetObject()
+            : verifyService;
+    }
+
+    /**
+     * Deadline of verification from timeout header.
+     */
+    private Deadline deadline(String timeout) throws ServletRequestBindingException {
+        try {
+            return Deadline.parse(timeout);
+        } catch (IllegalArgumentException e) {
+            throw new ServletRequestBindingException(format("Invalid %s header: %s", Deadline.HEADER, timeout));
+        }
+    }
+
+    @FunctionalInterface
+    private interface Verification {
+        void run() throws IOException, VerificationException, UnknownTargetException, UnsupportedAlgorithmException;
+    }
+
 }
@@ -0,0 +1,426 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.controller;
+
+import static java.lang.String.format;
+import static org.apache.commons.lang3.StringUtils.defaultString;
+import static org.apache.commons.lang3.StringUtils.trimToNull;
+
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.dto.BatchRequest;
+import edu.harvard.drs.verify.dto.BatchResult;
+import edu.harvard.drs.verify.dto.VerificationError;
+import edu.harvard.drs.verify.grpc.Checksum;
+import edu.harvard.drs.verify.grpc.FileResult;
+import edu.harvard.drs.verify.grpc.ObjectResult;
+import edu.harvard.drs.verify.grpc.Status;
+import edu.harvard.drs.verify.grpc.VerifyRequest;
+import edu.harvard.drs.verify.grpc.VerifyResponse;
+import edu.harvard.drs.verify.grpc.VerifyStreamGrpc;
+import edu.harvard.drs.verify.service.BatchVerifyService;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Metrics;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Verify gRPC controller, serving bidirectional streaming verification on its own port.
+ *
+ * <p>Clients stream checksums of objects, each in one or more requests until its last, and receive
+ * the result of each file as it is verified followed by the result of the object once it completes.
+ * Objects of a stream are verified concurrently up to the configured max in flight, and no more
+ * requests are read while that many are verifying or the client is not reading results, so HTTP/2
+ * flow control pushes back on the client. Verification in turn waits to respond until the client
+ * reads, and a cancelled stream interrupts its objects in flight. A stream holding more open objects
+ * or checksums than configured fails with resource exhausted, as objects not yet marked last are not
+ * bounded by flow control.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "verify.grpc", name = "enabled", havingValue = "true")
+public class VerifyGrpcController extends VerifyStreamGrpc.VerifyStreamImplBase implements SmartLifecycle {
+
+    private final BatchVerifyService batchVerifyService;
+
+    private final VerifyConfig.Grpc config;
+
+    private final ExecutorService executor;
+
+    private Server server;
+
+    /**
+     * Autowired verify gRPC controller constructor.
+     *
+     * @param batchVerifyService batch verify service, verifying a request at a time
+     * @param verifyConfig       verify config
+     */
+    @Autowired
+    public VerifyGrpcController(BatchVerifyService batchVerifyService, VerifyConfig verifyConfig) {
+        this.batchVerifyService = batchVerifyService;
+        this.config = verifyConfig.getGrpc();
+
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(config.getConcurrency(), runnable -> {
+            Thread thread = new Thread(runnable, "grpc-verify-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public StreamObserver<VerifyRequest> verify(StreamObserver<VerifyResponse> responseObserver) {
+        return new ObjectStream((ServerCallStreamObserver<VerifyResponse>) responseObserver);
+    }
+
+    @Override
+    public synchronized void start() {
+        try {
+            server = NettyServerBuilder.forPort(config.getPort())
+                .maxInboundMessageSize((int) config.getMaxMessageSize().toBytes())
+                .addService(this)
+                .build()
+                .start();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to start gRPC server on port " + config.getPort(), e);
+        }
+
+        log.info("gRPC server started on port {}", server.getPort());
+    }
+
+    @Override
+    public synchronized void stop() {
+        server.shutdown();
+        try {
+            if (!server.awaitTermination(30, TimeUnit.SECONDS)) {
+                server.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            server.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return server != null && !server.isShutdown();
+    }
+
+    /**
+     * Responses completing an object, a file result per failed and passed input path not already
+     * streamed as it was verified, followed by its object result. Passed files are only known when
+     * the failure was not summarized, and files verified here were streamed regardless.
+     *
+     * @param request  verified object request
+     * @param result   result of object
+     * @param streamed paths of file results already streamed
+     * @return responses of object
+     */
+    static List<VerifyResponse> responses(BatchRequest request, BatchResult result, Set<String> streamed) {
+        List<VerifyResponse> responses = new ArrayList<>();
+
+        Map<String, VerificationError> errors = result.getSummary() != null
+            ? result.getSummary().getErrors()
+            : result.getErrors() != null ? result.getErrors() : Map.of();
+
+        for (Map.Entry<String, VerificationError> error : errors.entrySet()) {
+            if (!streamed.contains(error.getKey())) {
+                responses.add(response(request.getId(), file(error.getKey(), Optional.of(error.getValue()))));
+            }
+        }
+
+        boolean verified = result.getStatus() == BatchResult.Status.PASSED
+            || result.getStatus() == BatchResult.Status.FAILED && result.getSummary() == null;
+        if (verified) {
+            for (String path : paths(request)) {
+                if (!streamed.contains(path) && !errors.containsKey(path)) {
+                    responses.add(response(request.getId(), file(path, Optional.empty())));
+                }
+            }
+        }
+
+        ObjectResult.Builder object = ObjectResult.newBuilder()
+            .setStatus(Status.valueOf(result.getStatus().name()))
+            .setMessage(defaultString(result.getMessage()))
+            .setErrors(result.getSummary() != null ? result.getSummary().getTotal() : errors.size())
+            .setDuration(result.getDuration());
+        if (result.getSummary() != null) {
+            object.setResultId(defaultString(result.getSummary().getResultId()));
+        }
+
+        responses.add(VerifyResponse.newBuilder()
+            .setId(request.getId())
+            .setObject(object)
+            .build());
+
+        return responses;
+    }
+
+    /**
+     * Paths of file results of an object, by target when verified against more than one.
+     */
+    private static List<String> paths(BatchRequest request) {
+        List<String> targets = request.getTargets() == null
+            ? List.of()
+            : request.getTargets().stream().distinct().collect(Collectors.toList());
+        if (targets.size() <= 1) {
+            return new ArrayList<>(request.getInput().keySet());
+        }
+
+        List<String> paths = new ArrayList<>();
+        for (String path : request.getInput().keySet()) {
+            targets.forEach(target -> paths.add(target + ":" + path));
+        }
+
+        return paths;
+    }
+
+    private static FileResult file(String path, Optional<VerificationError> error) {
+        FileResult.Builder file = FileResult.newBuilder()
+            .setPath(path)
+            .setPassed(error.isEmpty());
+        error.ifPresent(failed -> file.setError(defaultString(failed.getError()))
+            .setExpected(defaultString(failed.getExpected()))
+            .setActual(defaultString(failed.getActual())));
+
+        return file.build();
+    }
+
+    private static VerifyResponse response(long id, FileResult file) {
+        return VerifyResponse.newBuilder()
+            .setId(id)
+            .setFile(file)
+            .build();
+    }
+
+    private static BatchRequest request(VerifyRequest first) {
+        BatchRequest request = new BatchRequest();
+        request.setId(first.getId());
+        // responses of passed files in the order the client sent them
+        request.setInput(new LinkedHashMap<>());
+        request.setUpdate(first.getUpdate());
+        request.setTargets(List.copyOf(first.getTargetsList()));
+        request.setAlgorithm(trimToNull(first.getAlgorithm()));
+        request.setTimeout(trimToNull(first.getTimeout()));
+
+        return request;
+    }
+
+    /**
+     * Requests of a single stream, with manual inbound flow control.
+     */
+    private final class ObjectStream implements StreamObserver<VerifyRequest> {
+
+        private final ServerCallStreamObserver<VerifyResponse> responses;
+
+        // objects of which requests are still being received, until their last
+        private final Map<Long, BatchRequest> receiving = new LinkedHashMap<>();
+
+        // verifications in flight, interrupted once the stream is cancelled
+        private final Map<BatchRequest, Future<?>> verifying = new IdentityHashMap<>();
+
+        // checksums of objects received and not yet responded to
+        private long checksums;
+
+        private int inFlight;
+
+        private boolean requested;
+
+        private boolean halfClosed;
+
+        private boolean cancelled;
+
+        private boolean completed;
+
+        private ObjectStream(ServerCallStreamObserver<VerifyResponse> responses) {
+            this.responses = responses;
+
+            responses.disableAutoRequest();
+            responses.setOnReadyHandler(this::ready);
+            responses.setOnCancelHandler(this::cancel);
+
+            requested = true;
+            responses.request(1);
+        }
+
+        @Override
+        public synchronized void onNext(VerifyRequest next) {
+            requested = false;
+            if (cancelled) {
+                return;
+            }
+
+            if (!receiving.containsKey(next.getId()) && receiving.size() >= config.getMaxOpenObjects()) {
+                exhausted(format("More than %d objects open", config.getMaxOpenObjects()));
+                return;
+            }
+
+            BatchRequest request = receiving.computeIfAbsent(next.getId(), id -> request(next));
+            int received = request.getInput().size();
+            for (Checksum checksum : next.getChecksumsList()) {
+                request.getInput().put(checksum.getPath(), checksum.getValue());
+            }
+            checksums += request.getInput().size() - received;
+
+            if (checksums > config.getMaxChecksums()) {
+                exhausted(format("More than %d checksums open", config.getMaxChecksums()));
+                return;
+            }
+
+            if (next.getLast()) {
+                submit(receiving.remove(next.getId()));
+            }
+
+            requestMore();
+        }
+
+        @Override
+        public synchronized void onError(Throwable t) {
+            log.debug("gRPC verify stream failed", t);
+            cancel();
+        }
+
+        @Override
+        public synchronized void onCompleted() {
+            halfClosed = true;
+
+            // objects without a last request are complete once the client has sent everything
+            receiving.values().forEach(this::submit);
+            receiving.clear();
+
+            complete();
+        }
+
+        private void submit(BatchRequest request) {
+            inFlight++;
+            Set<String> streamed = new HashSet<>();
+            verifying.put(request, executor.submit(() -> respond(request, streamed, batchVerifyService.verify(
+                request, (path, error) -> respondFile(request, streamed, path, error)))));
+        }
+
+        private synchronized void respondFile(
+            BatchRequest request,
+            Set<String> streamed,
+            String path,
+            Optional<VerificationError> error
+        ) {
+            if (awaitReady()) {
+                streamed.add(path);
+                responses.onNext(response(request.getId(), file(path, error)));
+            }
+        }
+
+        private synchronized void respond(BatchRequest request, Set<String> streamed, BatchResult result) {
+            inFlight--;
+            verifying.remove(request);
+            checksums -= request.getInput().size();
+            Metrics.counter("verify.grpc.results", "status", result.getStatus().name()).increment();
+
+            for (VerifyResponse response : responses(request, result, streamed)) {
+                if (!awaitReady()) {
+                    return;
+                }
+                responses.onNext(response);
+            }
+
+            requestMore();
+            complete();
+        }
+
+        /**
+         * Wait until the client reads more responses, so a client not reading holds back
+         * verification rather than responses buffering without bound.
+         *
+         * @return false once the stream is cancelled
+         */
+        private boolean awaitReady() {
+            try {
+                while (!cancelled && !responses.isReady()) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+
+            return !cancelled;
+        }
+
+        private synchronized void ready() {
+            notifyAll();
+            requestMore();
+        }
+
+        private synchronized void requestMore() {
+            if (!requested && !halfClosed && !cancelled && inFlight < config.getMaxInFlight() && responses.isReady()) {
+                requested = true;
+                responses.request(1);
+            }
+        }
+
+        private void complete() {
+            if (halfClosed && inFlight == 0 && !cancelled && !completed) {
+                completed = true;
+                responses.onCompleted();
+            }
+        }
+
+        /**
+         * Fail stream over its limits, discarding objects received and cancelling those in flight.
+         */
+        private void exhausted(String reason) {
+            log.warn("Failing gRPC verify stream: {}", reason);
+            Metrics.counter("verify.grpc.exhausted").increment();
+
+            cancel();
+            responses.onError(io.grpc.Status.RESOURCE_EXHAUSTED.withDescription(reason).asRuntimeException());
+        }
+
+        private synchronized void cancel() {
+            // interrupted verifications cancel their queued S3 requests, and their results are discarded
+            cancelled = true;
+            receiving.clear();
+            verifying.values().forEach(verification -> verification.cancel(true));
+            verifying.clear();
+            notifyAll();
+        }
+
+    }
+
+}
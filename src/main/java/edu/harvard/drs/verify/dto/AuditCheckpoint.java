@@ -0,0 +1,41 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.dto;
+
+import java.util.Map;
+import java.util.TreeMap;
+import lombok.Data;
+
+/**
+ * Audit checkpoint persisted between runs and restarts.
+ */
+@Data
+public class AuditCheckpoint {
+    private String started;
+    private Map<String, Shard> shards = new TreeMap<>();
+
+    /**
+     * Audit progress of a single key prefix shard.
+     */
+    @Data
+    public static class Shard {
+        private String lastKey;
+        private boolean complete;
+        private long passed;
+        private long failed;
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.dto;
+
+import java.util.Map;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Audit status.
+ */
+@Data
+@Builder
+public class AuditStatus {
+    private boolean running;
+    private String started;
+    private long passed;
+    private long failed;
+    private long errored;
+    private long s3Requests;
+    private double objectsPerSecond;
+    private Map<String, AuditCheckpoint.Shard> shards;
+}
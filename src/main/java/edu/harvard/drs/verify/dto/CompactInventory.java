@@ -0,0 +1,295 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.dto;
+
+import static java.lang.String.format;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Compact read only head state of an OCFL inventory.
+ *
+ * <p>Digests are packed into one fixed width byte array, content paths share the logical path
+ * string they are stored under with a deduplicated version content prefix, and lookup is a binary
+ * search over primitive indexed arrays sorted by logical path.
+ */
+public final class CompactInventory {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final String id;
+
+    private final String digestAlgorithm;
+
+    private final int digestWidth;
+
+    private final byte[] digests;
+
+    private final String[] statePaths;
+
+    private final String[] contentPrefixes;
+
+    private final short[] contentPrefix;
+
+    private final String[] contentSuffixes;
+
+    private CompactInventory(
+        String id,
+        String digestAlgorithm,
+        int digestWidth,
+        byte[] digests,
+        String[] statePaths,
+        String[] contentPrefixes,
+        short[] contentPrefix,
+        String[] contentSuffixes
+    ) {
+        this.id = id;
+        this.digestAlgorithm = digestAlgorithm;
+        this.digestWidth = digestWidth;
+        this.digests = digests;
+        this.statePaths = statePaths;
+        this.contentPrefixes = contentPrefixes;
+        this.contentPrefix = contentPrefix;
+        this.contentSuffixes = contentSuffixes;
+    }
+
+    /**
+     * Compact head state of OCFL inventory.
+     *
+     * @param inventory OCFL inventory
+     * @return compact inventory
+     */
+    public static CompactInventory of(OcflInventory inventory) {
+        Map<String, List<String>> state = inventory.getVersions()
+            .get(inventory.getHead())
+            .getState();
+
+        int size = state.values()
+            .stream()
+            .mapToInt(List::size)
+            .sum();
+
+        String[] paths = new String[size];
+        String[] pathDigests = new String[size];
+        int i = 0;
+        for (Map.Entry<String, List<String>> entry : state.entrySet()) {
+            for (String path : entry.getValue()) {
+                paths[i] = path;
+                pathDigests[i] = entry.getKey();
+                i++;
+            }
+        }
+
+        Integer[] order = new Integer[size];
+        for (i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> paths[a].compareTo(paths[b]));
+
+        int digestWidth = size == 0 ? 0 : pathDigests[0].length() / 2;
+
+        byte[] digests = new byte[size * digestWidth];
+        String[] statePaths = new String[size];
+        short[] contentPrefix = new short[size];
+        String[] contentSuffixes = new String[size];
+
+        Map<String, Short> prefixes = new HashMap<>();
+
+        for (i = 0; i < size; i++) {
+            int from = order[i];
+            String statePath = paths[from];
+            String digest = pathDigests[from];
+
+            if (digest.length() != digestWidth * 2) {
+                throw new IllegalArgumentException(format("Inconsistent digest length in %s", inventory.getId()));
+            }
+
+            statePaths[i] = statePath;
+            decode(digest, digests, i * digestWidth);
+
+            List<String> manifestPaths = inventory.getManifest().get(digest);
+            if (manifestPaths == null || manifestPaths.isEmpty()) {
+                contentPrefix[i] = -1;
+                continue;
+            }
+
+            String contentPath = manifestPaths.get(0);
+            int split = contentPath.indexOf('/', contentPath.indexOf('/') + 1) + 1;
+            String suffix = contentPath.substring(split);
+
+            contentPrefix[i] = prefixes.computeIfAbsent(
+                contentPath.substring(0, split),
+                prefix -> {
+                    // indexed by short, one prefix per version content directory
+                    if (prefixes.size() > Short.MAX_VALUE) {
+                        throw new IllegalArgumentException(
+                            format("More than %d content prefixes in %s", Short.MAX_VALUE + 1, inventory.getId())
+                        );
+                    }
+                    return (short) prefixes.size();
+                }
+            );
+            contentSuffixes[i] = suffix.equals(statePath) ? statePath : suffix;
+        }
+
+        String[] contentPrefixes = new String[prefixes.size()];
+        prefixes.forEach((prefix, index) -> contentPrefixes[index] = prefix);
+
+        return new CompactInventory(
+            inventory.getId(),
+            inventory.getDigestAlgorithm(),
+            digestWidth,
+            digests,
+            statePaths,
+            contentPrefixes,
+            contentPrefix,
+            contentSuffixes
+        );
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getDigestAlgorithm() {
+        return digestAlgorithm;
+    }
+
+    /**
+     * Number of logical paths in head state.
+     *
+     * @return head state size
+     */
+    public int size() {
+        return statePaths.length;
+    }
+
+    /**
+     * Whether logical path is in head state.
+     *
+     * @param statePath state path
+     * @return true if in head state
+     */
+    public boolean contains(String statePath) {
+        return Arrays.binarySearch(statePaths, statePath) >= 0;
+    }
+
+    /**
+     * Find path in manifest matching path in head state.
+     *
+     * @param statePath state path
+     * @return path in manifest
+     */
+    public Optional<String> find(String statePath) {
+        int i = Arrays.binarySearch(statePaths, statePath);
+
+        if (i < 0 || contentPrefix[i] < 0) {
+            return Optional.empty();
+        }
+
+        return Optional.of(contentPrefixes[contentPrefix[i]] + contentSuffixes[i]);
+    }
+
+    /**
+     * Find digest of path in head state.
+     *
+     * @param statePath state path
+     * @return lowercase hex digest
+     */
+    public Optional<String> digest(String statePath) {
+        int i = Arrays.binarySearch(statePaths, statePath);
+
+        if (i < 0) {
+            return Optional.empty();
+        }
+
+        char[] hex = new char[digestWidth * 2];
+        for (int j = 0; j < digestWidth; j++) {
+            int b = digests[i * digestWidth + j] & 0xff;
+            hex[j * 2] = HEX[b >>> 4];
+            hex[j * 2 + 1] = HEX[b & 0x0f];
+        }
+
+        return Optional.of(new String(hex));
+    }
+
+    /**
+     * Logical paths in head state in sorted order.
+     *
+     * @return unmodifiable state paths
+     */
+    public List<String> getStatePaths() {
+        return Collections.unmodifiableList(Arrays.asList(statePaths));
+    }
+
+    /**
+     * Estimate of heap retained by this inventory, assuming compressed oops and compact strings.
+     *
+     * @return retained bytes
+     */
+    public long retainedBytes() {
+        Set<String> strings = Collections.newSetFromMap(new IdentityHashMap<>());
+        strings.add(id);
+        strings.add(digestAlgorithm);
+        strings.addAll(Arrays.asList(statePaths));
+        strings.addAll(Arrays.asList(contentPrefixes));
+        strings.addAll(Arrays.asList(contentSuffixes));
+        strings.remove(null);
+
+        long bytes = align(12 + 4 * 7 + 4)
+            + array(digests.length)
+            + array(4L * statePaths.length)
+            + array(4L * contentPrefixes.length)
+            + array(2L * contentPrefix.length)
+            + array(4L * contentSuffixes.length);
+
+        for (String string : strings) {
+            bytes += align(12 + 4 + 4 + 4) + array(string.length());
+        }
+
+        return bytes;
+    }
+
+    private static long array(long length) {
+        return align(16 + length);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private static void decode(String hex, byte[] bytes, int offset) {
+        for (int i = 0; i < hex.length(); i += 2) {
+            int high = Character.digit(hex.charAt(i), 16);
+            int low = Character.digit(hex.charAt(i + 1), 16);
+
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException(format("Invalid hex digest %s", hex));
+            }
+
+            bytes[offset + i / 2] = (byte) ((high << 4) | low);
+        }
+    }
+
+}
@@ -16,6 +16,7 @@
 
 package edu.harvard.drs.verify.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +37,9 @@ public class OcflInventory {
     private Map<String, List<String>> manifest = new HashMap<>();
     private Map<String, OcflVersion> versions = new HashMap<>();
 
+    @JsonIgnore
+    private String etag;
+
     /**
      * Find path in manifest matching path in head state.
      *
@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.dto;
+
+import static java.lang.String.format;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import java.util.Locale;
+import lombok.Data;
+
+/**
+ * Per verification phase durations in milliseconds and S3 request counts.
+ */
+@Data
+@JsonInclude(value = Include.NON_NULL)
+public class VerificationStats {
+    private double inventory;
+    private double parse;
+    private double index;
+    private double queue;
+    private double verify;
+    private double total;
+    private int s3Requests;
+    private double s3Slowest;
+    private String s3SlowestKey;
+    private String ledger;
+
+    /**
+     * Record time to first byte of inventory download.
+     *
+     * @param nanos elapsed nanoseconds
+     */
+    public void recordInventory(long nanos) {
+        this.inventory = millis(nanos);
+    }
+
+    /**
+     * Record time to read and parse inventory after first byte.
+     *
+     * @param nanos elapsed nanoseconds
+     */
+    public void recordParse(long nanos) {
+        this.parse = millis(nanos);
+    }
+
+    /**
+     * Record time to build compact inventory.
+     *
+     * @param nanos elapsed nanoseconds
+     */
+    public void recordIndex(long nanos) {
+        this.index = millis(nanos);
+    }
+
+    /**
+     * Record longest wait of an S3 request for a scheduler worker.
+     *
+     * @param nanos elapsed nanoseconds
+     */
+    public void recordQueue(long nanos) {
+        this.queue = millis(nanos);
+    }
+
+    /**
+     * Record time to verify input against S3.
+     *
+     * @param nanos elapsed nanoseconds
+     */
+    public void recordVerify(long nanos) {
+        this.verify = millis(nanos);
+    }
+
+    /**
+     * Record total verification time.
+     *
+     * @param nanos elapsed nanoseconds
+     */
+    public void recordTotal(long nanos) {
+        this.total = millis(nanos);
+    }
+
+    /**
+     * Record completed S3 request.
+     *
+     * @param key   S3 key requested
+     * @param nanos elapsed nanoseconds
+     */
+    public synchronized void recordS3Request(String key, long nanos) {
+        double elapsed = millis(nanos);
+
+        s3Requests++;
+        if (elapsed >= s3Slowest) {
+            s3Slowest = elapsed;
+            s3SlowestKey = key;
+        }
+    }
+
+    /**
+     * Record verification skipped as ledger shows unchanged object already passed.
+     */
+    public void recordLedgerHit() {
+        this.ledger = "hit";
+    }
+
+    /**
+     * Format as Server-Timing header value.
+     *
+     * @return Server-Timing header value
+     */
+    public synchronized String serverTiming() {
+        String timing = format(
+            Locale.ROOT,
+            "inventory;dur=%.1f, parse;dur=%.1f, index;dur=%.1f, queue;dur=%.1f, verify;dur=%.1f, "
+                + "s3;desc=\"%d requests\", s3max;dur=%.1f, total;dur=%.1f",
+            inventory,
+            parse,
+            index,
+            queue,
+            verify,
+            s3Requests,
+            s3Slowest,
+            total
+        );
+
+        return ledger == null ? timing : timing + format(", ledger;desc=\"%s\"", ledger);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a single S3 request, spanning it until its response.
+ */
+@Name("edu.harvard.drs.verify.S3Request")
+@Label("S3 Request")
+@Category({ "DRS Verify" })
+@Description("Request to S3 until response, excluding reading a response body")
+@StackTrace(false)
+public class S3RequestEvent extends Event {
+
+    @Label("Bucket")
+    private final String bucket;
+
+    @Label("Operation")
+    private final String operation;
+
+    @Label("Key")
+    private final String key;
+
+    @Label("Status")
+    @Description("HTTP status code, zero without response")
+    private int status;
+
+    @Label("Error")
+    private String error;
+
+    /**
+     * S3 request event constructor, to begin once constructed.
+     *
+     * @param bucket    S3 bucket
+     * @param operation S3 operation, i.e. HeadObject
+     * @param key       S3 key, null for bucket operations
+     */
+    public S3RequestEvent(String bucket, String operation, String key) {
+        this.bucket = bucket;
+        this.operation = operation;
+        this.key = key;
+    }
+
+    /**
+     * End and commit event if recorded.
+     *
+     * @param status HTTP status code, zero without response
+     * @param error  exception failing request, null if none
+     */
+    public void complete(int status, Throwable error) {
+        end();
+
+        if (!shouldCommit()) {
+            return;
+        }
+
+        this.status = status;
+        this.error = error == null ? null : error.getClass().getSimpleName();
+
+        commit();
+    }
+
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.event;
+
+import edu.harvard.drs.verify.dto.VerificationStats;
+import java.util.Collection;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event of a verification, spanning it from start to outcome with its phase durations.
+ */
+@Name("edu.harvard.drs.verify.Verification")
+@Label("Verification")
+@Category({ "DRS Verify" })
+@Description("Verification of an object against S3")
+@StackTrace(false)
+public class VerificationEvent extends Event {
+
+    @Label("Object Id")
+    private final long objectId;
+
+    @Label("Update")
+    private final boolean update;
+
+    @Label("Targets")
+    private final String targets;
+
+    @Label("Algorithm")
+    @Description("Digest algorithm verified against inventory, none for eTags")
+    private final String algorithm;
+
+    @Label("Files")
+    @Description("Input checksums")
+    private final int files;
+
+    @Label("Outcome")
+    @Description("passed, failed, ledger or error")
+    private String outcome;
+
+    @Label("Errors")
+    private long errors;
+
+    @Label("S3 Requests")
+    private int s3Requests;
+
+    @Label("Inventory")
+    @Description("Time to first byte of inventory")
+    @Timespan(Timespan.NANOSECONDS)
+    private long inventory;
+
+    @Label("Parse")
+    @Timespan(Timespan.NANOSECONDS)
+    private long parse;
+
+    @Label("Index")
+    @Timespan(Timespan.NANOSECONDS)
+    private long index;
+
+    @Label("Queue")
+    @Description("Longest wait of an S3 request for a worker")
+    @Timespan(Timespan.NANOSECONDS)
+    private long queue;
+
+    @Label("Verify")
+    @Timespan(Timespan.NANOSECONDS)
+    private long verify;
+
+    /**
+     * Verification event constructor, to begin once constructed.
+     *
+     * @param objectId  object id
+     * @param update    whether verifying an update
+     * @param targets   storage target names
+     * @param algorithm digest algorithm, null for eTags
+     * @param files     number of input checksums
+     */
+    public VerificationEvent(long objectId, boolean update, Collection<String> targets, String algorithm, int files) {
+        this.objectId = objectId;
+        this.update = update;
+        this.targets = String.join(",", targets);
+        this.algorithm = algorithm;
+        this.files = files;
+    }
+
+    /**
+     * End and commit event if recorded.
+     *
+     * @param outcome outcome of verification
+     * @param errors  number of errors
+     * @param stats   verification stats
+     */
+    public void complete(String outcome, long errors, VerificationStats stats) {
+        end();
+
+        if (!shouldCommit()) {
+            return;
+        }
+
+        this.outcome = outcome;
+        this.errors = errors;
+        this.s3Requests = stats.getS3Requests();
+        this.inventory = nanos(stats.getInventory());
+        this.parse = nanos(stats.getParse());
+        this.index = nanos(stats.getIndex());
+        this.queue = nanos(stats.getQueue());
+        this.verify = nanos(stats.getVerify());
+
+        commit();
+    }
+
+    private static long nanos(double millis) {
+        return (long) (millis * 1_000_000);
+    }
+
+}
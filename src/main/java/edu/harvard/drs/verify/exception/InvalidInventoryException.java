@@ -0,0 +1,44 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.exception;
+
+import edu.harvard.drs.verify.dto.VerificationError;
+import java.io.IOException;
+
+/**
+ * Invalid inventory exception, an inventory not matching the digest of its sidecar.
+ */
+public class InvalidInventoryException extends IOException {
+
+    private final VerificationError error;
+
+    /**
+     * Invalid inventory exception with reason and verification error of inventory.
+     *
+     * @param message reason inventory is not trusted
+     * @param error   verification error of inventory, its expected and actual digest
+     */
+    public InvalidInventoryException(String message, VerificationError error) {
+        super(message);
+        this.error = error;
+    }
+
+    public VerificationError getError() {
+        return error;
+    }
+
+}
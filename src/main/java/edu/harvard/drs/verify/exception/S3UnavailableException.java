@@ -0,0 +1,41 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.exception;
+
+/**
+ * S3 unavailable exception, failing fast while circuit breaker is open or bulkhead is full.
+ */
+public class S3UnavailableException extends RuntimeException {
+
+    private final long retryAfter;
+
+    /**
+     * S3 unavailable exception with suggested retry delay.
+     *
+     * @param message    reason S3 is unavailable
+     * @param retryAfter seconds after which to retry
+     */
+    public S3UnavailableException(String message, long retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+
+}
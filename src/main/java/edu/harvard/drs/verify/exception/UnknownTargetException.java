@@ -0,0 +1,35 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.exception;
+
+import static java.lang.String.format;
+
+/**
+ * Unknown storage target exception.
+ */
+public class UnknownTargetException extends Exception {
+
+    /**
+     * Unknown target exception of target name.
+     *
+     * @param target target name
+     */
+    public UnknownTargetException(String target) {
+        super(format("Unknown storage target %s", target));
+    }
+
+}
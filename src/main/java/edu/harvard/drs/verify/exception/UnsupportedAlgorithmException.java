@@ -0,0 +1,36 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.exception;
+
+import static java.lang.String.format;
+
+/**
+ * Unsupported algorithm exception.
+ */
+public class UnsupportedAlgorithmException extends Exception {
+
+    /**
+     * Unsupported algorithm exception of algorithm neither digest algorithm nor in fixity of object.
+     *
+     * @param algorithm requested digest algorithm
+     * @param id        object id
+     */
+    public UnsupportedAlgorithmException(String algorithm, Long id) {
+        super(format("Inventory of object %s has no %s digests", id, algorithm));
+    }
+
+}
@@ -17,7 +17,9 @@
 package edu.harvard.drs.verify.exception;
 
 import edu.harvard.drs.verify.dto.VerificationError;
+import edu.harvard.drs.verify.dto.VerificationSummary;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * Verification exception.
@@ -26,6 +28,8 @@ public class VerificationException extends Exception {
 
     private final Map<String, VerificationError> errors;
 
+    private final VerificationSummary summary;
+
     /**
      * Verification exception from errors.
      *
@@ -34,10 +38,31 @@ public class VerificationException extends Exception {
     public VerificationException(Map<String, VerificationError> errors) {
         super("Verification failed");
         this.errors = errors;
+        this.summary = null;
+    }
+
+    /**
+     * Verification exception from summary of errors, the full result of which is stored.
+     *
+     * @param summary verification summary
+     */
+    public VerificationException(VerificationSummary summary) {
+        super("Verification failed");
+        this.errors = summary.getErrors();
+        this.summary = summary;
     }
 
+    /**
+     * Verification errors, only the first of them if summarized.
+     *
+     * @return verification errors
+     */
     public Map<String, VerificationError> getErrors() {
         return errors;
     }
 
+    public Optional<VerificationSummary> getSummary() {
+        return Optional.ofNullable(summary);
+    }
+
 }
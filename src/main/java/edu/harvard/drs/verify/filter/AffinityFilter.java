@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.filter;
+
+import static org.apache.commons.lang3.StringUtils.isNumeric;
+
+import edu.harvard.drs.verify.utility.ConsistentHash;
+import java.io.IOException;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Respond to verification of an object with the replica owning it on a consistent hash of object
+ * id, so clients or a load balancer can send repeat verifications where its inventory is warm.
+ */
+public class AffinityFilter extends OncePerRequestFilter {
+
+    public static final String VERIFY_AFFINITY = "Verify-Affinity";
+
+    private static final String PREFIX = "/verify/";
+
+    private final ConsistentHash replicas;
+
+    /**
+     * Affinity filter constructor.
+     *
+     * @param replicas consistent hash of replica names
+     */
+    public AffinityFilter(ConsistentHash replicas) {
+        this.replicas = replicas;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+
+        if (path.startsWith(PREFIX)) {
+            int end = path.indexOf('/', PREFIX.length());
+            String id = path.substring(PREFIX.length(), end < 0 ? path.length() : end);
+
+            if (isNumeric(id)) {
+                replicas.node(id).ifPresent(replica -> response.setHeader(VERIFY_AFFINITY, replica));
+            }
+        }
+
+        chain.doFilter(request, response);
+    }
+
+}
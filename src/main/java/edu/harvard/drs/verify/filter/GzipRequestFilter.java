@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.filter;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.zip.GZIPInputStream;
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Inflate request bodies sent with gzip content encoding.
+ */
+public class GzipRequestFilter extends OncePerRequestFilter {
+
+    private final long maxInflatedBytes;
+
+    /**
+     * Gzip request filter constructor.
+     *
+     * @param maxInflatedBytes maximum inflated request body size
+     */
+    public GzipRequestFilter(long maxInflatedBytes) {
+        this.maxInflatedBytes = maxInflatedBytes;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        String encoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+
+        if ("gzip".equalsIgnoreCase(encoding) || "x-gzip".equalsIgnoreCase(encoding)) {
+            chain.doFilter(new GzipRequest(request), response);
+        } else {
+            chain.doFilter(request, response);
+        }
+    }
+
+    private class GzipRequest extends HttpServletRequestWrapper {
+
+        private ServletInputStream inputStream;
+
+        GzipRequest(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                inputStream = new InflatingInputStream(
+                    new GZIPInputStream(getRequest().getInputStream()),
+                    maxInflatedBytes
+                );
+            }
+
+            return inputStream;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return isEncodingHeader(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return isEncodingHeader(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        private boolean isEncodingHeader(String name) {
+            return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name)
+                || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+        }
+
+    }
+
+    private static class InflatingInputStream extends ServletInputStream {
+
+        private final InputStream delegate;
+
+        private final long max;
+
+        private long count;
+
+        private boolean finished;
+
+        InflatingInputStream(InputStream delegate, long max) {
+            this.delegate = delegate;
+            this.max = max;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b < 0) {
+                finished = true;
+            } else {
+                count(1);
+            }
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = delegate.read(buffer, offset, length);
+            if (read < 0) {
+                finished = true;
+            } else {
+                count(read);
+            }
+
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException("Non blocking read of gzip request body not supported");
+        }
+
+        private void count(int read) throws IOException {
+            count += read;
+            if (count > max) {
+                throw new IOException(format("Inflated request body exceeds %d bytes", max));
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.filter;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.TimeGauge;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Measure time after start to the first verification request, and to the first one answered
+ * within the fast request threshold, as gauges of milliseconds of JVM uptime.
+ */
+@Slf4j
+public class StartupTimingFilter extends OncePerRequestFilter {
+
+    private final long fastRequestNanos;
+
+    private final AtomicLong firstRequest = new AtomicLong();
+
+    private final AtomicLong firstFastRequest = new AtomicLong();
+
+    /**
+     * Startup timing filter constructor.
+     *
+     * @param fastRequest latency at or below which a request is fast
+     */
+    public StartupTimingFilter(Duration fastRequest) {
+        this.fastRequestNanos = fastRequest.toNanos();
+
+        TimeGauge.builder("verify.startup.first.request", firstRequest, TimeUnit.MILLISECONDS, AtomicLong::get)
+            .register(Metrics.globalRegistry);
+        TimeGauge.builder("verify.startup.first.fast.request", firstFastRequest, TimeUnit.MILLISECONDS, AtomicLong::get)
+            .register(Metrics.globalRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        if (firstFastRequest.get() > 0) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // verification continues off the request thread, so record once the response completes
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(System.nanoTime() - start, response.getStatus());
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                record(System.nanoTime() - start, response.getStatus());
+            }
+        }
+    }
+
+    /**
+     * Record completed request, unless server failed or was overloaded.
+     *
+     * @param nanos  request latency
+     * @param status response status
+     */
+    void record(long nanos, int status) {
+        if (status >= 500 || status == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            return;
+        }
+
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+
+        if (firstRequest.compareAndSet(0, uptime)) {
+            log.info("First request {} ms after start took {} ms", uptime, TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+        if (nanos <= fastRequestNanos && firstFastRequest.compareAndSet(0, uptime)) {
+            log.info("First fast request {} ms after start took {} ms", uptime, TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+    }
+
+    long getFirstRequest() {
+        return firstRequest.get();
+    }
+
+    long getFirstFastRequest() {
+        return firstFastRequest.get();
+    }
+
+}
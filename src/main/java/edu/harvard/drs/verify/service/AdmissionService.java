@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.exception.OverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Admission control of verifications.
+ *
+ * <p>Verifications are admitted while both in flight verifications and their pending S3 requests,
+ * estimated from input size, are under configured limits. Pending requests of a verification are
+ * released as its S3 requests complete, not only once it completes. A rejected caller is told to
+ * retry once the pending requests have drained at the recently observed S3 request throughput.
+ */
+@Slf4j
+@Service
+public class AdmissionService {
+
+    private static final double SMOOTHING = 0.3;
+
+    private static final long MIN_RETRY_AFTER = 1;
+
+    private static final long MAX_RETRY_AFTER = 60;
+
+    private final int maxInFlight;
+
+    private final long maxPendingRequests;
+
+    private final Counter rejected = Metrics.counter("verify.admission.rejected");
+
+    private int inFlight;
+
+    private long pendingRequests;
+
+    private long completedRequests;
+
+    private long sampleStart = System.nanoTime();
+
+    private double throughput;
+
+    /**
+     * Autowired admission service constructor.
+     *
+     * @param verifyConfig verify config
+     */
+    @Autowired
+    public AdmissionService(VerifyConfig verifyConfig) {
+        this.maxInFlight = verifyConfig.getAdmission().getMaxInFlight();
+        this.maxPendingRequests = verifyConfig.getAdmission().getMaxPendingRequests();
+
+        Metrics.gauge("verify.admission.inflight", this, service -> service.getInFlight());
+        Metrics.gauge("verify.admission.pending.requests", this, service -> service.getPendingRequests());
+    }
+
+    /**
+     * Admit a verification of given number of S3 requests.
+     *
+     * <p>A verification larger than the pending request limit on its own is admitted when nothing
+     * else is in flight.
+     *
+     * @param requests estimated S3 requests of verification
+     * @return permit to close when verification completes
+     * @throws OverloadedException no capacity for verification
+     */
+    public synchronized Permit admit(long requests) throws OverloadedException {
+        if (inFlight >= maxInFlight) {
+            throw reject(format("%d verifications in flight", inFlight));
+        }
+
+        if (inFlight > 0 && pendingRequests + requests > maxPendingRequests) {
+            throw reject(format("%d S3 requests pending", pendingRequests));
+        }
+
+        inFlight++;
+        pendingRequests += requests;
+
+        return new Permit(requests);
+    }
+
+    /**
+     * Estimated S3 requests of a verification, the inventory alone when verifying digests against it.
+     *
+     * @param input     input checksum map
+     * @param targets   storage targets to verify against, the default target when empty
+     * @param algorithm digest algorithm of input checksums, null for eTags
+     * @return estimated S3 requests
+     */
+    public static long requests(Map<String, String> input, List<String> targets, String algorithm) {
+        if (algorithm != null) {
+            return 1;
+        }
+
+        return (long) input.size() * (targets == null || targets.isEmpty() ? 1 : targets.size());
+    }
+
+    /**
+     * Number of verifications in flight.
+     *
+     * @return in flight verifications
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Estimated S3 requests of verifications in flight.
+     *
+     * @return pending S3 requests
+     */
+    public synchronized long getPendingRequests() {
+        return pendingRequests;
+    }
+
+    /**
+     * Seconds for pending S3 requests to drain at observed throughput.
+     *
+     * @return retry after seconds
+     */
+    public synchronized long retryAfter() {
+        if (throughput <= 0) {
+            return MIN_RETRY_AFTER;
+        }
+
+        long seconds = (long) Math.ceil(pendingRequests / throughput);
+
+        return Math.max(MIN_RETRY_AFTER, Math.min(MAX_RETRY_AFTER, seconds));
+    }
+
+    private OverloadedException reject(String reason) {
+        rejected.increment();
+        long retryAfter = retryAfter();
+        log.warn("Rejecting verification with {}, retry after {} seconds", reason, retryAfter);
+
+        return new OverloadedException(format("Overloaded with %s", reason), retryAfter);
+    }
+
+    private synchronized void complete(long requests) {
+        pendingRequests -= requests;
+        completedRequests += requests;
+
+        long now = System.nanoTime();
+        double seconds = (now - sampleStart) / (double) SECONDS.toNanos(1);
+        if (seconds >= 1) {
+            double rate = completedRequests / seconds;
+            throughput = throughput == 0 ? rate : SMOOTHING * rate + (1 - SMOOTHING) * throughput;
+            completedRequests = 0;
+            sampleStart = now;
+        }
+    }
+
+    /**
+     * Admitted verification, releasing its capacity when closed.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private long requests;
+
+        private boolean closed;
+
+        private Permit(long requests) {
+            this.requests = requests;
+        }
+
+        /**
+         * Release a completed S3 request of verification, up to those admitted.
+         */
+        public void completed() {
+            synchronized (AdmissionService.this) {
+                if (!closed && requests > 0) {
+                    requests--;
+                    complete(1);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (AdmissionService.this) {
+                if (!closed) {
+                    closed = true;
+                    inFlight--;
+                    complete(requests);
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,571 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static edu.harvard.drs.verify.utility.KeyUtility.buildKey;
+import static edu.harvard.drs.verify.utility.KeyUtility.isObjectRoot;
+import static edu.harvard.drs.verify.utility.KeyUtility.parseId;
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.commons.lang3.StringUtils.removeEnd;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.harvard.drs.verify.config.AuditConfig;
+import edu.harvard.drs.verify.dto.AuditCheckpoint;
+import edu.harvard.drs.verify.dto.AuditStatus;
+import edu.harvard.drs.verify.dto.CompactInventory;
+import edu.harvard.drs.verify.dto.OcflInventory;
+import edu.harvard.drs.verify.dto.VerificationError;
+import edu.harvard.drs.verify.exception.S3UnavailableException;
+import edu.harvard.drs.verify.service.S3WorkScheduler.Lane;
+import edu.harvard.drs.verify.utility.RateLimiter;
+import io.micrometer.core.instrument.Metrics;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Audit service re-verifying every object root in the bucket.
+ *
+ * <p>Object roots are enumerated by walking each top level prefix of the {@link
+ * edu.harvard.drs.verify.utility.KeyUtility} key tree as its own shard, listing one level of
+ * {@code xxxx/yyyy/id/} prefixes at a time so content keys beneath object roots are never listed.
+ * Progress of every shard is checkpointed to the local file system so an interrupted audit resumes
+ * where it left off.
+ */
+@Slf4j
+@Lazy(false)
+@Service
+public class AuditService {
+
+    static final List<String> SHARDS = IntStream.range(0, 10)
+        .mapToObj(String::valueOf)
+        .collect(Collectors.toList());
+
+    private static final String CHECKPOINT = "checkpoint.json";
+
+    private static final String FAILURES = "failures.ndjson";
+
+    // depth of object root prefixes below shard, i.e. 4264/5210/1254624/ of shard 4
+    private static final int ROOT_DEPTH = 2;
+
+    private final AuditConfig auditConfig;
+
+    private final S3Service s3Service;
+
+    private final S3WorkScheduler scheduler;
+
+    private final ObjectMapper objectMapper;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // run of current workers, so workers of a stopped run never finish a restarted one
+    private volatile long generation;
+
+    private final AtomicLong passed = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final AtomicLong errored = new AtomicLong();
+
+    private final AtomicLong s3Requests = new AtomicLong();
+
+    private RateLimiter rateLimiter;
+
+    private ExecutorService executor;
+
+    private AuditCheckpoint checkpoint;
+
+    private Instant started;
+
+    /**
+     * Autowired audit service constructor.
+     *
+     * @param auditConfig audit config
+     * @param s3Service   S3 service
+     * @param scheduler   S3 work scheduler
+     */
+    @Autowired
+    public AuditService(AuditConfig auditConfig, S3Service s3Service, S3WorkScheduler scheduler) {
+        this.auditConfig = auditConfig;
+        this.s3Service = s3Service;
+        this.scheduler = scheduler;
+        this.objectMapper = new ObjectMapper();
+        this.rateLimiter = new RateLimiter(auditConfig.getRequestsPerSecond());
+    }
+
+    /**
+     * Resume an interrupted audit on startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resume() {
+        if (auditConfig.isEnabled() && Files.exists(checkpointPath())) {
+            log.info("Resuming audit from checkpoint {}", checkpointPath());
+            start();
+        }
+    }
+
+    /**
+     * Start audit on configured schedule.
+     */
+    @Scheduled(cron = "${audit.cron:-}")
+    public void scheduled() {
+        if (auditConfig.isEnabled()) {
+            start();
+        }
+    }
+
+    /**
+     * Start audit, resuming from checkpoint if one exists.
+     *
+     * @return false if audit already running
+     */
+    public synchronized boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+
+        try {
+            Files.createDirectories(checkpointPath().getParent());
+            checkpoint = loadCheckpoint();
+        } catch (IOException e) {
+            running.set(false);
+            throw new IllegalStateException(format("Unable to load audit checkpoint %s", checkpointPath()), e);
+        }
+
+        passed.set(0);
+        failed.set(0);
+        errored.set(0);
+        s3Requests.set(0);
+        started = Instant.now();
+        rateLimiter = new RateLimiter(auditConfig.getRequestsPerSecond());
+        executor = Executors.newFixedThreadPool(auditConfig.getParallelism());
+        long run = ++generation;
+
+        log.info("Starting audit of {} shards begun {}", checkpoint.getShards().size(), checkpoint.getStarted());
+
+        List<String> remaining = checkpoint.getShards()
+            .entrySet()
+            .stream()
+            .filter(entry -> !entry.getValue().isComplete())
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toList());
+
+        AtomicLong outstanding = new AtomicLong(remaining.size());
+
+        remaining.forEach(shard -> executor.submit(() -> {
+            try {
+                auditShard(shard, run);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error(format("Audit of shard %s failed", shard), e);
+            } finally {
+                if (outstanding.decrementAndGet() == 0) {
+                    finish(run);
+                }
+            }
+        }));
+
+        if (remaining.isEmpty()) {
+            finish(run);
+        }
+
+        return true;
+    }
+
+    /**
+     * Stop running audit, leaving checkpoint to resume from.
+     *
+     * @return false if audit not running
+     */
+    public synchronized boolean stop() {
+        if (!running.compareAndSet(true, false)) {
+            return false;
+        }
+
+        executor.shutdownNow();
+
+        return true;
+    }
+
+    /**
+     * Current audit status.
+     *
+     * @return audit status
+     */
+    public synchronized AuditStatus status() {
+        long objects = passed.get() + failed.get() + errored.get();
+        double seconds = started == null
+            ? 0
+            : Duration.between(started, Instant.now()).toMillis() / 1000.0;
+
+        return AuditStatus.builder()
+            .running(running.get())
+            .started(checkpoint == null ? null : checkpoint.getStarted())
+            .passed(passed.get())
+            .failed(failed.get())
+            .errored(errored.get())
+            .s3Requests(s3Requests.get())
+            .objectsPerSecond(seconds > 0 ? objects / seconds : 0)
+            .shards(checkpoint == null ? Map.of() : snapshot())
+            .build();
+    }
+
+    /**
+     * Audit a single object against its own inventory.
+     *
+     * <p>Every file in head state must exist in S3 and, where the inventory carries md5 fixity,
+     * its eTag must match.
+     *
+     * @param id object id
+     * @return verification errors keyed by state path
+     * @throws IOException failed to fetch inventory
+     * @throws InterruptedException interrupted while waiting on request budget
+     */
+    public Map<String, VerificationError> audit(Long id) throws IOException, InterruptedException {
+        acquire();
+        OcflInventory ocflInventory = s3Service.fetchInventory(id);
+
+        Map<String, String> md5 = new HashMap<>();
+        ocflInventory.getFixity()
+            .getOrDefault("md5", Map.of())
+            .forEach((digest, paths) -> paths.forEach(path -> md5.put(path, digest)));
+
+        CompactInventory inventory = CompactInventory.of(ocflInventory);
+
+        Map<String, VerificationError> errors = new TreeMap<>();
+
+        S3WorkScheduler.Batch batch = scheduler.open(Lane.AUDIT);
+        Map<String, Future<Optional<VerificationError>>> pending = new TreeMap<>();
+
+        try {
+            for (String statePath : inventory.getStatePaths()) {
+                Optional<String> manifestPath = inventory.find(statePath);
+
+                if (manifestPath.isEmpty()) {
+                    errors.put(statePath, VerificationError.from("Not found in inventory manifest"));
+                    continue;
+                }
+
+                String key = buildKey(id, manifestPath.get());
+                String expected = md5.get(manifestPath.get());
+
+                acquire();
+
+                pending.put(statePath, batch.submit(() -> check(key, expected)));
+            }
+
+            for (Map.Entry<String, Future<Optional<VerificationError>>> entry : pending.entrySet()) {
+                entry.getValue()
+                    .get()
+                    .ifPresent(error -> errors.put(entry.getKey(), error));
+            }
+        } catch (InterruptedException e) {
+            batch.cancel();
+            throw e;
+        } catch (ExecutionException e) {
+            batch.cancel();
+            if (e.getCause() instanceof S3UnavailableException) {
+                throw (S3UnavailableException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+
+        return errors;
+    }
+
+    private Optional<VerificationError> check(String key, String expected) {
+        try {
+            String actual = s3Service.getHeadObjectEtag(key);
+
+            // multipart eTags are not an md5 of the content
+            if (expected != null && !actual.contains("-") && !expected.equals(actual)) {
+                return Optional.of(VerificationError.builder()
+                    .error("Checksums do not match")
+                    .expected(expected)
+                    .actual(actual)
+                    .build());
+            }
+
+            return Optional.empty();
+        } catch (S3UnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            return Optional.of(VerificationError.from(e.getMessage()));
+        }
+    }
+
+    private void auditShard(String shard, long run) throws InterruptedException, IOException {
+        AuditCheckpoint.Shard progress = checkpoint.getShards().get(shard);
+
+        if (walk(shard, shard, 0, progress, run)) {
+            synchronized (checkpoint) {
+                progress.setComplete(true);
+            }
+            writeCheckpoint();
+        }
+    }
+
+    /**
+     * Walk prefixes one level below prefix, auditing object roots at root depth.
+     *
+     * @return true if every prefix was walked, false if run stopped
+     */
+    private boolean walk(
+        String shard,
+        String prefix,
+        int depth,
+        AuditCheckpoint.Shard progress,
+        long run
+    ) throws InterruptedException, IOException {
+        String startAfter = null;
+
+        String lastKey = progress.getLastKey();
+        if (lastKey != null && lastKey.startsWith(prefix)) {
+            String resume = prefixOf(lastKey, depth + 1);
+            // resume within last prefix walked, or after last object root audited
+            startAfter = depth == ROOT_DEPTH ? after(resume) : resume;
+        }
+
+        while (active(run)) {
+            List<String> prefixes = list(shard, prefix, startAfter);
+
+            if (prefixes.isEmpty()) {
+                return true;
+            }
+
+            for (String next : prefixes) {
+                if (depth == ROOT_DEPTH) {
+                    if (!active(run)) {
+                        return false;
+                    }
+                    auditRoot(shard, next, progress);
+                } else if (!walk(shard, next, depth + 1, progress, run)) {
+                    return false;
+                }
+            }
+
+            startAfter = after(prefixes.get(prefixes.size() - 1));
+        }
+
+        return false;
+    }
+
+    private List<String> list(String shard, String prefix, String startAfter) throws InterruptedException {
+        while (true) {
+            try {
+                acquire();
+                return s3Service.listPrefixes(prefix, startAfter);
+            } catch (S3UnavailableException e) {
+                pause(shard, e);
+            }
+        }
+    }
+
+    private void auditRoot(String shard, String root, AuditCheckpoint.Shard progress)
+        throws InterruptedException, IOException {
+        boolean pass = true;
+        while (isObjectRoot(root)) {
+            try {
+                pass = auditObject(parseId(root));
+                break;
+            } catch (S3UnavailableException e) {
+                pause(shard, e);
+            }
+        }
+
+        synchronized (checkpoint) {
+            progress.setLastKey(root);
+            if (isObjectRoot(root)) {
+                if (pass) {
+                    progress.setPassed(progress.getPassed() + 1);
+                } else {
+                    progress.setFailed(progress.getFailed() + 1);
+                }
+            }
+        }
+
+        writeCheckpoint();
+    }
+
+    private boolean auditObject(Long id) throws InterruptedException, IOException {
+        Map<String, VerificationError> errors;
+
+        try {
+            errors = audit(id);
+        } catch (InterruptedException | S3UnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error(format("Failed to audit object %s", id), e);
+            errored.incrementAndGet();
+            Metrics.counter("verify.audit.objects", "result", "errored").increment();
+            recordFailure(id, Map.of("inventory.json", VerificationError.from(e.getMessage())));
+
+            return false;
+        }
+
+        if (errors.isEmpty()) {
+            passed.incrementAndGet();
+            Metrics.counter("verify.audit.objects", "result", "passed").increment();
+
+            return true;
+        }
+
+        log.warn("Audit of object {} failed with {} errors", id, errors.size());
+        failed.incrementAndGet();
+        Metrics.counter("verify.audit.objects", "result", "failed").increment();
+        recordFailure(id, errors);
+
+        return false;
+    }
+
+    private void pause(String shard, S3UnavailableException e) throws InterruptedException {
+        log.warn("Pausing audit of shard {} for {} seconds: {}", shard, e.getRetryAfter(), e.getMessage());
+        SECONDS.sleep(e.getRetryAfter());
+    }
+
+    private void acquire() throws InterruptedException {
+        rateLimiter.acquire();
+        s3Requests.incrementAndGet();
+        Metrics.counter("verify.audit.s3.requests").increment();
+    }
+
+    private boolean active(long run) {
+        return running.get() && generation == run;
+    }
+
+    private synchronized void finish(long run) {
+        if (run != generation) {
+            // workers of a stopped run outlived it, leave the restarted run be
+            return;
+        }
+
+        if (running.compareAndSet(true, false)) {
+            executor.shutdown();
+        }
+
+        boolean complete = checkpoint.getShards()
+            .values()
+            .stream()
+            .allMatch(AuditCheckpoint.Shard::isComplete);
+
+        if (complete) {
+            log.info("Audit begun {} complete: {} passed, {} failed", checkpoint.getStarted(), passed, failed);
+            try {
+                Files.deleteIfExists(checkpointPath());
+            } catch (IOException e) {
+                log.error(format("Failed to delete audit checkpoint %s", checkpointPath()), e);
+            }
+        }
+    }
+
+    /**
+     * Prefix of the first segments of key, i.e. {@code 4264/5210/} of two segments.
+     */
+    private static String prefixOf(String key, int segments) {
+        int end = -1;
+        for (int i = 0; i < segments; i++) {
+            end = key.indexOf('/', end + 1);
+        }
+
+        return key.substring(0, end + 1);
+    }
+
+    /**
+     * Key to list after to skip every key beneath prefix, i.e. {@code 42640} after {@code 4264/}.
+     */
+    private static String after(String prefix) {
+        return removeEnd(prefix, "/") + (char) ('/' + 1);
+    }
+
+    private AuditCheckpoint loadCheckpoint() throws IOException {
+        Path path = checkpointPath();
+
+        if (Files.exists(path)) {
+            return objectMapper.readValue(path.toFile(), AuditCheckpoint.class);
+        }
+
+        AuditCheckpoint fresh = new AuditCheckpoint();
+        fresh.setStarted(Instant.now().toString());
+        SHARDS.forEach(shard -> fresh.getShards().put(shard, new AuditCheckpoint.Shard()));
+
+        Files.deleteIfExists(failuresPath());
+
+        return fresh;
+    }
+
+    private void writeCheckpoint() throws IOException {
+        Path path = checkpointPath();
+        Path temp = path.resolveSibling(CHECKPOINT + ".tmp");
+
+        synchronized (checkpoint) {
+            objectMapper.writeValue(temp.toFile(), checkpoint);
+            Files.move(temp, path, REPLACE_EXISTING, ATOMIC_MOVE);
+        }
+    }
+
+    private synchronized void recordFailure(Long id, Map<String, VerificationError> errors) throws IOException {
+        String line = objectMapper.writeValueAsString(Map.of("id", id, "errors", errors)) + "\n";
+        Files.write(failuresPath(), line.getBytes(UTF_8), CREATE, APPEND);
+    }
+
+    private Map<String, AuditCheckpoint.Shard> snapshot() {
+        synchronized (checkpoint) {
+            return objectMapper.convertValue(
+                checkpoint,
+                AuditCheckpoint.class
+            ).getShards();
+        }
+    }
+
+    private Path checkpointPath() {
+        return Path.of(auditConfig.getCheckpointDirectory(), CHECKPOINT);
+    }
+
+    private Path failuresPath() {
+        return Path.of(auditConfig.getCheckpointDirectory(), FAILURES);
+    }
+
+}
@@ -0,0 +1,406 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.dto.BatchRequest;
+import edu.harvard.drs.verify.dto.BatchResult;
+import edu.harvard.drs.verify.dto.VerificationError;
+import edu.harvard.drs.verify.exception.OverloadedException;
+import edu.harvard.drs.verify.exception.UnsupportedAlgorithmException;
+import edu.harvard.drs.verify.exception.VerificationException;
+import edu.harvard.drs.verify.utility.Deadline;
+import io.micrometer.core.instrument.Metrics;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+/**
+ * Batch verify service verifying objects read one request per line, without HTTP.
+ *
+ * <p>Requests are read lazily and verified concurrently up to the configured concurrency, while
+ * results are written in input order, each with the offset of its input line. Reading ahead is
+ * bounded, so memory does not grow with the size of the input, and a run can be resumed from the
+ * offset after the last result written.
+ *
+ * <p>Every request, including those of the gRPC API, is admitted like those of the verify API. A
+ * request rejected for lack of capacity is retried once suggested, as batch callers are already
+ * paced by their own concurrency, unless its deadline passes first.
+ */
+@Slf4j
+@Service
+public class BatchVerifyService {
+
+    private final S3TargetRegistry targetRegistry;
+
+    private final S3WorkScheduler scheduler;
+
+    private final LedgerService ledgerService;
+
+    private final ResultStore resultStore;
+
+    private final AdmissionService admissionService;
+
+    private final VerifyConfig verifyConfig;
+
+    private final int concurrency;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Batch verify service constructor with its own admission.
+     *
+     * @param targetRegistry storage target registry
+     * @param scheduler      S3 work scheduler
+     * @param ledgerService  verification ledger
+     * @param resultStore    store of results with too many errors
+     * @param verifyConfig   verify config
+     */
+    public BatchVerifyService(
+        S3TargetRegistry targetRegistry,
+        S3WorkScheduler scheduler,
+        LedgerService ledgerService,
+        ResultStore resultStore,
+        VerifyConfig verifyConfig
+    ) {
+        this(targetRegistry, scheduler, ledgerService, resultStore, new AdmissionService(verifyConfig), verifyConfig);
+    }
+
+    /**
+     * Autowired batch verify service constructor.
+     *
+     * @param targetRegistry   storage target registry
+     * @param scheduler        S3 work scheduler
+     * @param ledgerService    verification ledger
+     * @param resultStore      store of results with too many errors
+     * @param admissionService admission control shared with the verify API
+     * @param verifyConfig     verify config
+     */
+    @Autowired
+    public BatchVerifyService(
+        S3TargetRegistry targetRegistry,
+        S3WorkScheduler scheduler,
+        LedgerService ledgerService,
+        ResultStore resultStore,
+        AdmissionService admissionService,
+        VerifyConfig verifyConfig
+    ) {
+        this.targetRegistry = targetRegistry;
+        this.scheduler = scheduler;
+        this.ledgerService = ledgerService;
+        this.resultStore = resultStore;
+        this.admissionService = admissionService;
+        this.verifyConfig = verifyConfig;
+        this.concurrency = verifyConfig.getBatch().getConcurrency();
+    }
+
+    /**
+     * Offset to resume from, after the last result written to output of an earlier run. Output
+     * after that result, a partial line of a run interrupted while writing, is truncated, so results
+     * appended from the offset start on a line of their own.
+     *
+     * @param output batch output
+     * @return input offset to resume from, zero if no output
+     * @throws IOException failed to read or truncate output
+     */
+    public long resumeOffset(Path output) throws IOException {
+        if (!Files.exists(output)) {
+            return 0;
+        }
+
+        try (FileChannel channel = FileChannel.open(output, READ, WRITE)) {
+            long size = channel.size();
+
+            // scanned back from the end, a line at a time, as only the last lines may be partial
+            long end = size;
+            while (end > 0) {
+                long start = lineStart(channel, end);
+                String line = new String(read(channel, start, end), UTF_8);
+                if (!line.isBlank()) {
+                    try {
+                        BatchResult last = objectMapper.readValue(line, BatchResult.class);
+                        truncate(output, channel, end, size);
+                        if (!line.endsWith("\n")) {
+                            channel.write(ByteBuffer.wrap(new byte[] { '\n' }), end);
+                        }
+
+                        return last.getOffset() + 1;
+                    } catch (JsonProcessingException e) {
+                        log.debug("Skipping malformed result line at {} of {}", start, output);
+                    }
+                }
+                end = start;
+            }
+
+            truncate(output, channel, 0, size);
+
+            return 0;
+        }
+    }
+
+    private static void truncate(Path output, FileChannel channel, long end, long size) throws IOException {
+        if (end < size) {
+            log.warn("Truncating partial results after {} of {} bytes of {}", end, size, output);
+            channel.truncate(end);
+        }
+    }
+
+    /**
+     * Start of the line ending at end, any newline ending it included in the line.
+     */
+    private static long lineStart(FileChannel channel, long end) throws IOException {
+        long position = end - 1;
+        while (position > 0) {
+            long from = Math.max(0, position - 8192);
+            byte[] bytes = read(channel, from, position);
+            for (int i = bytes.length - 1; i >= 0; i--) {
+                if (bytes[i] == '\n') {
+                    return from + i + 1;
+                }
+            }
+            position = from;
+        }
+
+        return 0;
+    }
+
+    private static byte[] read(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        // positional reads may return fewer bytes than remaining
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                break;
+            }
+        }
+
+        return buffer.array();
+    }
+
+    /**
+     * Verify every request of input from offset, writing a result per request.
+     *
+     * @param input  batch input of one JSON request per line
+     * @param output batch output of one JSON result per line
+     * @param offset input lines to skip
+     * @return count of results by status
+     * @throws IOException          failed to read input or write output
+     * @throws InterruptedException interrupted waiting on verification
+     */
+    public Map<BatchResult.Status, Long> run(BufferedReader input, Writer output, long offset)
+        throws IOException, InterruptedException {
+        Map<BatchResult.Status, Long> counts = new EnumMap<>(BatchResult.Status.class);
+
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "batch-verify-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // verifications in flight and completed awaiting their turn to be written in input order
+        Deque<Future<BatchResult>> pipeline = new ArrayDeque<>();
+
+        try {
+            long position = 0;
+            String line;
+            while ((line = input.readLine()) != null) {
+                final long lineOffset = position++;
+                if (lineOffset < offset || line.isBlank()) {
+                    continue;
+                }
+
+                final String request = line;
+                pipeline.addLast(executor.submit(() -> verify(lineOffset, request)));
+
+                if (pipeline.size() >= concurrency * 2) {
+                    write(pipeline.removeFirst(), output, counts);
+                }
+            }
+
+            while (!pipeline.isEmpty()) {
+                write(pipeline.removeFirst(), output, counts);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return counts;
+    }
+
+    private BatchResult verify(long offset, String line) {
+        BatchRequest request;
+        try {
+            request = objectMapper.readValue(line, BatchRequest.class);
+        } catch (JsonProcessingException e) {
+            return BatchResult.builder()
+                .offset(offset)
+                .status(BatchResult.Status.INVALID)
+                .message(e.getOriginalMessage())
+                .build();
+        }
+
+        BatchResult result = verify(request);
+        result.setOffset(offset);
+
+        return result;
+    }
+
+    /**
+     * Verify a single request, mapping its outcome to a result.
+     *
+     * @param request batch verification request
+     * @return result of request, without offset
+     */
+    public BatchResult verify(BatchRequest request) {
+        return verify(request, null);
+    }
+
+    /**
+     * Verify a single request, reporting the result of each file as it is verified, and mapping its
+     * outcome to a result.
+     *
+     * @param request      batch verification request
+     * @param fileListener listener of file results, an error if the file failed
+     * @return result of request, without offset
+     */
+    public BatchResult verify(BatchRequest request, BiConsumer<String, Optional<VerificationError>> fileListener) {
+        long start = System.nanoTime();
+        BatchResult.BatchResultBuilder result = BatchResult.builder()
+            .id(request.getId());
+
+        try {
+            if (request.getId() == null) {
+                return result.status(BatchResult.Status.INVALID)
+                    .message("Missing id")
+                    .build();
+            }
+
+            Deadline deadline;
+            try {
+                deadline = Deadline.parse(request.getTimeout());
+            } catch (IllegalArgumentException e) {
+                return result.status(BatchResult.Status.INVALID)
+                    .message(e.getMessage())
+                    .build();
+            }
+
+            VerifyService verifyService = new VerifyService(
+                targetRegistry, scheduler, ledgerService, resultStore, null, verifyConfig);
+            verifyService.setDeadline(deadline);
+            verifyService.setFileListener(fileListener);
+            try (AdmissionService.Permit permit = admit(request, deadline)) {
+                verifyService.setPermit(permit);
+                if (request.isUpdate()) {
+                    verifyService.verifyUpdate(
+                        request.getId(), request.getInput(), request.getTargets(), request.getAlgorithm());
+                } else {
+                    verifyService.verifyIngest(
+                        request.getId(), request.getInput(), request.getTargets(), request.getAlgorithm());
+                }
+            }
+
+            result.status(BatchResult.Status.PASSED);
+        } catch (VerificationException e) {
+            result.status(BatchResult.Status.FAILED);
+            if (e.getSummary().isPresent()) {
+                result.summary(e.getSummary().get());
+            } else {
+                result.errors(e.getErrors());
+            }
+        } catch (NoSuchKeyException e) {
+            result.status(BatchResult.Status.NOT_FOUND)
+                .message(e.getMessage());
+        } catch (UnsupportedAlgorithmException e) {
+            result.status(BatchResult.Status.INVALID)
+                .message(e.getMessage());
+        } catch (Exception e) {
+            log.error(format("Failed to verify object %d", request.getId()), e);
+            result.status(BatchResult.Status.ERROR)
+                .message(e.getMessage());
+        }
+
+        return result.duration((System.nanoTime() - start) / 1_000_000)
+            .build();
+    }
+
+    /**
+     * Admit request, waiting as suggested while overloaded unless the wait outlasts its deadline.
+     */
+    private AdmissionService.Permit admit(BatchRequest request, Deadline deadline)
+        throws OverloadedException, InterruptedException {
+        long requests = AdmissionService.requests(request.getInput(), request.getTargets(), request.getAlgorithm());
+
+        while (true) {
+            try {
+                return admissionService.admit(requests);
+            } catch (OverloadedException e) {
+                long wait = SECONDS.toNanos(e.getRetryAfter());
+                if (deadline.isSet() && deadline.remainingNanos() < wait) {
+                    throw e;
+                }
+                NANOSECONDS.sleep(wait);
+            }
+        }
+    }
+
+    private void write(Future<BatchResult> pending, Writer output, Map<BatchResult.Status, Long> counts)
+        throws IOException, InterruptedException {
+        BatchResult result;
+        try {
+            result = pending.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+
+        output.write(objectMapper.writeValueAsString(result));
+        output.write('\n');
+        // flushed per result, so output is complete up to the offset a resumed run starts from
+        output.flush();
+
+        counts.merge(result.getStatus(), 1L, Long::sum);
+        Metrics.counter("verify.batch.results", "status", result.getStatus().name()).increment();
+    }
+
+}
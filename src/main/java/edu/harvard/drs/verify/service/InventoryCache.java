@@ -0,0 +1,333 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.apache.commons.lang3.StringUtils.isNumeric;
+
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.dto.OcflInventory;
+import io.micrometer.core.instrument.Metrics;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Disk cache of parsed inventories surviving restarts.
+ *
+ * <p>Inventories are stored as Smile, a compact binary JSON, one file per object named by object
+ * id and the S3 eTag it was fetched at, and read back through a memory mapping. The cache is
+ * bounded by total file size, evicting least recently used, with recency carried across restarts
+ * by file modified time.
+ */
+@Slf4j
+@Service
+public class InventoryCache {
+
+    private static final String EXTENSION = ".smile";
+
+    private final boolean enabled;
+
+    private final Path directory;
+
+    private final long maxSize;
+
+    private final InventoryCodec inventoryCodec;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long size;
+
+    /**
+     * Inventory cache constructor with codec of verify config.
+     *
+     * @param verifyConfig verify config
+     * @throws IOException failed to index cache directory
+     */
+    public InventoryCache(VerifyConfig verifyConfig) throws IOException {
+        this(verifyConfig, new InventoryCodec(verifyConfig));
+    }
+
+    /**
+     * Autowired inventory cache constructor.
+     *
+     * @param verifyConfig   verify config
+     * @param inventoryCodec inventory codec
+     * @throws IOException failed to index cache directory
+     */
+    @Autowired
+    public InventoryCache(VerifyConfig verifyConfig, InventoryCodec inventoryCodec) throws IOException {
+        VerifyConfig.InventoryCache config = verifyConfig.getInventoryCache();
+
+        this.inventoryCodec = inventoryCodec;
+
+        this.enabled = config.isEnabled();
+        this.directory = Path.of(config.getDirectory());
+        this.maxSize = config.getMaxSize().toBytes();
+
+        if (enabled) {
+            load();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * eTag of cached inventory of object in bucket.
+     *
+     * @param bucket S3 bucket
+     * @param id     object id
+     * @return eTag inventory was cached at
+     */
+    public synchronized Optional<String> etag(String bucket, Long id) {
+        Entry entry = entries.get(key(bucket, id));
+
+        return entry == null ? Optional.empty() : Optional.of(entry.etag);
+    }
+
+    /**
+     * Read cached inventory of object in bucket at eTag.
+     *
+     * @param bucket S3 bucket
+     * @param id     object id
+     * @param etag   expected eTag
+     * @return cached inventory, empty if not cached at eTag or unreadable
+     */
+    public Optional<OcflInventory> get(String bucket, Long id, String etag) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key(bucket, id));
+        }
+
+        if (entry == null || !entry.etag.equals(etag)) {
+            Metrics.counter("verify.inventory.cache", "result", "miss").increment();
+
+            return Optional.empty();
+        }
+
+        try (FileChannel channel = FileChannel.open(entry.path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            OcflInventory inventory;
+            try (InputStream is = new ByteBufferBackedInputStream(buffer)) {
+                inventory = inventoryCodec.readSmile(is);
+            }
+            inventory.setEtag(etag);
+
+            touch(entry.path);
+            Metrics.counter("verify.inventory.cache", "result", "hit").increment();
+
+            return Optional.of(inventory);
+        } catch (IOException e) {
+            log.warn(format("Evicting unreadable cached inventory %s", entry.path), e);
+            remove(bucket, id, entry);
+
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Cache inventory of object in bucket at eTag, replacing any other eTag of object.
+     *
+     * @param bucket    S3 bucket
+     * @param id        object id
+     * @param etag      eTag inventory fetched at
+     * @param inventory parsed inventory
+     */
+    public void put(String bucket, Long id, String etag, OcflInventory inventory) {
+        Path path = directory.resolve(bucket).resolve(format("%d.%s%s", id, etag, EXTENSION));
+        Path temp = null;
+
+        try {
+            Files.createDirectories(path.getParent());
+            // unique per write, as requests of the same object may cache its inventory concurrently
+            temp = Files.createTempFile(path.getParent(), path.getFileName() + ".", ".tmp");
+            inventoryCodec.writeSmile(temp, inventory);
+            Files.move(temp, path, REPLACE_EXISTING, ATOMIC_MOVE);
+
+            synchronized (this) {
+                Entry previous = entries.remove(key(bucket, id));
+                if (previous != null) {
+                    size -= previous.size;
+                    if (!previous.path.equals(path)) {
+                        Files.deleteIfExists(previous.path);
+                    }
+                }
+
+                Entry entry = new Entry(path, etag, Files.size(path));
+                entries.put(key(bucket, id), entry);
+                size += entry.size;
+                evict();
+            }
+        } catch (IOException e) {
+            log.warn(format("Failed to cache inventory %s", path), e);
+        } finally {
+            deleteTemp(temp);
+        }
+    }
+
+    private static void deleteTemp(Path temp) {
+        if (temp == null) {
+            return;
+        }
+
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            log.debug("Failed to delete temporary inventory {}", temp, e);
+        }
+    }
+
+    /**
+     * Total size of cached inventories.
+     *
+     * @return size in bytes
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Remove entry of object only if still the one given, as a concurrent put may have replaced it
+     * and deleted its file since it was read.
+     */
+    private synchronized void remove(String bucket, Long id, Entry expected) {
+        if (entries.get(key(bucket, id)) != expected) {
+            return;
+        }
+
+        Entry entry = entries.remove(key(bucket, id));
+
+        if (entry != null) {
+            size -= entry.size;
+            try {
+                Files.deleteIfExists(entry.path);
+            } catch (IOException e) {
+                log.warn(format("Failed to delete cached inventory %s", entry.path), e);
+            }
+        }
+    }
+
+    private void evict() throws IOException {
+        Iterator<Entry> eldest = entries.values().iterator();
+
+        while (size > maxSize && eldest.hasNext()) {
+            Entry entry = eldest.next();
+            eldest.remove();
+            size -= entry.size;
+            Files.deleteIfExists(entry.path);
+        }
+    }
+
+    private synchronized void load() throws IOException {
+        Files.createDirectories(directory);
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory, 2)) {
+            files = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+
+        files.sort(Comparator.comparing(InventoryCache::lastModified));
+
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            int dot = name.indexOf('.');
+
+            if (!name.endsWith(EXTENSION) || !isNumeric(name.substring(0, Math.max(dot, 0)))
+                || file.getParent().equals(directory)) {
+                // interrupted write or stray file
+                Files.deleteIfExists(file);
+                continue;
+            }
+
+            String bucket = file.getParent().getFileName().toString();
+            Long id = Long.valueOf(name.substring(0, dot));
+            String etag = name.substring(dot + 1, name.length() - EXTENSION.length());
+
+            remove(bucket, id, entries.get(key(bucket, id)));
+
+            Entry entry = new Entry(file, etag, Files.size(file));
+            entries.put(key(bucket, id), entry);
+            size += entry.size;
+        }
+
+        evict();
+
+        log.info("Loaded inventory cache {} of {} inventories in {} bytes", directory, entries.size(), size);
+    }
+
+    /**
+     * Carry recency across restarts, ignoring a file replaced since it was read.
+     */
+    private static void touch(Path path) {
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            log.debug("Failed to touch cached inventory {}", path, e);
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static String key(String bucket, Long id) {
+        return bucket + "/" + id;
+    }
+
+    private static final class Entry {
+
+        private final Path path;
+
+        private final String etag;
+
+        private final long size;
+
+        private Entry(Path path, String etag, long size) {
+            this.path = path;
+            this.etag = etag;
+            this.size = size;
+        }
+
+    }
+
+}
@@ -0,0 +1,441 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static java.lang.String.format;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.KeyDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.dto.OcflInventory;
+import edu.harvard.drs.verify.dto.OcflUser;
+import edu.harvard.drs.verify.dto.OcflVersion;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Inventory codec reading inventory.json and the Smile inventory cache with readers built once.
+ *
+ * <p>Property access is generated with the Blackbird module rather than reflected. Optionally
+ * every string and map key of an inventory is deduplicated while parsing, so a path or digest
+ * repeated in the manifest, fixity and the state of each version is retained once.
+ */
+@Service
+public class InventoryCodec {
+
+    private static final String STRINGS = InventoryCodec.class.getName() + ".strings";
+
+    private final ObjectMapper jsonMapper;
+
+    private final ObjectReader jsonReader;
+
+    private final ObjectReader fixityReader;
+
+    private final ObjectReader manifestReader;
+
+    private final ObjectReader versionReader;
+
+    private final ObjectReader userReader;
+
+    private final boolean internStrings;
+
+    private final ObjectReader smileReader;
+
+    private final ObjectWriter smileWriter;
+
+    /**
+     * Inventory codec constructor with default config.
+     */
+    public InventoryCodec() {
+        this(new VerifyConfig());
+    }
+
+    /**
+     * Autowired inventory codec constructor.
+     *
+     * @param verifyConfig verify config
+     */
+    @Autowired
+    public InventoryCodec(VerifyConfig verifyConfig) {
+        VerifyConfig.Codec config = verifyConfig.getCodec();
+
+        this.jsonMapper = mapper(new JsonFactory(), config);
+        this.jsonReader = jsonMapper.readerFor(OcflInventory.class);
+        this.fixityReader = jsonMapper.readerFor(new TypeReference<Map<String, Map<String, List<String>>>>() { });
+        this.manifestReader = jsonMapper.readerFor(new TypeReference<Map<String, List<String>>>() { });
+        this.versionReader = jsonMapper.readerFor(OcflVersion.class);
+        this.userReader = jsonMapper.readerFor(OcflUser.class);
+        this.internStrings = config.isInternStrings();
+
+        ObjectMapper smileMapper = mapper(new SmileFactory(), config);
+        this.smileReader = smileMapper.readerFor(OcflInventory.class);
+        this.smileWriter = smileMapper.writerFor(OcflInventory.class);
+    }
+
+    /**
+     * Parse inventory.json straight off stream, i.e. an S3 response body.
+     *
+     * @param is inventory.json input stream, left open
+     * @return OCFL inventory
+     * @throws IOException failed to read or parse inventory
+     */
+    public OcflInventory readJson(InputStream is) throws IOException {
+        return jsonReader.readValue(is);
+    }
+
+    /**
+     * Parse inventory.json straight off stream, calling back each path of the head state with its
+     * content path as soon as both are read, so work on the head state can start while the rest of
+     * the inventory is still streaming in.
+     *
+     * <p>Inventories listing head and manifest before versions, as OCFL implementations write them,
+     * call back while the head version is parsed, any other inventory once it is parsed.
+     *
+     * @param is        inventory.json input stream, left open
+     * @param headState callback of state path and content path of each head state entry in manifest
+     * @return OCFL inventory
+     * @throws IOException failed to read or parse inventory
+     */
+    public OcflInventory readJson(InputStream is, BiConsumer<String, String> headState) throws IOException {
+        // strings of one inventory shared across fields, as when read as a whole
+        Map<String, String> strings = new HashMap<>();
+        Reads reads = new Reads(strings);
+
+        OcflInventory inventory = new OcflInventory();
+        boolean manifestRead = false;
+        boolean streamed = false;
+
+        try (JsonParser parser = jsonMapper.createParser(is)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT, OcflInventory.class);
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+
+                switch (field) {
+                    case "id":
+                        inventory.setId(parser.getValueAsString());
+                        break;
+                    case "type":
+                        inventory.setType(parser.getValueAsString());
+                        break;
+                    case "digestAlgorithm":
+                        inventory.setDigestAlgorithm(parser.getValueAsString());
+                        break;
+                    case "head":
+                        inventory.setHead(parser.getValueAsString());
+                        break;
+                    case "contentDirectory":
+                        inventory.setContentDirectory(parser.getValueAsString());
+                        break;
+                    case "fixity":
+                        inventory.setFixity(reads.fixity.readValue(parser));
+                        break;
+                    case "manifest":
+                        inventory.setManifest(reads.manifest.readValue(parser));
+                        manifestRead = inventory.getManifest() != null;
+                        break;
+                    case "versions":
+                        streamed = readVersions(parser, inventory, manifestRead, reads, headState);
+                        break;
+                    default:
+                        throw UnrecognizedPropertyException.from(parser, OcflInventory.class, field, null);
+                }
+            }
+        }
+
+        if (!streamed) {
+            callBack(inventory, headState);
+        }
+
+        return inventory;
+    }
+
+    /**
+     * Parse Smile encoded inventory.
+     *
+     * @param is Smile input stream, left open
+     * @return OCFL inventory
+     * @throws IOException failed to read or parse inventory
+     */
+    public OcflInventory readSmile(InputStream is) throws IOException {
+        return smileReader.readValue(is);
+    }
+
+    /**
+     * Write Smile encoded inventory to file.
+     *
+     * @param path      file to write
+     * @param inventory OCFL inventory
+     * @throws IOException failed to write inventory
+     */
+    public void writeSmile(Path path, OcflInventory inventory) throws IOException {
+        smileWriter.writeValue(path.toFile(), inventory);
+    }
+
+    /**
+     * Read versions, streaming the state of the head version if manifest is already read.
+     *
+     * @return true if head state was called back
+     */
+    private boolean readVersions(
+        JsonParser parser,
+        OcflInventory inventory,
+        boolean manifestRead,
+        Reads reads,
+        BiConsumer<String, String> headState
+    ) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            inventory.setVersions(null);
+            return false;
+        }
+        expect(parser, parser.currentToken(), JsonToken.START_OBJECT, Map.class);
+
+        Map<String, OcflVersion> versions = new LinkedHashMap<>();
+        boolean streamed = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+
+            boolean head = manifestRead && name.equals(inventory.getHead());
+            if (head && parser.currentToken() == JsonToken.START_OBJECT) {
+                versions.put(name, readHeadVersion(parser, inventory.getManifest(), reads, headState));
+                streamed = true;
+            } else {
+                versions.put(name, reads.version.readValue(parser));
+            }
+        }
+
+        inventory.setVersions(versions);
+
+        return streamed;
+    }
+
+    /**
+     * Call back each path of head state of a parsed inventory with its content path.
+     *
+     * @param inventory OCFL inventory
+     * @param headState callback of state path and content path of each head state entry in manifest
+     */
+    public static void callBack(OcflInventory inventory, BiConsumer<String, String> headState) {
+        Map<String, OcflVersion> versions = inventory.getVersions();
+        Map<String, List<String>> manifest = inventory.getManifest();
+        if (versions == null || manifest == null || !versions.containsKey(inventory.getHead())) {
+            return;
+        }
+
+        versions.get(inventory.getHead()).getState().forEach((digest, paths) -> {
+            List<String> contentPaths = manifest.get(digest);
+            if (contentPaths != null && !contentPaths.isEmpty()) {
+                paths.forEach(path -> headState.accept(path, contentPaths.get(0)));
+            }
+        });
+    }
+
+    private OcflVersion readHeadVersion(
+        JsonParser parser,
+        Map<String, List<String>> manifest,
+        Reads reads,
+        BiConsumer<String, String> headState
+    ) throws IOException {
+        OcflVersion version = new OcflVersion();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+
+            switch (field) {
+                case "created":
+                    version.setCreated(parser.getValueAsString());
+                    break;
+                case "message":
+                    version.setMessage(parser.getValueAsString());
+                    break;
+                case "user":
+                    version.setUser(reads.user.readValue(parser));
+                    break;
+                case "state":
+                    version.setState(readHeadState(parser, manifest, reads, headState));
+                    break;
+                default:
+                    throw UnrecognizedPropertyException.from(parser, OcflVersion.class, field, null);
+            }
+        }
+
+        return version;
+    }
+
+    private Map<String, List<String>> readHeadState(
+        JsonParser parser,
+        Map<String, List<String>> manifest,
+        Reads reads,
+        BiConsumer<String, String> headState
+    ) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expect(parser, parser.currentToken(), JsonToken.START_OBJECT, Map.class);
+
+        Map<String, List<String>> state = new LinkedHashMap<>();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String digest = reads.intern(parser.getCurrentName());
+            List<String> contentPaths = manifest.get(digest);
+            String contentPath = contentPaths == null || contentPaths.isEmpty() ? null : contentPaths.get(0);
+
+            expect(parser, parser.nextToken(), JsonToken.START_ARRAY, List.class);
+
+            List<String> paths = new ArrayList<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                String path = reads.intern(parser.getValueAsString());
+                paths.add(path);
+                if (contentPath != null) {
+                    headState.accept(path, contentPath);
+                }
+            }
+
+            state.put(digest, paths);
+        }
+
+        return state;
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected, Class<?> type)
+        throws MismatchedInputException {
+        if (actual != expected) {
+            throw MismatchedInputException.from(parser, type, format("Expected %s but was %s", expected, actual));
+        }
+    }
+
+    private static ObjectMapper mapper(JsonFactory factory, VerifyConfig.Codec config) {
+        factory.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+        ObjectMapper mapper = new ObjectMapper(factory);
+
+        if (config.isBlackbird()) {
+            mapper.registerModule(new BlackbirdModule());
+        }
+
+        if (config.isInternStrings()) {
+            mapper.registerModule(new SimpleModule("InventoryStrings")
+                .addDeserializer(String.class, new DedupingStringDeserializer())
+                .addKeyDeserializer(String.class, new DedupingKeyDeserializer()));
+        }
+
+        return mapper;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String dedupe(DeserializationContext ctxt, String value) {
+        // per read, so strings of one inventory are shared without growing a global table
+        Map<String, String> strings = (Map<String, String>) ctxt.getAttribute(STRINGS);
+        if (strings == null) {
+            strings = new HashMap<>();
+            ctxt.setAttribute(STRINGS, strings);
+        }
+
+        String existing = strings.putIfAbsent(value, value);
+
+        return existing == null ? value : existing;
+    }
+
+    /**
+     * Readers of parts of one inventory, sharing its deduplicated strings.
+     */
+    private final class Reads {
+
+        private final Map<String, String> strings;
+
+        private final ObjectReader fixity;
+
+        private final ObjectReader manifest;
+
+        private final ObjectReader version;
+
+        private final ObjectReader user;
+
+        private Reads(Map<String, String> strings) {
+            this.strings = strings;
+            this.fixity = fixityReader.withAttribute(STRINGS, strings);
+            this.manifest = manifestReader.withAttribute(STRINGS, strings);
+            this.version = versionReader.withAttribute(STRINGS, strings);
+            this.user = userReader.withAttribute(STRINGS, strings);
+        }
+
+        private String intern(String value) {
+            if (!internStrings || value == null) {
+                return value;
+            }
+
+            String existing = strings.putIfAbsent(value, value);
+
+            return existing == null ? value : existing;
+        }
+
+    }
+
+    private static final class DedupingStringDeserializer extends StdScalarDeserializer<String> {
+
+        private static final long serialVersionUID = 1L;
+
+        private DedupingStringDeserializer() {
+            super(String.class);
+        }
+
+        @Override
+        public String deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            String value = StringDeserializer.instance.deserialize(p, ctxt);
+
+            return value == null ? null : dedupe(ctxt, value);
+        }
+
+    }
+
+    private static final class DedupingKeyDeserializer extends KeyDeserializer {
+
+        @Override
+        public Object deserializeKey(String key, DeserializationContext ctxt) {
+            return dedupe(ctxt, key);
+        }
+
+    }
+
+}
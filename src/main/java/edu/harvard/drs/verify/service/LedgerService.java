@@ -0,0 +1,302 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.dto.LedgerEntry;
+import io.micrometer.core.instrument.Metrics;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Ledger of verification outcomes, skipping re-verification of unchanged objects.
+ *
+ * <p>Outcomes are appended to a local newline delimited JSON file and indexed in memory by object
+ * id and input hash, last entry winning, so ingest and update verifications of an object, or
+ * verifications of shards of its input, do not displace one another. The file is compacted to one
+ * entry per object and input on startup, dropping entries past the freshness window. Entries
+ * past the window are also evicted from the index when looked up, and periodically swept.
+ */
+@Slf4j
+@Lazy(false)
+@Service
+public class LedgerService {
+
+    private static final String LEDGER = "ledger.ndjson";
+
+    private final boolean enabled;
+
+    private final Duration freshness;
+
+    private final boolean validateEtag;
+
+    private final Path path;
+
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, LedgerEntry> index = new ConcurrentHashMap<>();
+
+    private Writer writer;
+
+    /**
+     * Autowired ledger service constructor.
+     *
+     * @param verifyConfig verify config
+     * @throws IOException failed to load ledger
+     */
+    @Autowired
+    public LedgerService(VerifyConfig verifyConfig) throws IOException {
+        VerifyConfig.Ledger config = verifyConfig.getLedger();
+
+        this.enabled = config.isEnabled();
+        this.freshness = config.getFreshness();
+        this.validateEtag = config.isValidateEtag();
+        this.path = Path.of(config.getDirectory(), LEDGER);
+        this.objectMapper = new ObjectMapper();
+
+        if (enabled) {
+            load();
+        }
+    }
+
+    /**
+     * Hash of verification input, distinguishing ingest from update and targets verified.
+     *
+     * @param update  whether update verification
+     * @param targets storage targets verified
+     * @param input   expected checksum map
+     * @return hex sha-256 of input
+     */
+    public String hash(boolean update, Collection<String> targets, Map<String, String> input) {
+        return hash(update, targets, null, input);
+    }
+
+    /**
+     * Hash of verification input, distinguishing ingest from update, targets verified and digest
+     * algorithm of input.
+     *
+     * @param update    whether update verification
+     * @param targets   storage targets verified
+     * @param algorithm digest algorithm input verified against inventory with, null for eTags
+     * @param input     expected checksum map
+     * @return hex sha-256 of input
+     */
+    public String hash(boolean update, Collection<String> targets, String algorithm, Map<String, String> input) {
+        StringBuilder canonical = new StringBuilder(update ? "update" : "ingest");
+        targets.forEach(target -> canonical.append('\0').append(target));
+        if (algorithm != null) {
+            canonical.append('\0').append("algorithm=").append(algorithm.toLowerCase(Locale.ROOT));
+        }
+        canonical.append('\n');
+
+        new TreeMap<>(input).forEach((path, digest) -> canonical.append(path)
+            .append('\0')
+            .append(digest)
+            .append('\n'));
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.toString().getBytes(UTF_8));
+
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16))
+                    .append(Character.forDigit(b & 0xf, 16));
+            }
+
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Whether object already passed verification of same input within freshness window.
+     *
+     * @param id    object id
+     * @param input hash of input
+     * @param etag  current inventory eTag, requested only when validating eTag
+     * @return true if passed
+     */
+    public boolean passed(Long id, String input, Supplier<String> etag) {
+        if (!enabled) {
+            return false;
+        }
+
+        String key = key(id, input);
+        LedgerEntry entry = index.get(key);
+        if (entry != null && !fresh(entry)) {
+            // unless recorded again since
+            index.remove(key, entry);
+            entry = null;
+        }
+
+        // the eTag is only requested of an entry that would otherwise pass
+        boolean passed = entry != null
+            && entry.isPassed()
+            && (!validateEtag || entry.getEtag().equals(etag.get()));
+
+        Metrics.counter("verify.ledger.lookups", "result", passed ? "hit" : "miss").increment();
+
+        return passed;
+    }
+
+    /**
+     * Record outcome of verification.
+     *
+     * @param id     object id
+     * @param etag   inventory eTag verified against
+     * @param input  hash of input
+     * @param passed whether verification passed
+     */
+    public void record(Long id, String etag, String input, boolean passed) {
+        if (!enabled || etag == null) {
+            return;
+        }
+
+        LedgerEntry entry = LedgerEntry.builder()
+            .id(id)
+            .etag(etag)
+            .input(input)
+            .passed(passed)
+            .timestamp(Instant.now().toString())
+            .build();
+
+        try {
+            String line = objectMapper.writeValueAsString(entry) + "\n";
+            synchronized (this) {
+                writer.write(line);
+                writer.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(format("Failed to append to ledger %s", path), e);
+        }
+
+        index.put(key(id, input), entry);
+    }
+
+    /**
+     * Evict entries past freshness window from index. The ledger file is compacted on startup.
+     */
+    @Scheduled(fixedDelayString = "${verify.ledger.sweep:PT10M}")
+    public void sweep() {
+        index.values().removeIf(entry -> !fresh(entry));
+    }
+
+    /**
+     * Close ledger file.
+     *
+     * @throws IOException failed to close ledger
+     */
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    /**
+     * Number of entries in ledger, one per object and input.
+     *
+     * @return ledger size
+     */
+    public int size() {
+        return index.size();
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(path.getParent());
+
+        long lines = 0;
+
+        if (Files.exists(path)) {
+            try (BufferedReader reader = Files.newBufferedReader(path, UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines++;
+                    try {
+                        LedgerEntry entry = objectMapper.readValue(line, LedgerEntry.class);
+                        if (fresh(entry)) {
+                            index.put(key(entry.getId(), entry.getInput()), entry);
+                        }
+                    } catch (JsonProcessingException e) {
+                        // partial last line of an interrupted append
+                        log.warn("Skipping malformed ledger line {} of {}", lines, path);
+                    }
+                }
+            }
+        }
+
+        if (lines > index.size()) {
+            compact();
+        }
+
+        log.info("Loaded ledger {} of {} entries", path, index.size());
+
+        writer = Files.newBufferedWriter(path, UTF_8, CREATE, APPEND);
+    }
+
+    private static String key(Long id, String input) {
+        return id + ":" + input;
+    }
+
+    private boolean fresh(LedgerEntry entry) {
+        return Instant.parse(entry.getTimestamp()).plus(freshness).isAfter(Instant.now());
+    }
+
+    private void compact() throws IOException {
+        Path temp = path.resolveSibling(LEDGER + ".tmp");
+
+        try (Writer compacted = Files.newBufferedWriter(temp, UTF_8)) {
+            for (LedgerEntry entry : index.values()) {
+                compacted.write(objectMapper.writeValueAsString(entry));
+                compacted.write('\n');
+            }
+        }
+
+        Files.move(temp, path, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+}
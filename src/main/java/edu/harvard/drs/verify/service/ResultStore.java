@@ -0,0 +1,299 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.dto.VerificationError;
+import edu.harvard.drs.verify.dto.VerificationSummary;
+import edu.harvard.drs.verify.exception.ResultNotFoundException;
+import edu.harvard.drs.verify.exception.VerificationException;
+import io.micrometer.core.instrument.Metrics;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Store of full results of verifications failing with more errors than a response carries.
+ *
+ * <p>Errors are collected in memory up to the response limit. Beyond it every error is streamed to
+ * an NDJSON file of one {@code {"path":{"error":...}}} object per line, so only the first errors and
+ * counts by error are retained while the rest are read back in pages or downloaded whole.
+ */
+@Slf4j
+@Lazy(false)
+@Service
+public class ResultStore {
+
+    static final String OTHER = "Other";
+
+    private static final String EXTENSION = ".ndjson";
+
+    private static final int MAX_COUNTS = 64;
+
+    private static final TypeReference<Map<String, VerificationError>> LINE = new TypeReference<>() {};
+
+    private final int maxErrors;
+
+    private final int maxPageSize;
+
+    private final Path directory;
+
+    private final Duration retention;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Autowired result store constructor.
+     *
+     * @param verifyConfig verify config
+     */
+    @Autowired
+    public ResultStore(VerifyConfig verifyConfig) {
+        VerifyConfig.Results config = verifyConfig.getResults();
+
+        this.maxErrors = config.getMaxErrors();
+        this.maxPageSize = config.getMaxPageSize();
+        this.directory = Path.of(config.getDirectory());
+        this.retention = config.getRetention();
+    }
+
+    /**
+     * Open collector of errors of a verification.
+     *
+     * @return error collector, to be closed once verification is done
+     */
+    public Collector collector() {
+        return new Collector();
+    }
+
+    /**
+     * Path of stored result.
+     *
+     * @param resultId result id
+     * @return NDJSON file of result
+     * @throws ResultNotFoundException no such result, or expired
+     */
+    public Path path(String resultId) throws ResultNotFoundException {
+        try {
+            // parsed rather than resolved as given, so an id cannot name a path outside the directory
+            Path path = directory.resolve(UUID.fromString(resultId) + EXTENSION);
+            if (Files.isRegularFile(path)) {
+                return path;
+            }
+        } catch (IllegalArgumentException e) {
+            log.debug("Invalid result id {}", resultId);
+        }
+
+        throw new ResultNotFoundException(resultId);
+    }
+
+    /**
+     * Most errors in a page, however many are asked for.
+     *
+     * @return maximum page size
+     */
+    public int getMaxPageSize() {
+        return maxPageSize;
+    }
+
+    /**
+     * Page of errors of stored result, in the order they were found.
+     *
+     * @param resultId result id
+     * @param offset   errors to skip
+     * @param limit    maximum errors in page, clamped to the maximum page size
+     * @return page of errors by path
+     * @throws IOException             failed to read result
+     * @throws ResultNotFoundException no such result, or expired
+     * @throws IllegalArgumentException negative offset or limit less than one
+     */
+    public Map<String, VerificationError> page(String resultId, long offset, int limit)
+        throws IOException, ResultNotFoundException {
+        if (offset < 0 || limit < 1) {
+            throw new IllegalArgumentException(format("Invalid page of offset %d and limit %d", offset, limit));
+        }
+
+        Map<String, VerificationError> page = new LinkedHashMap<>();
+
+        try (Stream<String> lines = Files.lines(path(resultId), UTF_8)) {
+            for (String line : lines.skip(offset).limit(Math.min(limit, maxPageSize)).collect(Collectors.toList())) {
+                page.putAll(objectMapper.readValue(line, LINE));
+            }
+        }
+
+        return page;
+    }
+
+    /**
+     * Delete stored results older than retention.
+     */
+    @Scheduled(fixedDelayString = "${verify.results.sweep:PT10M}")
+    public void sweep() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        FileTime expired = FileTime.fromMillis(System.currentTimeMillis() - retention.toMillis());
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                if (Files.getLastModifiedTime(file).compareTo(expired) < 0) {
+                    log.debug("Deleting expired verification result {}", file);
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to sweep expired verification results", e);
+        }
+    }
+
+    /**
+     * Collector of errors of a single verification, not thread safe.
+     */
+    public final class Collector implements Closeable {
+
+        private final Map<String, VerificationError> first = new LinkedHashMap<>();
+
+        private final Map<String, Long> counts = new HashMap<>();
+
+        private long total;
+
+        private String resultId;
+
+        private Path path;
+
+        private Writer writer;
+
+        private boolean stored;
+
+        private Collector() { }
+
+        /**
+         * Add error of path.
+         *
+         * @param path  state path, prefixed by target when verifying more than one
+         * @param error verification error
+         * @throws IOException failed to write to stored result
+         */
+        public void add(String path, VerificationError error) throws IOException {
+            total++;
+
+            String type = counts.containsKey(error.getError()) || counts.size() < MAX_COUNTS
+                ? error.getError()
+                : OTHER;
+            counts.merge(type, 1L, Long::sum);
+
+            if (first.size() < maxErrors) {
+                first.put(path, error);
+                return;
+            }
+
+            if (writer == null) {
+                open();
+            }
+
+            write(path, error);
+        }
+
+        public boolean isEmpty() {
+            return total == 0;
+        }
+
+        /**
+         * Verification exception of collected errors, in full or as a summary of a stored result.
+         *
+         * @return verification exception
+         * @throws IOException failed to complete stored result
+         */
+        public VerificationException failure() throws IOException {
+            if (writer == null) {
+                return new VerificationException(first);
+            }
+
+            writer.close();
+            writer = null;
+            stored = true;
+
+            Metrics.counter("verify.results.stored").increment();
+            log.info("Stored {} verification errors as result {}", total, resultId);
+
+            return new VerificationException(VerificationSummary.builder()
+                .total(total)
+                .counts(counts)
+                .errors(first)
+                .resultId(resultId)
+                .build());
+        }
+
+        /**
+         * Close collector, deleting stored result unless completed.
+         */
+        @Override
+        public void close() {
+            try {
+                if (writer != null) {
+                    writer.close();
+                }
+                if (path != null && !stored) {
+                    Files.deleteIfExists(path);
+                }
+            } catch (IOException e) {
+                log.warn("Failed to discard incomplete verification result {}", resultId, e);
+            }
+        }
+
+        private void open() throws IOException {
+            Files.createDirectories(directory);
+
+            resultId = UUID.randomUUID().toString();
+            path = directory.resolve(resultId + EXTENSION);
+            writer = Files.newBufferedWriter(path, UTF_8);
+
+            // the response carries the first errors, the stored result all of them
+            for (Map.Entry<String, VerificationError> entry : first.entrySet()) {
+                write(entry.getKey(), entry.getValue());
+            }
+        }
+
+        private void write(String path, VerificationError error) throws IOException {
+            writer.write(objectMapper.writeValueAsString(Map.of(path, error)));
+            writer.write('\n');
+        }
+
+    }
+
+}
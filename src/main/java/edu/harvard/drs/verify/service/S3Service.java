@@ -16,33 +16,93 @@
 
 package edu.harvard.drs.verify.service;
 
+import static edu.harvard.drs.verify.utility.KeyUtility.INVENTORY;
 import static edu.harvard.drs.verify.utility.KeyUtility.buildKey;
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.apache.commons.lang3.StringUtils.removeEnd;
 import static org.apache.commons.lang3.StringUtils.removeStart;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.harvard.drs.verify.config.AwsConfig;
 import edu.harvard.drs.verify.dto.OcflInventory;
+import edu.harvard.drs.verify.dto.VerificationError;
+import edu.harvard.drs.verify.dto.VerificationStats;
+import edu.harvard.drs.verify.event.S3RequestEvent;
+import edu.harvard.drs.verify.exception.InvalidInventoryException;
+import edu.harvard.drs.verify.exception.S3UnavailableException;
+import edu.harvard.drs.verify.utility.CircuitBreaker;
+import edu.harvard.drs.verify.utility.HedgePolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
 import java.net.URI;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
 import software.amazon.awssdk.core.exception.SdkClientException;
-import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.SdkHttpConfigurationOption;
+import software.amazon.awssdk.http.SdkHttpService;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
 import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
 import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 import software.amazon.awssdk.services.s3.model.InvalidObjectStateException;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
 import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.utils.AttributeMap;
 
 /**
  * S3 service.
@@ -51,27 +111,86 @@ import software.amazon.awssdk.services.s3.model.S3Exception;
 @Service
 public class S3Service {
 
+    private static final String SHA512 = "sha512";
+
+    // digest algorithms an OCFL inventory may declare, and so name its sidecar by
+    private static final List<String> INVENTORY_ALGORITHMS = List.of(SHA512, "sha256");
+
     private final String bucket;
 
     private final S3Client s3Client;
 
-    private final ObjectMapper objectMapper;
+    private final InventoryCodec inventoryCodec;
+
+    private final HedgePolicy hedgePolicy;
+
+    private final ExecutorService hedgeExecutor;
+
+    private final ScheduledThreadPoolExecutor hedgeTimer;
+
+    private final ExecutorService sidecarExecutor;
+
+    private final Counter headRequests = Metrics.counter("verify.s3.head.requests");
+
+    private final Counter hedgeRequests = Metrics.counter("verify.s3.hedge.requests");
+
+    private final Counter hedgeWins = Metrics.counter("verify.s3.hedge.wins");
+
+    private final InventoryCache inventoryCache;
+
+    private final SharedCache sharedCache;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final Semaphore bulkhead;
+
+    private final long bulkheadMaxWaitNanos;
 
     /**
-     * Autowired S3 service constructor.
+     * S3 service constructor without inventory cache.
      *
      * @param awsConfig AWS config
      */
-    @Autowired
     public S3Service(AwsConfig awsConfig) {
+        this(awsConfig, null, null, new InventoryCodec());
+    }
+
+    /**
+     * Autowired S3 service constructor.
+     *
+     * @param awsConfig      AWS config
+     * @param inventoryCache disk cache of parsed inventories, null for none
+     * @param sharedCache    cache of inventories and eTags shared by replicas, null for none
+     * @param inventoryCodec inventory codec
+     */
+    @Autowired
+    public S3Service(
+        AwsConfig awsConfig,
+        InventoryCache inventoryCache,
+        SharedCache sharedCache,
+        InventoryCodec inventoryCodec
+    ) {
         AwsBasicCredentials credentials = AwsBasicCredentials.create(
             awsConfig.getAccessKeyId(),
             awsConfig.getSecretAccessKey()
         );
 
+        // client of its own per target, sized by target, with whichever implementation is on the classpath
+        SdkHttpClient httpClient = ServiceLoader.load(SdkHttpService.class)
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("No sync HTTP client implementation found"))
+            .createHttpClientBuilder()
+            .buildWithDefaults(AttributeMap.builder()
+                .put(SdkHttpConfigurationOption.MAX_CONNECTIONS, awsConfig.getMaxConnections())
+                .build());
+
         S3ClientBuilder builder = S3Client.builder()
             .region(awsConfig.getRegion())
-            .credentialsProvider(StaticCredentialsProvider.create(credentials));
+            .credentialsProvider(StaticCredentialsProvider.create(credentials))
+            .httpClient(httpClient)
+            .overrideConfiguration(ClientOverrideConfiguration.builder()
+                .apiCallAttemptTimeout(awsConfig.getApiCallAttemptTimeout())
+                .build());
 
         if (StringUtils.isNotEmpty(awsConfig.getEndpointOverride())) {
             log.info("AWS endpoint override: {}", awsConfig.getEndpointOverride());
@@ -80,7 +199,61 @@ public class S3Service {
 
         this.bucket = awsConfig.getBucketName();
         this.s3Client = builder.build();
-        this.objectMapper = new ObjectMapper();
+        this.inventoryCodec = inventoryCodec;
+        this.inventoryCache = inventoryCache != null && inventoryCache.isEnabled() ? inventoryCache : null;
+        this.sharedCache = sharedCache != null && sharedCache.isEnabled() ? sharedCache : null;
+
+        AwsConfig.Breaker breaker = awsConfig.getBreaker();
+        this.circuitBreaker = breaker.isEnabled()
+            ? new CircuitBreaker(
+                breaker.getWindow(),
+                breaker.getMinimumCalls(),
+                breaker.getFailureRateThreshold(),
+                breaker.getOpenDuration().toNanos()
+            )
+            : null;
+        this.bulkhead = new Semaphore(awsConfig.getBulkhead().getMaxConcurrentCalls());
+        this.bulkheadMaxWaitNanos = awsConfig.getBulkhead().getMaxWait().toNanos();
+
+        AwsConfig.Hedge hedge = awsConfig.getHedge();
+        if (hedge.isEnabled()) {
+            log.info("Hedging S3 head requests after p{} latency", hedge.getPercentile() * 100);
+            this.hedgePolicy = new HedgePolicy(
+                hedge.getWindow(),
+                hedge.getPercentile(),
+                hedge.getMinDelay().toNanos(),
+                hedge.getBudget()
+            );
+            // both attempts of up to every call the bulkhead admits, and the hedges still outstanding
+            int attempts = awsConfig.getBulkhead().getMaxConcurrentCalls() + hedge.getMaxConcurrent();
+            ThreadPoolExecutor hedgeExecutor = new ThreadPoolExecutor(
+                attempts, attempts, 60, SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "s3-hedge");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            hedgeExecutor.allowCoreThreadTimeOut(true);
+            this.hedgeExecutor = hedgeExecutor;
+            this.hedgeTimer = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "s3-hedge-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // hedges of attempts completing in time are dropped rather than queued until their delay
+            this.hedgeTimer.setRemoveOnCancelPolicy(true);
+        } else {
+            this.hedgePolicy = null;
+            this.hedgeExecutor = null;
+            this.hedgeTimer = null;
+        }
+
+        this.sidecarExecutor = awsConfig.getSidecar().isEnabled()
+            ? Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "s3-sidecar");
+                thread.setDaemon(true);
+                return thread;
+            })
+            : null;
     }
 
     /**
@@ -97,34 +270,656 @@ public class S3Service {
      */
     public OcflInventory fetchInventory(Long id) throws NoSuchKeyException, InvalidObjectStateException,
         AwsServiceException, SdkClientException, S3Exception, IOException {
+        return fetchInventory(id, new VerificationStats());
+    }
 
-        String key = buildKey(id, "inventory.json");
+    /**
+     * Fetch OCFL inventoy.json from S3 and serialize, recording download and parse time.
+     *
+     * <p>With the inventory cache enabled, a cached inventory is revalidated with a conditional
+     * request and read from disk when not modified. Failing that, an inventory shared by another
+     * replica is revalidated likewise when the shared cache is enabled.
+     *
+     * @param id    DRS id
+     * @param stats verification stats to record to
+     * @return serialize OCFL inventory
+     * @throws NoSuchKeyException the specified key does not exist
+     * @throws InvalidObjectStateException object is archived and inaccessible until restored
+     * @throws AwsServiceException something went wrong with S3 request
+     * @throws SdkClientException something went wrong with S3 request
+     * @throws S3Exception something went wrong with S3 request
+     * @throws IOException something went wrong serializing OCFL inventory
+     */
+    public OcflInventory fetchInventory(Long id, VerificationStats stats) throws NoSuchKeyException,
+        InvalidObjectStateException, AwsServiceException, SdkClientException, S3Exception, IOException {
+        return fetchInventory(id, stats, null);
+    }
+
+    /**
+     * Fetch OCFL inventoy.json from S3 and serialize, recording download and parse time.
+     *
+     * <p>With the inventory cache enabled, a cached inventory is revalidated with a conditional
+     * request and read from disk when not modified. Failing that, an inventory shared by another
+     * replica is revalidated likewise when the shared cache is enabled.
+     *
+     * <p>With a head state callback, each path of the head state is called back with its content
+     * path while a downloaded inventory is still being parsed, or once a cached inventory is read.
+     *
+     * @param id        DRS id
+     * @param stats     verification stats to record to
+     * @param headState callback of state path and content path of each head state entry, null for none
+     * @return serialize OCFL inventory
+     * @throws NoSuchKeyException the specified key does not exist
+     * @throws InvalidObjectStateException object is archived and inaccessible until restored
+     * @throws AwsServiceException something went wrong with S3 request
+     * @throws SdkClientException something went wrong with S3 request
+     * @throws S3Exception something went wrong with S3 request
+     * @throws IOException something went wrong serializing OCFL inventory
+     */
+    public OcflInventory fetchInventory(Long id, VerificationStats stats, BiConsumer<String, String> headState)
+        throws NoSuchKeyException, InvalidObjectStateException, AwsServiceException, SdkClientException,
+        S3Exception, IOException {
+
+        Optional<String> cachedEtag = inventoryCache == null
+            ? Optional.empty()
+            : inventoryCache.etag(bucket, id);
+
+        if (cachedEtag.isEmpty() && sharedCache != null) {
+            cachedEtag = sharedCache.inventoryEtag(bucket, id);
+        }
+
+        if (cachedEtag.isPresent()) {
+            Optional<OcflInventory> cached = fetchCachedInventory(id, cachedEtag.get(), stats, headState);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
 
         GetObjectRequest request = GetObjectRequest.builder()
             .bucket(bucket)
-            .key(key)
+            .key(buildKey(id, INVENTORY))
             .build();
 
-        try (InputStream is = this.s3Client.getObject(request, ResponseTransformer.toInputStream())) {
-            return this.objectMapper.readValue(is, OcflInventory.class);
-        }
+        return download(id, request, stats, headState, true);
     }
 
     /**
      * Request head object eTag from S3 for given key.
      *
+     * <p>When hedging is enabled a duplicate request is sent if the first is still outstanding
+     * after the tracked latency percentile, and the first successful response wins.
+     *
      * @param key S3 object key
      * @return S3 head object eTag
+     * @throws S3UnavailableException circuit breaker open or bulkhead full
      */
     public String getHeadObjectEtag(String key) {
-        HeadObjectRequest request = HeadObjectRequest.builder()
+        return getHeadObjectEtag(key, null);
+    }
+
+    /**
+     * Request head object eTag from S3 for given key within an API call timeout, overriding that of
+     * the client, i.e. the time remaining until the deadline of the verification.
+     *
+     * <p>Running out of a timeout so set aborts the request without counting towards the circuit
+     * breaker, since the caller gave up rather than S3 failing.
+     *
+     * @param key            S3 object key
+     * @param apiCallTimeout API call timeout, null for that of the client
+     * @return S3 head object eTag
+     * @throws S3UnavailableException circuit breaker open or bulkhead full
+     */
+    public String getHeadObjectEtag(String key, Duration apiCallTimeout) {
+        headRequests.increment();
+
+        String etag = guard(() -> {
+            try {
+                return hedgedHeadObjectEtag(key, apiCallTimeout);
+            } catch (ApiCallTimeoutException e) {
+                if (apiCallTimeout == null) {
+                    throw e;
+                }
+                throw AbortedException.create("Deadline exceeded requesting head object " + key, e);
+            }
+        });
+
+        if (sharedCache != null) {
+            sharedCache.putEtag(bucket, key, etag);
+        }
+
+        return etag;
+    }
+
+    /**
+     * eTag of key requested within time to live of the shared cache, by this or another replica.
+     *
+     * @param key S3 object key
+     * @return eTag, empty if not cached or shared cache disabled
+     */
+    public Optional<String> getCachedEtag(String key) {
+        return sharedCache == null ? Optional.empty() : sharedCache.etag(bucket, key);
+    }
+
+    /**
+     * State of circuit breaker around requests to bucket.
+     *
+     * @return circuit breaker state
+     */
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker == null ? CircuitBreaker.State.CLOSED : circuitBreaker.getState();
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    /**
+     * Probe bucket with a head bucket request, bypassing circuit breaker and bulkhead.
+     *
+     * @return latency in nanoseconds
+     */
+    public long probe() {
+        long start = System.nanoTime();
+
+        HeadBucketRequest request = HeadBucketRequest.builder()
             .bucket(bucket)
-            .key(key)
             .build();
 
-        HeadObjectResponse response = this.s3Client.headObject(request);
+        traced("HeadBucket", null, () -> this.s3Client.headBucket(request), response -> response);
+
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Head object eTag requested on the bounded hedge executor, hedged with a duplicate when still
+     * outstanding after the hedge delay. The caller returns with the first eTag of either attempt,
+     * or once both have failed, cancelling the other, so a slow attempt blocked uninterruptibly on
+     * its socket no longer holds the caller. Before enough latency is recorded to hedge, the request
+     * is sent on the calling thread.
+     */
+    private String hedgedHeadObjectEtag(String key, Duration apiCallTimeout) {
+        if (hedgePolicy == null) {
+            return requestHeadObjectEtag(key, apiCallTimeout);
+        }
+
+        hedgePolicy.request();
+        long delay = hedgePolicy.delayNanos();
+        if (delay < 0) {
+            return timedHeadObjectEtag(key, apiCallTimeout);
+        }
+
+        CompletableFuture<String> result = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Future<?>> attempts = new CopyOnWriteArrayList<>();
+
+        attempts.add(hedgeExecutor.submit(() -> attempt(key, apiCallTimeout, result, outstanding, failure, false)));
+
+        ScheduledFuture<?> timer = hedgeTimer.schedule(() -> {
+            if (!result.isDone() && hedgePolicy.tryHedge()) {
+                outstanding.incrementAndGet();
+                hedgeRequests.increment();
+                attempts.add(hedgeExecutor.submit(
+                    () -> attempt(key, apiCallTimeout, result, outstanding, failure, true)));
+            }
+        }, delay, NANOSECONDS);
+
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException
+                ? (RuntimeException) e.getCause()
+                : SdkClientException.create(e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw AbortedException.create("Interrupted waiting for head object " + key, e);
+        } finally {
+            timer.cancel(false);
+            attempts.forEach(attempt -> attempt.cancel(true));
+        }
+    }
+
+    /**
+     * Single attempt of a hedged request, completing result with its eTag unless another attempt
+     * already did, or with the first failure once every attempt has failed.
+     */
+    private void attempt(
+        String key,
+        Duration apiCallTimeout,
+        CompletableFuture<String> result,
+        AtomicInteger outstanding,
+        AtomicReference<Throwable> failure,
+        boolean hedge
+    ) {
+        try {
+            String etag = timedHeadObjectEtag(key, apiCallTimeout);
+            if (result.complete(etag) && hedge) {
+                hedgeWins.increment();
+            }
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+            if (outstanding.decrementAndGet() == 0) {
+                result.completeExceptionally(failure.get());
+            }
+        }
+    }
+
+    /**
+     * Send a single head object request to S3 for given key.
+     *
+     * @param key S3 object key
+     * @return S3 head object eTag
+     */
+    protected String requestHeadObjectEtag(String key) {
+        return headObjectEtag(key, null);
+    }
+
+    /**
+     * Send a single head object request to S3 for given key within API call timeout.
+     *
+     * @param key            S3 object key
+     * @param apiCallTimeout API call timeout, null for that of the client
+     * @return S3 head object eTag
+     */
+    protected String requestHeadObjectEtag(String key, Duration apiCallTimeout) {
+        return apiCallTimeout == null ? requestHeadObjectEtag(key) : headObjectEtag(key, apiCallTimeout);
+    }
+
+    private String headObjectEtag(String key, Duration apiCallTimeout) {
+        HeadObjectRequest.Builder request = HeadObjectRequest.builder()
+            .bucket(bucket)
+            .key(key);
+        if (apiCallTimeout != null) {
+            request.overrideConfiguration(override -> override.apiCallTimeout(apiCallTimeout));
+        }
+
+        HeadObjectResponse response = traced("HeadObject", key, () -> this.s3Client.headObject(request.build()),
+            head -> head);
 
         return removeEnd(removeStart(response.eTag(), "\""), "\"");
     }
 
+    /**
+     * List a single page of common prefixes one level below prefix in key order.
+     *
+     * <p>Delimited by {@code /} so only the next level of the key tree is listed rather than every key
+     * beneath it, i.e. {@code 4264/} of {@code 4} and {@code 4264/5210/1254624/} of {@code 4264/5210/}.
+     *
+     * @param prefix     key prefix
+     * @param startAfter key to list after, null to list from beginning of prefix
+     * @return page of prefixes, empty when listing is exhausted
+     */
+    public List<String> listPrefixes(String prefix, String startAfter) {
+        ListObjectsV2Request request = ListObjectsV2Request.builder()
+            .bucket(bucket)
+            .prefix(prefix)
+            .delimiter("/")
+            .startAfter(startAfter)
+            .build();
+
+        ListObjectsV2Response response = guard(() -> traced("ListObjectsV2", prefix,
+            () -> this.s3Client.listObjectsV2(request), list -> list));
+
+        return response.commonPrefixes()
+            .stream()
+            .map(CommonPrefix::prefix)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Download, parse and cache inventory, validated against its sidecar when enabled.
+     *
+     * <p>The sidecar of the usual algorithm is prefetched while the inventory streams in, unless the
+     * request is conditional and likely not to download anything.
+     */
+    private OcflInventory download(
+        Long id,
+        GetObjectRequest request,
+        VerificationStats stats,
+        BiConsumer<String, String> headState,
+        boolean prefetch
+    ) throws IOException {
+        if (sidecarExecutor == null) {
+            OcflInventory inventory = guard(() -> getInventory(id, request, stats, headState, Map.of()));
+            cache(id, inventory);
+
+            return inventory;
+        }
+
+        Future<Optional<String>> prefetched = prefetch
+            ? sidecarExecutor.submit(() -> fetchSidecarDigest(id, SHA512, stats))
+            : null;
+
+        try {
+            // digested by every algorithm an inventory may declare, in the same pass as parsing
+            Map<String, MessageDigest> digests = new LinkedHashMap<>();
+            for (String algorithm : INVENTORY_ALGORITHMS) {
+                digests.put(algorithm, messageDigest(algorithm));
+            }
+
+            OcflInventory inventory = guard(() -> getInventory(id, request, stats, headState, digests));
+            validate(id, inventory.getDigestAlgorithm(), digests, prefetched, stats);
+            cache(id, inventory);
+
+            return inventory;
+        } finally {
+            if (prefetched != null) {
+                prefetched.cancel(true);
+            }
+        }
+    }
+
+    private OcflInventory getInventory(
+        Long id,
+        GetObjectRequest request,
+        VerificationStats stats,
+        BiConsumer<String, String> headState,
+        Map<String, MessageDigest> digests
+    ) throws IOException {
+        long start = System.nanoTime();
+
+        try (ResponseInputStream<GetObjectResponse> is = requestInventory(request)) {
+            long firstByte = System.nanoTime();
+            stats.recordInventory(firstByte - start);
+
+            InputStream content = is;
+            for (MessageDigest digest : digests.values()) {
+                content = new DigestInputStream(content, digest);
+            }
+
+            OcflInventory inventory = headState == null
+                ? this.inventoryCodec.readJson(content)
+                : this.inventoryCodec.readJson(content, headState);
+            inventory.setEtag(removeEnd(removeStart(is.response().eTag(), "\""), "\""));
+
+            if (!digests.isEmpty()) {
+                // parsing stops at the end of the root object, whitespace after it is digested too
+                content.transferTo(OutputStream.nullOutputStream());
+            }
+
+            long end = System.nanoTime();
+            stats.recordParse(end - firstByte);
+            stats.recordS3Request(request.key(), end - start);
+
+            return inventory;
+        }
+    }
+
+    private void cache(Long id, OcflInventory inventory) throws IOException {
+        if (inventoryCache != null) {
+            inventoryCache.put(bucket, id, inventory.getEtag(), inventory);
+        }
+        if (sharedCache != null) {
+            sharedCache.putInventory(bucket, id, inventory.getEtag(), inventory);
+        }
+    }
+
+    /**
+     * Send a single get object request to S3 for inventory.
+     *
+     * @param request get object request of inventory.json, possibly conditional
+     * @return response input stream of inventory
+     */
+    protected ResponseInputStream<GetObjectResponse> requestInventory(GetObjectRequest request) {
+        return traced("GetObject", request.key(), () -> this.s3Client.getObject(request),
+            ResponseInputStream::response);
+    }
+
+    /**
+     * Send a single get object request to S3 for inventory sidecar.
+     *
+     * @param key S3 key of inventory sidecar
+     * @return sidecar content, digest and inventory file name
+     */
+    protected String requestSidecar(String key) {
+        GetObjectRequest request = GetObjectRequest.builder()
+            .bucket(bucket)
+            .key(key)
+            .build();
+
+        return traced("GetObject", key, () -> this.s3Client.getObjectAsBytes(request), ResponseBytes::response)
+            .asUtf8String();
+    }
+
+    /**
+     * Digest of sidecar of given algorithm, guarded like any other request.
+     */
+    private Optional<String> fetchSidecarDigest(Long id, String algorithm, VerificationStats stats) {
+        String key = buildKey(id, INVENTORY + "." + algorithm);
+        long start = System.nanoTime();
+
+        try {
+            return guard(() -> {
+                try {
+                    // digest, whitespace and file name of inventory
+                    return Optional.of(requestSidecar(key).strip().split("\\s+")[0]);
+                } catch (NoSuchKeyException e) {
+                    return Optional.empty();
+                }
+            });
+        } finally {
+            stats.recordS3Request(key, System.nanoTime() - start);
+        }
+    }
+
+    private void validate(
+        Long id,
+        String algorithm,
+        Map<String, MessageDigest> digests,
+        Future<Optional<String>> prefetched,
+        VerificationStats stats
+    ) throws IOException {
+        String declared = algorithm == null ? null : algorithm.toLowerCase(Locale.ROOT);
+        MessageDigest digest = declared == null ? null : digests.get(declared);
+        if (digest == null) {
+            Metrics.counter("verify.inventory.sidecar", "result", "unsupported").increment();
+            log.warn("Inventory of object {} not validated, unsupported digest algorithm {}", id, algorithm);
+            return;
+        }
+
+        Optional<String> expected = declared.equals(SHA512) && prefetched != null
+            ? await(id, prefetched)
+            : fetchSidecarDigest(id, declared, stats);
+
+        if (expected.isEmpty()) {
+            Metrics.counter("verify.inventory.sidecar", "result", "missing").increment();
+            log.warn("Inventory of object {} not validated, no {} sidecar", id, algorithm);
+            return;
+        }
+
+        String actual = hex(digest.digest());
+        if (!expected.get().equalsIgnoreCase(actual)) {
+            Metrics.counter("verify.inventory.sidecar", "result", "invalid").increment();
+            log.error("Inventory of object {} {} digest {} but sidecar {}", id, algorithm, actual, expected.get());
+            throw new InvalidInventoryException(
+                format("Inventory of object %s does not match %s digest of its sidecar", id, algorithm),
+                VerificationError.builder()
+                    .error(format("Does not match %s digest of its sidecar", algorithm))
+                    .expected(expected.get().toLowerCase(Locale.ROOT))
+                    .actual(actual)
+                    .build()
+            );
+        }
+
+        Metrics.counter("verify.inventory.sidecar", "result", "valid").increment();
+    }
+
+    private static Optional<String> await(Long id, Future<Optional<String>> prefetched) throws IOException {
+        try {
+            return prefetched.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(format("Interrupted waiting for sidecar of object %s", id));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private Optional<OcflInventory> fetchCachedInventory(
+        Long id,
+        String etag,
+        VerificationStats stats,
+        BiConsumer<String, String> headState
+    ) throws IOException {
+        GetObjectRequest request = GetObjectRequest.builder()
+            .bucket(bucket)
+            .key(buildKey(id, INVENTORY))
+            .ifNoneMatch("\"" + etag + "\"")
+            .build();
+
+        long start = System.nanoTime();
+
+        try {
+            return Optional.of(download(id, request, stats, headState, false));
+        } catch (S3Exception e) {
+            if (e.statusCode() != HttpStatus.NOT_MODIFIED.value()) {
+                throw e;
+            }
+
+            long notModified = System.nanoTime();
+            stats.recordInventory(notModified - start);
+            stats.recordS3Request(request.key(), notModified - start);
+
+            Optional<OcflInventory> cached = cachedInventory(id, etag);
+            stats.recordParse(System.nanoTime() - notModified);
+
+            if (headState != null) {
+                cached.ifPresent(inventory -> InventoryCodec.callBack(inventory, headState));
+            }
+
+            return cached;
+        }
+    }
+
+    private Optional<OcflInventory> cachedInventory(Long id, String etag) {
+        Optional<OcflInventory> cached = inventoryCache == null
+            ? Optional.empty()
+            : inventoryCache.get(bucket, id, etag);
+
+        if (cached.isEmpty() && sharedCache != null) {
+            cached = sharedCache.getInventory(bucket, id, etag);
+            if (cached.isPresent() && inventoryCache != null) {
+                inventoryCache.put(bucket, id, etag, cached.get());
+            }
+        }
+
+        return cached;
+    }
+
+    private <T, E extends Exception> T guard(S3Call<T, E> call) throws E {
+        try {
+            if (!bulkhead.tryAcquire(bulkheadMaxWaitNanos, NANOSECONDS)) {
+                Metrics.counter("verify.s3.rejected", "reason", "bulkhead").increment();
+                throw new S3UnavailableException(format("S3 bulkhead of bucket %s full", bucket), 1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw AbortedException.create("Interrupted waiting for S3 bulkhead", e);
+        }
+
+        try {
+            long permit = circuitBreaker == null ? 0 : circuitBreaker.acquire();
+            if (permit < 0) {
+                Metrics.counter("verify.s3.rejected", "reason", "circuit").increment();
+                long retryAfter = Math.max(1, NANOSECONDS.toSeconds(circuitBreaker.remainingOpenNanos() + 999_999_999));
+                throw new S3UnavailableException(format("S3 circuit breaker of bucket %s open", bucket), retryAfter);
+            }
+
+            boolean failure = false;
+            try {
+                return call.call();
+            } catch (SdkException e) {
+                failure = isFailure(e);
+                throw e;
+            } catch (Exception e) {
+                // failed reading content is, malformed or invalid content is not an S3 failure
+                failure = e instanceof IOException && !(e instanceof JsonProcessingException);
+                throw e;
+            } finally {
+                if (circuitBreaker != null) {
+                    if (failure) {
+                        circuitBreaker.onFailure(permit);
+                    } else {
+                        circuitBreaker.onSuccess(permit);
+                    }
+                }
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Record S3 request as flight recorder event of its operation, key, status and latency.
+     */
+    private <T> T traced(String operation, String key, Supplier<T> call, Function<T, SdkResponse> response) {
+        S3RequestEvent event = new S3RequestEvent(bucket, operation, key);
+        event.begin();
+
+        try {
+            T result = call.get();
+            event.complete(response.apply(result).sdkHttpResponse().statusCode(), null);
+
+            return result;
+        } catch (SdkServiceException e) {
+            event.complete(e.statusCode(), e);
+            throw e;
+        } catch (RuntimeException e) {
+            event.complete(0, e);
+            throw e;
+        }
+    }
+
+    private static boolean isFailure(SdkException e) {
+        if (e instanceof AbortedException) {
+            return false;
+        }
+
+        if (e instanceof SdkServiceException) {
+            SdkServiceException serviceException = (SdkServiceException) e;
+
+            return serviceException.statusCode() >= 500 || serviceException.isThrottlingException();
+        }
+
+        return e instanceof SdkClientException;
+    }
+
+    /**
+     * Message digest of OCFL digest algorithm, i.e. sha512 as SHA-512.
+     */
+    private static MessageDigest messageDigest(String algorithm) {
+        String name = algorithm.toLowerCase(Locale.ROOT).matches("sha\\d.*")
+            ? "SHA-" + algorithm.substring(3)
+            : algorithm;
+
+        try {
+            return MessageDigest.getInstance(name);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(format("Unsupported sidecar digest algorithm %s", algorithm), e);
+        }
+    }
+
+    private static String hex(byte[] digest) {
+        return format("%0" + digest.length * 2 + "x", new BigInteger(1, digest));
+    }
+
+    private String timedHeadObjectEtag(String key, Duration apiCallTimeout) {
+        long start = System.nanoTime();
+        String etag = requestHeadObjectEtag(key, apiCallTimeout);
+        hedgePolicy.record(System.nanoTime() - start);
+
+        return etag;
+    }
+
+    /**
+     * S3 request guarded by bulkhead and circuit breaker.
+     */
+    @FunctionalInterface
+    private interface S3Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
 }
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static java.lang.String.format;
+
+import edu.harvard.drs.verify.config.AwsConfig;
+import edu.harvard.drs.verify.exception.UnknownTargetException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Registry of named storage targets, each with an S3 service of its own client and connection pool.
+ *
+ * <p>The top level AWS config is the {@value #DEFAULT_TARGET} target.
+ */
+@Slf4j
+@Service
+public class S3TargetRegistry {
+
+    public static final String DEFAULT_TARGET = "default";
+
+    private final Map<String, S3Service> targets;
+
+    /**
+     * Autowired S3 target registry constructor.
+     *
+     * @param awsConfig      AWS config
+     * @param s3Service      S3 service of default target
+     * @param sharedCache    cache shared by replicas, shared by all targets
+     * @param inventoryCodec inventory codec shared by all targets
+     */
+    @Autowired
+    public S3TargetRegistry(
+        AwsConfig awsConfig,
+        S3Service s3Service,
+        SharedCache sharedCache,
+        InventoryCodec inventoryCodec
+    ) {
+        this(Map.of(DEFAULT_TARGET, s3Service));
+
+        awsConfig.getTargets().forEach((name, target) -> {
+            if (targets.containsKey(name)) {
+                throw new IllegalStateException(format("Storage target name %s is reserved", name));
+            }
+
+            AwsConfig config = awsConfig.forTarget(target);
+            log.info("Storage target {}: bucket {} in {}", name, config.getBucketName(), config.getRegion());
+            // inventories are fetched from the first target of a verification, usually the default, so
+            // only the default caches them
+            targets.put(name, new S3Service(config, null, sharedCache, inventoryCodec));
+        });
+    }
+
+    /**
+     * S3 target registry of given S3 services.
+     *
+     * @param targets S3 services by target name
+     */
+    public S3TargetRegistry(Map<String, S3Service> targets) {
+        this.targets = new LinkedHashMap<>(targets);
+    }
+
+    /**
+     * S3 service of named target.
+     *
+     * @param name target name
+     * @return S3 service
+     * @throws UnknownTargetException no target of name
+     */
+    public S3Service get(String name) throws UnknownTargetException {
+        S3Service s3Service = targets.get(name);
+
+        if (s3Service == null) {
+            throw new UnknownTargetException(name);
+        }
+
+        return s3Service;
+    }
+
+    /**
+     * All targets.
+     *
+     * @return S3 services by target name
+     */
+    public Map<String, S3Service> all() {
+        return Collections.unmodifiableMap(targets);
+    }
+
+}
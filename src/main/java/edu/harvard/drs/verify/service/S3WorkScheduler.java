@@ -0,0 +1,249 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import edu.harvard.drs.verify.config.VerifyConfig;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Scheduler of S3 requests shared by all verifications and audits.
+ *
+ * <p>Work is submitted in batches, one per verification, to a priority lane. Lanes are served by
+ * deficit round robin in proportion to their weight, and batches within a lane are served round
+ * robin one request at a time, so a small verification queued behind a large one waits for at most
+ * one request of each active batch rather than the whole of the large one.
+ */
+@Slf4j
+@Service
+public class S3WorkScheduler {
+
+    /**
+     * Priority lanes.
+     */
+    public enum Lane {
+        INGEST,
+        UPDATE,
+        AUDIT
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition available = lock.newCondition();
+
+    private final List<Deque<Batch>> lanes = new ArrayList<>();
+
+    private final int[] weights = new int[Lane.values().length];
+
+    private final int[] credits = new int[Lane.values().length];
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    /**
+     * Autowired S3 work scheduler constructor.
+     *
+     * @param verifyConfig verify config
+     */
+    @Autowired
+    public S3WorkScheduler(VerifyConfig verifyConfig) {
+        VerifyConfig.Scheduler config = verifyConfig.getScheduler();
+
+        weights[Lane.INGEST.ordinal()] = Math.max(1, config.getIngestWeight());
+        weights[Lane.UPDATE.ordinal()] = Math.max(1, config.getUpdateWeight());
+        weights[Lane.AUDIT.ordinal()] = Math.max(1, config.getAuditWeight());
+
+        for (Lane lane : Lane.values()) {
+            lanes.add(new ArrayDeque<>());
+        }
+
+        log.info("Starting {} S3 workers", config.getWorkers());
+
+        for (int i = 0; i < config.getWorkers(); i++) {
+            Thread worker = new Thread(this::work, "s3-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * Open a batch of work in the given lane.
+     *
+     * @param lane priority lane
+     * @return empty batch
+     */
+    public Batch open(Lane lane) {
+        return new Batch(lane);
+    }
+
+    /**
+     * Stop workers.
+     */
+    @PreDestroy
+    public void shutdown() {
+        workers.forEach(Thread::interrupt);
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Runnable task;
+            try {
+                task = next();
+            } catch (InterruptedException e) {
+                return;
+            }
+            task.run();
+        }
+    }
+
+    private Runnable next() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                Lane lane = pick();
+                if (lane != null) {
+                    Deque<Batch> batches = lanes.get(lane.ordinal());
+                    Batch batch = batches.pollFirst();
+                    Runnable task = batch.tasks.pollFirst();
+                    if (batch.tasks.isEmpty()) {
+                        batch.queued = false;
+                    } else {
+                        batches.addLast(batch);
+                    }
+
+                    return task;
+                }
+                available.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Lane pick() {
+        for (int pass = 0; pass < 2; pass++) {
+            boolean pending = false;
+            for (Lane lane : Lane.values()) {
+                if (!lanes.get(lane.ordinal()).isEmpty()) {
+                    pending = true;
+                    if (credits[lane.ordinal()] > 0) {
+                        credits[lane.ordinal()]--;
+
+                        return lane;
+                    }
+                }
+            }
+
+            if (!pending) {
+                return null;
+            }
+
+            System.arraycopy(weights, 0, credits, 0, weights.length);
+        }
+
+        return null;
+    }
+
+    /**
+     * Batch of S3 work belonging to a single verification or audited object.
+     */
+    public final class Batch {
+
+        private final Lane lane;
+
+        private final Deque<FutureTask<?>> tasks = new ArrayDeque<>();
+
+        private final AtomicLong maxQueueWait = new AtomicLong();
+
+        private boolean queued;
+
+        private Batch(Lane lane) {
+            this.lane = lane;
+        }
+
+        /**
+         * Submit work to the batch.
+         *
+         * @param <T>      result type
+         * @param callable work
+         * @return future result
+         */
+        public <T> Future<T> submit(Callable<T> callable) {
+            long submitted = System.nanoTime();
+
+            FutureTask<T> task = new FutureTask<>(() -> {
+                maxQueueWait.accumulateAndGet(System.nanoTime() - submitted, Math::max);
+
+                return callable.call();
+            });
+
+            lock.lock();
+            try {
+                tasks.addLast(task);
+                if (!queued) {
+                    queued = true;
+                    lanes.get(lane.ordinal()).addLast(this);
+                }
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+
+            return task;
+        }
+
+        /**
+         * Cancel all work of the batch not yet started.
+         */
+        public void cancel() {
+            lock.lock();
+            try {
+                tasks.forEach(task -> task.cancel(false));
+                tasks.clear();
+                if (queued) {
+                    queued = false;
+                    lanes.get(lane.ordinal()).remove(this);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Longest any work of the batch waited for a worker.
+         *
+         * @return queue wait in nanoseconds
+         */
+        public long getMaxQueueWait() {
+            return maxQueueWait.get();
+        }
+
+    }
+
+}
@@ -0,0 +1,334 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.dto.VerificationError;
+import edu.harvard.drs.verify.exception.DeadlineExceededException;
+import edu.harvard.drs.verify.utility.Deadline;
+import io.micrometer.core.instrument.Metrics;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Coordinator splitting verification of an object with a huge input into shards of contiguous
+ * manifest paths, verified as updates by peer instances in parallel, so one object can use the
+ * S3 connections and bandwidth of every peer.
+ *
+ * <p>A shard failing on a peer is retried on the next. Errors of every shard are merged, paging
+ * through stored results of a peer for shards with more errors than a response carries.
+ */
+@Slf4j
+@Service
+public class ShardCoordinator {
+
+    private static final int RESULT_PAGE = 1000;
+
+    private static final TypeReference<Map<String, VerificationError>> ERRORS = new TypeReference<>() { };
+
+    private final List<String> peers;
+
+    private final int minInput;
+
+    private final int shardSize;
+
+    private final int retries;
+
+    private final RestTemplate restTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ExecutorService executor;
+
+    /**
+     * Autowired shard coordinator constructor.
+     *
+     * @param verifyConfig        verify config
+     * @param restTemplateBuilder rest template builder
+     */
+    @Autowired
+    public ShardCoordinator(VerifyConfig verifyConfig, RestTemplateBuilder restTemplateBuilder) {
+        this(verifyConfig, restTemplateBuilder
+            .setReadTimeout(verifyConfig.getCoordinator().getShardTimeout())
+            .build());
+    }
+
+    /**
+     * Shard coordinator constructor.
+     *
+     * @param verifyConfig verify config
+     * @param restTemplate rest template of requests to peers
+     */
+    public ShardCoordinator(VerifyConfig verifyConfig, RestTemplate restTemplate) {
+        VerifyConfig.Coordinator config = verifyConfig.getCoordinator();
+
+        this.peers = List.copyOf(config.getPeers());
+        this.minInput = config.getMinInput();
+        this.shardSize = config.getShardSize();
+        this.retries = config.getRetries();
+        this.restTemplate = restTemplate;
+
+        if (!peers.isEmpty() && shardSize >= minInput) {
+            // a peer would shard its shard again
+            throw new IllegalStateException(format(
+                "Coordinator shard size %d must be less than minimum input sharded %d", shardSize, minInput));
+        }
+
+        this.executor = Executors.newFixedThreadPool(Math.max(1, config.getConcurrency()), runnable -> {
+            Thread thread = new Thread(runnable, "shard");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Whether input is large enough to shard across peers.
+     *
+     * @param inputSize number of input checksums
+     * @return true if peers are configured and input at least minimum sharded
+     */
+    public boolean isSharded(int inputSize) {
+        return !peers.isEmpty() && inputSize >= minInput;
+    }
+
+    /**
+     * Verify input in shards on peers, adding errors of every shard. Peers are sent the time remaining
+     * until the deadline, and shards still pending at the deadline are cancelled.
+     *
+     * @param id       object id
+     * @param input    expected checksum map
+     * @param targets  storage target names
+     * @param deadline deadline of verification
+     * @param errors   collector of errors
+     * @throws IOException a shard failed on every attempt
+     * @throws DeadlineExceededException deadline passed before every shard was verified
+     */
+    public void verify(
+        Long id,
+        Map<String, String> input,
+        Collection<String> targets,
+        Deadline deadline,
+        ResultStore.Collector errors
+    ) throws IOException {
+        List<Map<String, String>> shards = shards(input);
+        log.info("Verifying object {} in {} shards across {} peers", id, shards.size(), peers.size());
+
+        List<Future<Map<String, VerificationError>>> pending = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            int index = i;
+            pending.add(executor.submit(() -> verifyShard(id, shards.get(index), targets, deadline, index)));
+        }
+
+        try {
+            for (Future<Map<String, VerificationError>> shard : pending) {
+                Map<String, VerificationError> shardErrors = deadline.isSet()
+                    ? shard.get(deadline.remainingNanos(), NANOSECONDS)
+                    : shard.get();
+                for (Map.Entry<String, VerificationError> error : shardErrors.entrySet()) {
+                    errors.add(error.getKey(), error.getValue());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(format("Interrupted verifying shards of object %s", id));
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException(id);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pending.forEach(shard -> shard.cancel(true));
+        }
+    }
+
+    /**
+     * Stop dispatching shards.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Split input into shards of contiguous manifest paths, sized evenly up to shard size.
+     *
+     * @param input expected checksum map
+     * @return shards in path order
+     */
+    List<Map<String, String>> shards(Map<String, String> input) {
+        int count = (input.size() + shardSize - 1) / shardSize;
+        int size = (input.size() + count - 1) / count;
+
+        List<Map<String, String>> shards = new ArrayList<>(count);
+        Map<String, String> shard = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : new TreeMap<>(input).entrySet()) {
+            shard.put(entry.getKey(), entry.getValue());
+            if (shard.size() == size) {
+                shards.add(shard);
+                shard = new LinkedHashMap<>();
+            }
+        }
+        if (!shard.isEmpty()) {
+            shards.add(shard);
+        }
+
+        return shards;
+    }
+
+    private Map<String, VerificationError> verifyShard(
+        Long id,
+        Map<String, String> shard,
+        Collection<String> targets,
+        Deadline deadline,
+        int index
+    ) throws IOException {
+        IOException failure = null;
+
+        for (int attempt = 0; attempt <= retries; attempt++) {
+            if (deadline.isExpired()) {
+                throw new DeadlineExceededException(id);
+            }
+
+            String peer = peers.get((index + attempt) % peers.size());
+
+            try {
+                Map<String, VerificationError> errors = post(peer, id, shard, targets, deadline);
+                Metrics.counter("verify.shards", "result", errors.isEmpty() ? "passed" : "failed").increment();
+
+                return errors;
+            } catch (HttpClientErrorException e) {
+                if (e.getStatusCode() != HttpStatus.TOO_MANY_REQUESTS) {
+                    // rejected request, not a failing peer
+                    throw new IOException(format("Shard %d of object %s rejected by %s: %s",
+                        index, id, peer, e.getResponseBodyAsString()), e);
+                }
+                failure = retry(id, index, peer, e);
+            } catch (RestClientException | IOException e) {
+                failure = retry(id, index, peer, e);
+            }
+        }
+
+        Metrics.counter("verify.shards", "result", "error").increment();
+
+        throw failure;
+    }
+
+    private IOException retry(Long id, int index, String peer, Exception e) {
+        log.warn("Shard {} of object {} failed on {}: {}", index, id, peer, e.getMessage());
+        Metrics.counter("verify.shards", "result", "retried").increment();
+
+        return new IOException(format("Shard %d of object %s failed on %s", index, id, peer), e);
+    }
+
+    private Map<String, VerificationError> post(
+        String peer,
+        Long id,
+        Map<String, String> shard,
+        Collection<String> targets,
+        Deadline deadline
+    ) throws IOException {
+        URI uri = UriComponentsBuilder.fromHttpUrl(peer)
+            .path("/verify/{id}/update")
+            .queryParam("targets", String.join(",", targets))
+            .buildAndExpand(id)
+            .toUri();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        deadline.remaining().ifPresent(remaining -> headers.set(Deadline.HEADER, remaining.toMillis() + "ms"));
+
+        try {
+            restTemplate.postForEntity(uri, new HttpEntity<>(shard, headers), String.class);
+
+            return Map.of();
+        } catch (HttpClientErrorException.Conflict e) {
+            HttpHeaders responseHeaders = e.getResponseHeaders();
+            String location = responseHeaders == null ? null : responseHeaders.getFirst(HttpHeaders.LOCATION);
+
+            // summarized with a stored result when more errors than a response carries
+            return location == null
+                ? objectMapper.readValue(e.getResponseBodyAsByteArray(), ERRORS)
+                : result(URI.create(location));
+        }
+    }
+
+    private Map<String, VerificationError> result(URI location) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+
+        Map<String, VerificationError> errors = new LinkedHashMap<>();
+
+        for (long offset = 0; ; offset += RESULT_PAGE) {
+            URI page = UriComponentsBuilder.fromUri(location)
+                .queryParam("offset", offset)
+                .queryParam("limit", RESULT_PAGE)
+                .build()
+                .toUri();
+
+            Map<String, VerificationError> errorsPage = restTemplate.exchange(
+                page,
+                HttpMethod.GET,
+                new HttpEntity<>(headers),
+                new ParameterizedTypeReference<Map<String, VerificationError>>() { }
+            ).getBody();
+
+            if (errorsPage == null) {
+                return errors;
+            }
+            errors.putAll(errorsPage);
+            if (errorsPage.size() < RESULT_PAGE) {
+                return errors;
+            }
+        }
+    }
+
+}
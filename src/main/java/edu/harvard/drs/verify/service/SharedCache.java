@@ -0,0 +1,530 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.dto.OcflInventory;
+import io.micrometer.core.instrument.Metrics;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Cache of inventories and content eTags shared by replicas through a common directory, i.e. a
+ * network file system mounted by each.
+ *
+ * <p>Inventories are stored as Smile per object and eTag, and revalidated against S3 by eTag before
+ * use like the local inventory cache. Content eTags are trusted for a time to live, as OCFL content
+ * is never rewritten in place, and only to confirm a match: a mismatch is always requested again.
+ * Recent content eTags are also held in a bounded in-memory tier per replica, and written back to
+ * the shared directory in batches off the request path, only when new, changed or half way to
+ * expiring for other replicas. Reads of the shared directory on a miss of the in-memory tier are
+ * bounded by a timeout, so a slow or hung mount costs a head request rather than stalling
+ * verification; a read completing late still fills the in-memory tier.
+ */
+@Slf4j
+@Lazy(false)
+@Service
+public class SharedCache {
+
+    private static final String EXTENSION = ".smile";
+
+    private static final String INVENTORIES = "inventories";
+
+    private static final String ETAGS = "etags";
+
+    private static final int READ_THREADS = 4;
+
+    // reads queued behind a hung mount beyond this are skipped rather than held
+    private static final int MAX_QUEUED_READS = 1_000;
+
+    private final boolean enabled;
+
+    private final Path directory;
+
+    private final long etagTtlMillis;
+
+    private final Duration inventoryRetention;
+
+    private final InventoryCodec inventoryCodec;
+
+    private final Map<String, Etag> etags;
+
+    // eTags requested but not yet written back, coalesced by key
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+    private final int maxPending;
+
+    private final long readTimeoutMillis;
+
+    private final ThreadPoolExecutor readExecutor;
+
+    /**
+     * Shared cache constructor with codec of verify config.
+     *
+     * @param verifyConfig verify config
+     */
+    public SharedCache(VerifyConfig verifyConfig) {
+        this(verifyConfig, new InventoryCodec(verifyConfig));
+    }
+
+    /**
+     * Autowired shared cache constructor.
+     *
+     * @param verifyConfig   verify config
+     * @param inventoryCodec inventory codec
+     */
+    @Autowired
+    public SharedCache(VerifyConfig verifyConfig, InventoryCodec inventoryCodec) {
+        VerifyConfig.SharedCache config = verifyConfig.getSharedCache();
+
+        this.enabled = config.isEnabled();
+        this.directory = Path.of(config.getDirectory());
+        this.etagTtlMillis = config.getEtagTtl().toMillis();
+        this.inventoryRetention = config.getInventoryRetention();
+        this.inventoryCodec = inventoryCodec;
+
+        int maxEtags = config.getMaxMemoryEtags();
+        this.maxPending = maxEtags;
+        this.etags = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Etag> eldest) {
+                return size() > maxEtags;
+            }
+        };
+
+        this.readTimeoutMillis = config.getReadTimeout().toMillis();
+        this.readExecutor = new ThreadPoolExecutor(
+            READ_THREADS, READ_THREADS, 60, SECONDS, new LinkedBlockingQueue<>(MAX_QUEUED_READS), runnable -> {
+                Thread thread = new Thread(runnable, "shared-cache-read");
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.readExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * eTag of most recently shared inventory of object in bucket.
+     *
+     * @param bucket S3 bucket
+     * @param id     object id
+     * @return eTag inventory was shared at
+     */
+    public Optional<String> inventoryEtag(String bucket, Long id) {
+        Path object = inventories(bucket, id);
+        if (!Files.isDirectory(object)) {
+            return Optional.empty();
+        }
+
+        try (Stream<Path> files = Files.list(object)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(EXTENSION))
+                .max(Comparator.comparing(SharedCache::lastModified))
+                .map(file -> {
+                    String name = file.getFileName().toString();
+                    return name.substring(0, name.length() - EXTENSION.length());
+                });
+        } catch (IOException e) {
+            log.warn(format("Failed to list shared inventories %s", object), e);
+
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Read shared inventory of object in bucket at eTag.
+     *
+     * @param bucket S3 bucket
+     * @param id     object id
+     * @param etag   expected eTag
+     * @return shared inventory, empty if not shared at eTag or unreadable
+     */
+    public Optional<OcflInventory> getInventory(String bucket, Long id, String etag) {
+        Path path = inventories(bucket, id).resolve(etag + EXTENSION);
+
+        try (InputStream is = Files.newInputStream(path)) {
+            OcflInventory inventory = inventoryCodec.readSmile(is);
+            inventory.setEtag(etag);
+
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            Metrics.counter("verify.shared.cache", "type", "inventory", "result", "hit").increment();
+
+            return Optional.of(inventory);
+        } catch (NoSuchFileException e) {
+            Metrics.counter("verify.shared.cache", "type", "inventory", "result", "miss").increment();
+
+            return Optional.empty();
+        } catch (IOException e) {
+            log.warn(format("Failed to read shared inventory %s", path), e);
+
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Share inventory of object in bucket at eTag, replacing any other eTag of object.
+     *
+     * @param bucket    S3 bucket
+     * @param id        object id
+     * @param etag      eTag inventory fetched at
+     * @param inventory parsed inventory
+     */
+    public void putInventory(String bucket, Long id, String etag, OcflInventory inventory) {
+        Path object = inventories(bucket, id);
+        Path path = object.resolve(etag + EXTENSION);
+
+        try {
+            Files.createDirectories(object);
+            write(path, temp -> inventoryCodec.writeSmile(temp, inventory));
+
+            try (Stream<Path> files = Files.list(object)) {
+                List<Path> previous = files.filter(file -> !file.equals(path))
+                    .filter(file -> file.getFileName().toString().endsWith(EXTENSION))
+                    .collect(Collectors.toList());
+                for (Path file : previous) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn(format("Failed to share inventory %s", path), e);
+        }
+    }
+
+    /**
+     * eTag of content key in bucket requested within time to live, by this or another replica.
+     *
+     * @param bucket S3 bucket
+     * @param key    S3 object key
+     * @return eTag, empty if not requested within time to live
+     */
+    public Optional<String> etag(String bucket, String key) {
+        String name = bucket + "/" + key;
+        long now = System.currentTimeMillis();
+
+        Etag cached;
+        synchronized (etags) {
+            cached = etags.get(name);
+        }
+
+        if (cached == null || now - cached.requested > etagTtlMillis) {
+            // another replica may have requested it since
+            cached = awaitEtag(name, bucket, key);
+        }
+
+        if (cached == null || now - cached.requested > etagTtlMillis) {
+            Metrics.counter("verify.shared.cache", "type", "etag", "result", "miss").increment();
+
+            return Optional.empty();
+        }
+
+        Metrics.counter("verify.shared.cache", "type", "etag", "result", "hit").increment();
+
+        return Optional.of(cached.value);
+    }
+
+    /**
+     * Share eTag of content key in bucket just requested, written back on next flush unless the
+     * same eTag was shared within half its time to live.
+     *
+     * @param bucket S3 bucket
+     * @param key    S3 object key
+     * @param etag   eTag
+     */
+    public void putEtag(String bucket, String key, String etag) {
+        String name = bucket + "/" + key;
+        long now = System.currentTimeMillis();
+
+        boolean unchanged;
+        Etag requested;
+        synchronized (etags) {
+            Etag previous = etags.get(name);
+            unchanged = previous != null && previous.value.equals(etag);
+            requested = new Etag(etag, now, unchanged ? previous.shared : 0);
+            etags.put(name, requested);
+        }
+
+        Pending queued = pending.get(name);
+        if (unchanged && now - requested.shared < etagTtlMillis / 2
+            || queued != null && queued.etag.value.equals(etag)) {
+            return;
+        }
+
+        if (pending.size() >= maxPending) {
+            Metrics.counter("verify.shared.cache", "type", "etag", "result", "dropped").increment();
+            return;
+        }
+
+        pending.put(name, new Pending(bucket, key, requested));
+    }
+
+    /**
+     * Write back eTags requested since last flush, once each.
+     */
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${verify.shared-cache.flush:PT1S}")
+    public void flush() {
+        for (Map.Entry<String, Pending> entry : pending.entrySet()) {
+            Pending write = entry.getValue();
+            if (!pending.remove(entry.getKey(), write)) {
+                continue;
+            }
+
+            Path path = etagPath(write.bucket, write.key);
+            try {
+                Files.createDirectories(path.getParent());
+                write(path, temp -> Files.writeString(temp, write.etag.value, UTF_8));
+                write.etag.shared = write.etag.requested;
+
+                // requested again since, unchanged
+                synchronized (etags) {
+                    Etag current = etags.get(entry.getKey());
+                    if (current != null && current.value.equals(write.etag.value)) {
+                        current.shared = Math.max(current.shared, write.etag.requested);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn(format("Failed to share eTag %s", path), e);
+            }
+        }
+    }
+
+    /**
+     * Delete shared eTags past time to live and inventories unread within retention. Every replica
+     * sweeps, and tolerates files another already deleted.
+     */
+    @Scheduled(fixedDelayString = "${verify.shared-cache.sweep:PT1H}")
+    public void sweep() {
+        if (!enabled || !Files.isDirectory(directory)) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        sweep(directory.resolve(ETAGS), FileTime.fromMillis(now - etagTtlMillis));
+        sweep(directory.resolve(INVENTORIES), FileTime.fromMillis(now - inventoryRetention.toMillis()));
+    }
+
+    private void sweep(Path root, FileTime expired) {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+        } catch (IOException e) {
+            log.warn(format("Failed to sweep shared cache %s", root), e);
+            return;
+        }
+
+        for (Path file : files) {
+            try {
+                if (Files.getLastModifiedTime(file).compareTo(expired) < 0) {
+                    Files.deleteIfExists(file);
+                }
+            } catch (NoSuchFileException e) {
+                // swept by another replica
+            } catch (IOException e) {
+                log.warn(format("Failed to sweep shared cache file %s", file), e);
+            }
+        }
+    }
+
+    /**
+     * Read shared eTag off the request thread, waiting up to read timeout. A read completing
+     * later still fills the in-memory tier, unless requested again since.
+     */
+    private Etag awaitEtag(String name, String bucket, String key) {
+        CompletableFuture<Etag> read;
+        try {
+            read = CompletableFuture.supplyAsync(() -> readEtag(bucket, key), readExecutor);
+        } catch (RejectedExecutionException e) {
+            Metrics.counter("verify.shared.cache", "type", "etag", "result", "skipped").increment();
+
+            return null;
+        }
+
+        read.thenAccept(shared -> {
+            if (shared != null) {
+                synchronized (etags) {
+                    Etag current = etags.get(name);
+                    if (current == null || current.requested < shared.requested) {
+                        etags.put(name, shared);
+                    }
+                }
+            }
+        });
+
+        try {
+            return read.get(readTimeoutMillis, MILLISECONDS);
+        } catch (TimeoutException e) {
+            Metrics.counter("verify.shared.cache", "type", "etag", "result", "timeout").increment();
+
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            return null;
+        } catch (ExecutionException e) {
+            log.warn(format("Failed to read shared eTag of %s", name), e.getCause());
+
+            return null;
+        }
+    }
+
+    Etag readEtag(String bucket, String key) {
+        Path path = etagPath(bucket, key);
+
+        try {
+            long requested = Files.getLastModifiedTime(path).toMillis();
+
+            return new Etag(Files.readString(path, UTF_8), requested, requested);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn(format("Failed to read shared eTag %s", path), e);
+
+            return null;
+        }
+    }
+
+    private Path inventories(String bucket, Long id) {
+        return directory.resolve(INVENTORIES).resolve(bucket).resolve(String.valueOf(id));
+    }
+
+    private Path etagPath(String bucket, String key) {
+        String hash = sha1(key);
+
+        return directory.resolve(ETAGS).resolve(bucket).resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * Write to a temporary file of this replica and move into place, so readers on other replicas
+     * never see a partial file.
+     */
+    private static void write(Path path, Writer writer) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + "." + UUID.randomUUID() + ".tmp");
+
+        try {
+            writer.write(temp);
+            Files.move(temp, path, REPLACE_EXISTING, ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String sha1(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes(UTF_8));
+
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16))
+                    .append(Character.forDigit(b & 0xf, 16));
+            }
+
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+
+        void write(Path temp) throws IOException;
+
+    }
+
+    static final class Etag {
+
+        private final String value;
+
+        private final long requested;
+
+        // when last written to or read from shared directory
+        private volatile long shared;
+
+        private Etag(String value, long requested, long shared) {
+            this.value = value;
+            this.requested = requested;
+            this.shared = shared;
+        }
+
+    }
+
+    private static final class Pending {
+
+        private final String bucket;
+
+        private final String key;
+
+        private final Etag etag;
+
+        private Pending(String bucket, String key, Etag etag) {
+            this.bucket = bucket;
+            this.key = key;
+            this.etag = etag;
+        }
+
+    }
+
+}
@@ -16,21 +16,49 @@
 
 package edu.harvard.drs.verify.service;
 
+import static edu.harvard.drs.verify.service.S3TargetRegistry.DEFAULT_TARGET;
+import static edu.harvard.drs.verify.utility.KeyUtility.INVENTORY;
 import static edu.harvard.drs.verify.utility.KeyUtility.buildKey;
 import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.dto.CompactInventory;
 import edu.harvard.drs.verify.dto.OcflInventory;
 import edu.harvard.drs.verify.dto.VerificationError;
+import edu.harvard.drs.verify.dto.VerificationStats;
+import edu.harvard.drs.verify.dto.VerificationSummary;
+import edu.harvard.drs.verify.event.VerificationEvent;
+import edu.harvard.drs.verify.exception.DeadlineExceededException;
+import edu.harvard.drs.verify.exception.InvalidInventoryException;
+import edu.harvard.drs.verify.exception.S3UnavailableException;
+import edu.harvard.drs.verify.exception.UnknownTargetException;
+import edu.harvard.drs.verify.exception.UnsupportedAlgorithmException;
 import edu.harvard.drs.verify.exception.VerificationException;
+import edu.harvard.drs.verify.service.S3WorkScheduler.Lane;
+import edu.harvard.drs.verify.utility.Deadline;
+import io.micrometer.core.instrument.Metrics;
 import java.io.IOException;
-import java.util.Collection;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.context.annotation.RequestScope;
+import software.amazon.awssdk.core.exception.AbortedException;
 
 /**
  * Verify service.
@@ -40,16 +68,91 @@ import org.springframework.web.context.annotation.RequestScope;
 @RequestScope
 public class VerifyService {
 
-    private final S3Service s3Service;
+    private final S3TargetRegistry targetRegistry;
+
+    private final S3WorkScheduler scheduler;
+
+    private final LedgerService ledgerService;
+
+    private final ResultStore resultStore;
+
+    private final ShardCoordinator coordinator;
+
+    private final boolean pipelineInventory;
+
+    private VerificationStats stats = new VerificationStats();
+
+    private Deadline deadline = Deadline.NONE;
+
+    private AdmissionService.Permit permit;
+
+    private BiConsumer<String, Optional<VerificationError>> fileListener;
+
+    private volatile boolean cancelled;
+
+    private Thread verifying;
+
+    /**
+     * Verify service constructor verifying every object locally.
+     *
+     * @param targetRegistry storage target registry
+     * @param scheduler      S3 work scheduler
+     * @param ledgerService  verification ledger
+     * @param resultStore    store of results with too many errors to respond with
+     */
+    public VerifyService(
+        S3TargetRegistry targetRegistry,
+        S3WorkScheduler scheduler,
+        LedgerService ledgerService,
+        ResultStore resultStore
+    ) {
+        this(targetRegistry, scheduler, ledgerService, resultStore, null);
+    }
+
+    /**
+     * Verify service constructor with default config.
+     *
+     * @param targetRegistry storage target registry
+     * @param scheduler      S3 work scheduler
+     * @param ledgerService  verification ledger
+     * @param resultStore    store of results with too many errors to respond with
+     * @param coordinator    coordinator sharding huge inputs across peers, null for none
+     */
+    public VerifyService(
+        S3TargetRegistry targetRegistry,
+        S3WorkScheduler scheduler,
+        LedgerService ledgerService,
+        ResultStore resultStore,
+        ShardCoordinator coordinator
+    ) {
+        this(targetRegistry, scheduler, ledgerService, resultStore, coordinator, new VerifyConfig());
+    }
 
     /**
      * Verify service constructor autowired.
      *
-     * @param s3Service S3 service
+     * @param targetRegistry storage target registry
+     * @param scheduler      S3 work scheduler
+     * @param ledgerService  verification ledger
+     * @param resultStore    store of results with too many errors to respond with
+     * @param coordinator    coordinator sharding huge inputs across peers, null for none
+     * @param verifyConfig   verify config
      */
     @Autowired
-    public VerifyService(S3Service s3Service) {
-        this.s3Service = s3Service;
+    public VerifyService(
+        S3TargetRegistry targetRegistry,
+        S3WorkScheduler scheduler,
+        LedgerService ledgerService,
+        ResultStore resultStore,
+        ShardCoordinator coordinator,
+        VerifyConfig verifyConfig
+    ) {
+        this.targetRegistry = targetRegistry;
+        this.scheduler = scheduler;
+        this.ledgerService = ledgerService;
+        this.resultStore = resultStore;
+        this.coordinator = coordinator;
+        this.pipelineInventory = verifyConfig.isPipelineInventory();
     }
 
     /**
@@ -61,9 +164,51 @@ public class VerifyService {
      * @throws VerificationException failed verification
      */
     public void verifyIngest(Long id, Map<String, String> input) throws IOException, VerificationException {
-        log.info("Veryfing ingest object {}", id);
+        try {
+            verifyIngest(id, input, List.of(DEFAULT_TARGET));
+        } catch (UnknownTargetException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Verify ingest against storage targets, sharing the inventory of the first.
+     *
+     * @param id      object id
+     * @param input   expected checksum map
+     * @param targets storage target names
+     * @throws IOException failed to get inventory
+     * @throws VerificationException failed verification
+     * @throws UnknownTargetException no target of a given name
+     */
+    public void verifyIngest(Long id, Map<String, String> input, List<String> targets)
+        throws IOException, VerificationException, UnknownTargetException {
+        try {
+            verifyIngest(id, input, targets, null);
+        } catch (UnsupportedAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 
-        verify(id, input);
+    /**
+     * Verify ingest against storage targets, sharing the inventory of the first. With a digest
+     * algorithm, input checksums are compared with digests of that algorithm in the inventory, either
+     * its digest algorithm or in its fixity, rather than with eTags of each file.
+     *
+     * @param id        object id
+     * @param input     expected checksum map
+     * @param targets   storage target names
+     * @param algorithm digest algorithm of input checksums, null for eTags
+     * @throws IOException failed to get inventory
+     * @throws VerificationException failed verification
+     * @throws UnknownTargetException no target of a given name
+     * @throws UnsupportedAlgorithmException no digests of algorithm in inventory
+     */
+    public void verifyIngest(Long id, Map<String, String> input, List<String> targets, String algorithm)
+        throws IOException, VerificationException, UnknownTargetException, UnsupportedAlgorithmException {
+        log.info("Veryfing ingest object {} in {}", id, targets);
+
+        verify(id, input, false, targets, algorithm);
     }
 
     /**
@@ -75,72 +220,489 @@ public class VerifyService {
      * @throws VerificationException failed verification
      */
     public void verifyUpdate(Long id, Map<String, String> input) throws IOException, VerificationException {
-        log.info("Veryfing update object {}", id);
+        try {
+            verifyUpdate(id, input, List.of(DEFAULT_TARGET));
+        } catch (UnknownTargetException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 
-        verify(id, input, true);
+    /**
+     * Verify update against storage targets, sharing the inventory of the first.
+     *
+     * @param id      object id
+     * @param input   expected checksum map
+     * @param targets storage target names
+     * @throws IOException failed to get inventory
+     * @throws VerificationException failed verification
+     * @throws UnknownTargetException no target of a given name
+     */
+    public void verifyUpdate(Long id, Map<String, String> input, List<String> targets)
+        throws IOException, VerificationException, UnknownTargetException {
+        try {
+            verifyUpdate(id, input, targets, null);
+        } catch (UnsupportedAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Verify update against storage targets, sharing the inventory of the first. With a digest
+     * algorithm, input checksums are compared with digests of that algorithm in the inventory.
+     *
+     * @param id        object id
+     * @param input     expected checksum map
+     * @param targets   storage target names
+     * @param algorithm digest algorithm of input checksums, null for eTags
+     * @throws IOException failed to get inventory
+     * @throws VerificationException failed verification
+     * @throws UnknownTargetException no target of a given name
+     * @throws UnsupportedAlgorithmException no digests of algorithm in inventory
+     */
+    public void verifyUpdate(Long id, Map<String, String> input, List<String> targets, String algorithm)
+        throws IOException, VerificationException, UnknownTargetException, UnsupportedAlgorithmException {
+        log.info("Veryfing update object {} in {}", id, targets);
+
+        verify(id, input, true, targets, algorithm);
+    }
+
+    /**
+     * Phase durations and S3 requests of the last verification.
+     *
+     * @return verification stats
+     */
+    public VerificationStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Deadline of following verifications, past which queued S3 requests are cancelled, in-flight
+     * requests time out and verification fails with a deadline exceeded exception.
+     *
+     * @param deadline deadline of caller, none by default
+     */
+    public void setDeadline(Deadline deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Admission permit of following verifications, released an S3 request at a time as eTag checks
+     * complete. The caller admitting a verification closes its permit.
+     *
+     * @param permit admission permit of caller, none by default
+     */
+    public void setPermit(AdmissionService.Permit permit) {
+        this.permit = permit;
+    }
+
+    /**
+     * Listener of following verifications, called with the result of each file as it is verified
+     * against its eTag or digest, an error if it failed. Files of a verification answered by the
+     * ledger, or verified by peers, are not reported.
+     *
+     * @param fileListener listener of file results, none by default
+     */
+    public void setFileListener(BiConsumer<String, Optional<VerificationError>> fileListener) {
+        this.fileListener = fileListener;
     }
 
-    private OcflInventory verify(Long id, Map<String, String> input) throws IOException, VerificationException {
-        return verify(id, input, false);
+    /**
+     * Cancel verification of an abandoned request. S3 requests still queued are cancelled and not
+     * issued, requests in flight complete, and verification fails with an interrupted exception.
+     */
+    public void cancel() {
+        cancelled = true;
+        synchronized (this) {
+            if (verifying != null) {
+                verifying.interrupt();
+            }
+        }
     }
 
-    private OcflInventory verify(Long id, Map<String, String> input, boolean update)
-        throws IOException, VerificationException {
-        OcflInventory inventory = s3Service.fetchInventory(id);
+    private void verify(Long id, Map<String, String> input, boolean update, List<String> targets, String algorithm)
+        throws IOException, VerificationException, UnknownTargetException, UnsupportedAlgorithmException {
+        synchronized (this) {
+            if (cancelled) {
+                throw new InterruptedIOException(format("Cancelled verifying object %s", id));
+            }
+            verifying = Thread.currentThread();
+        }
 
-        Map<String, VerificationError> errors = new ConcurrentHashMap<>();
+        try {
+            verifyTargets(id, input, update, services(targets), algorithm);
+        } finally {
+            synchronized (this) {
+                verifying = null;
+            }
+        }
+    }
 
-        input.entrySet()
-            .parallelStream()
-            .forEach(entry -> {
-                String statePath = entry.getKey();
+    private Map<String, S3Service> services(List<String> targets) throws UnknownTargetException {
+        Map<String, S3Service> services = new LinkedHashMap<>();
+        for (String target : targets.isEmpty() ? List.of(DEFAULT_TARGET) : targets) {
+            services.put(target, targetRegistry.get(target));
+        }
 
-                Optional<String> manifestKey = inventory.find(statePath);
-                if (manifestKey.isPresent()) {
-                    String key = buildKey(id, manifestKey.get());
+        return services;
+    }
 
-                    String expected = entry.getValue();
+    private void verifyTargets(Long id, Map<String, String> input, boolean update, Map<String, S3Service> services,
+        String algorithm) throws IOException, VerificationException, UnsupportedAlgorithmException {
+        VerificationEvent event = new VerificationEvent(id, update, services.keySet(), algorithm, input.size());
+        event.begin();
+        String outcome = "error";
+        long errors = 0;
 
-                    try {
-                        String actual = s3Service.getHeadObjectEtag(key);
+        long start = System.nanoTime();
+        stats = new VerificationStats();
 
-                        if (!expected.equals(actual)) {
-                            VerificationError error = VerificationError.builder()
-                                .error("Checksums do not match")
-                                .expected(expected)
-                                .actual(actual)
-                                .build();
+        try {
+            checkDeadline(id);
 
-                            errors.put(statePath, error);
-                        }
+            String inputHash = ledgerService.hash(update, services.keySet(), algorithm, input);
+            S3Service primary = services.values().iterator().next();
+            Duration timeout = deadline.remaining().orElse(null);
 
-                    } catch (Exception e) {
-                        log.error(format("Failed to get head obect of manifest entry %s", key), e);
-                        errors.put(statePath, VerificationError.from(e.getMessage()));
+            String inventoryKey = buildKey(id, INVENTORY);
+
+            // every target is verified against the inventory of the first, so only its eTag is checked
+
+            if (ledgerService.passed(id, inputHash, () -> primary.getHeadObjectEtag(inventoryKey, timeout))) {
+                log.debug("Object {} unchanged since passing verification", id);
+                stats.recordLedgerHit();
+                outcome = "ledger";
+
+                return;
+            }
+
+            verifyInventory(id, input, update, services, algorithm, inputHash);
+            outcome = "passed";
+        } catch (VerificationException e) {
+            outcome = "failed";
+            errors = e.getSummary().map(VerificationSummary::getTotal).orElse((long) e.getErrors().size());
+            throw e;
+        } catch (AbortedException e) {
+            checkDeadline(id);
+            throw e;
+        } finally {
+            stats.recordTotal(System.nanoTime() - start);
+            event.complete(outcome, errors, stats);
+            log.debug("Verification of object {} {}", id, stats);
+        }
+    }
+
+    private CompactInventory verifyInventory(
+        Long id,
+        Map<String, String> input,
+        boolean update,
+        Map<String, S3Service> services,
+        String algorithm,
+        String inputHash
+    ) throws IOException, VerificationException, UnsupportedAlgorithmException {
+        S3Service primary = services.values().iterator().next();
+
+        // head requests of resolved paths dispatched while the inventory is still streaming in
+        boolean sharded = coordinator != null && coordinator.isSharded(input.size());
+        S3WorkScheduler.Batch batch = pipelineInventory && algorithm == null && !sharded
+            ? scheduler.open(update ? Lane.UPDATE : Lane.INGEST)
+            : null;
+        Map<String, Future<Optional<VerificationError>>> pending = new LinkedHashMap<>();
+        Set<String> resolved = new HashSet<>();
+
+        OcflInventory ocflInventory;
+        try {
+            ocflInventory = batch == null
+                ? primary.fetchInventory(id, stats)
+                : primary.fetchInventory(id, stats, (statePath, contentPath) -> {
+                    String expected = input.get(statePath);
+                    if (expected != null && resolved.add(statePath)) {
+                        dispatch(id, services, batch, pending, statePath, buildKey(id, contentPath), expected);
                     }
-                } else {
-                    errors.put(statePath, VerificationError.from("Not found in inventory manifest"));
-                }
-            });
-
-        if (!update) {
-            inventory.getVersions()
-                .get(inventory.getHead())
-                .getState()
-                .values()
-                .stream()
-                .flatMap(Collection::stream)
-                .filter(statePath -> !input.containsKey(statePath))
-                .forEach(statePath -> {
-                    errors.put(statePath, VerificationError.from("Missing input checksum"));
                 });
+
+            checkDeadline(id);
+        } catch (IOException | RuntimeException e) {
+            if (batch != null) {
+                batch.cancel();
+            }
+            if (e instanceof InvalidInventoryException) {
+                // an inventory not matching its sidecar fails verification, as its content is not trusted
+                throw new VerificationException(Map.of(INVENTORY, ((InvalidInventoryException) e).getError()));
+            }
+            throw e;
         }
 
-        if (!errors.isEmpty()) {
-            throw new VerificationException(errors);
+        long indexStart = System.nanoTime();
+        CompactInventory inventory = CompactInventory.of(ocflInventory);
+        stats.recordIndex(System.nanoTime() - indexStart);
+
+        // only eTag and any fixity needed are kept, so the full model is collectable during fan-out
+        String etag = ocflInventory.getEtag();
+        Function<String, Optional<String>> fixity = algorithm == null
+            ? null
+            : digests(id, ocflInventory, inventory, algorithm);
+        ocflInventory = null;
+
+        long retained = inventory.retainedBytes();
+        log.debug("Inventory of object {} with {} files retains {} bytes", id, inventory.size(), retained);
+        Metrics.summary("verify.inventory.retained.bytes").record(retained);
+
+        try (ResultStore.Collector errors = resultStore.collector()) {
+            final long verifyStart = System.nanoTime();
+
+            if (algorithm != null) {
+                checkDigests(id, input, inventory, fixity, errors);
+            } else if (batch != null) {
+                for (String statePath : input.keySet()) {
+                    if (!resolved.contains(statePath)) {
+                        fail(errors, statePath, VerificationError.from("Not found in inventory manifest"));
+                    }
+                }
+                awaitEtags(id, batch, pending, errors);
+            } else if (sharded) {
+                coordinator.verify(id, input, services.keySet(), deadline, errors);
+            } else {
+                checkEtags(id, input, inventory, services, update, errors);
+            }
+
+            stats.recordVerify(System.nanoTime() - verifyStart);
+
+            if (!update) {
+                for (String statePath : inventory.getStatePaths()) {
+                    if (!input.containsKey(statePath)) {
+                        fail(errors, statePath, VerificationError.from("Missing input checksum"));
+                    }
+                }
+            }
+
+            ledgerService.record(id, etag, inputHash, errors.isEmpty());
+
+            if (!errors.isEmpty()) {
+                throw errors.failure();
+            }
         }
 
         return inventory;
     }
 
+    private void checkEtags(
+        Long id,
+        Map<String, String> input,
+        CompactInventory inventory,
+        Map<String, S3Service> services,
+        boolean update,
+        ResultStore.Collector errors
+    ) throws IOException {
+        S3WorkScheduler.Batch batch = scheduler.open(update ? Lane.UPDATE : Lane.INGEST);
+        Map<String, Future<Optional<VerificationError>>> pending = new LinkedHashMap<>();
+
+        for (Map.Entry<String, String> entry : input.entrySet()) {
+            String statePath = entry.getKey();
+            Optional<String> manifestKey = inventory.find(statePath);
+            if (manifestKey.isPresent()) {
+                dispatch(id, services, batch, pending, statePath, buildKey(id, manifestKey.get()), entry.getValue());
+            } else {
+                fail(errors, statePath, VerificationError.from("Not found in inventory manifest"));
+            }
+        }
+
+        awaitEtags(id, batch, pending, errors);
+    }
+
+    private void dispatch(
+        Long id,
+        Map<String, S3Service> services,
+        S3WorkScheduler.Batch batch,
+        Map<String, Future<Optional<VerificationError>>> pending,
+        String statePath,
+        String key,
+        String expected
+    ) {
+        final AdmissionService.Permit admitted = permit;
+        services.forEach((target, s3Service) -> pending.put(
+            services.size() > 1 ? target + ":" + statePath : statePath,
+            batch.submit(() -> {
+                try {
+                    return check(id, s3Service, key, expected);
+                } finally {
+                    if (admitted != null) {
+                        admitted.completed();
+                    }
+                }
+            })
+        ));
+    }
+
+    private void awaitEtags(
+        Long id,
+        S3WorkScheduler.Batch batch,
+        Map<String, Future<Optional<VerificationError>>> pending,
+        ResultStore.Collector errors
+    ) throws IOException {
+        try {
+            for (Map.Entry<String, Future<Optional<VerificationError>>> entry : pending.entrySet()) {
+                Optional<VerificationError> error = await(entry.getValue());
+                if (error.isPresent()) {
+                    fail(errors, entry.getKey(), error.get());
+                } else {
+                    pass(entry.getKey());
+                }
+            }
+        } catch (InterruptedException e) {
+            batch.cancel();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(format("Interrupted verifying object %s", id));
+        } catch (TimeoutException e) {
+            batch.cancel();
+            throw deadlineExceeded(id);
+        } catch (ExecutionException e) {
+            batch.cancel();
+            if (e.getCause() instanceof S3UnavailableException) {
+                throw (S3UnavailableException) e.getCause();
+            }
+            if (e.getCause() instanceof DeadlineExceededException) {
+                throw deadlineExceeded(id);
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+
+        stats.recordQueue(batch.getMaxQueueWait());
+    }
+
+    private void checkDigests(
+        Long id,
+        Map<String, String> input,
+        CompactInventory inventory,
+        Function<String, Optional<String>> digests,
+        ResultStore.Collector errors
+    ) throws IOException {
+        for (Map.Entry<String, String> entry : input.entrySet()) {
+            String statePath = entry.getKey();
+            if (inventory.find(statePath).isEmpty()) {
+                fail(errors, statePath, VerificationError.from("Not found in inventory manifest"));
+                continue;
+            }
+
+            Optional<String> actual = digests.apply(statePath);
+            if (actual.isEmpty()) {
+                fail(errors, statePath, VerificationError.from("No digest in inventory fixity"));
+            } else if (!actual.get().equalsIgnoreCase(entry.getValue())) {
+                fail(errors, statePath, VerificationError.builder()
+                    .error("Checksums do not match")
+                    .expected(entry.getValue())
+                    .actual(actual.get())
+                    .build());
+            } else {
+                pass(statePath);
+            }
+        }
+
+        log.debug("Verified {} digests of object {} against inventory", input.size(), id);
+    }
+
+    /**
+     * Digest of state path in algorithm, from head state if digest algorithm of inventory, otherwise
+     * from fixity by content path.
+     */
+    private Function<String, Optional<String>> digests(
+        Long id,
+        OcflInventory ocflInventory,
+        CompactInventory inventory,
+        String algorithm
+    ) throws UnsupportedAlgorithmException {
+        if (algorithm.equalsIgnoreCase(inventory.getDigestAlgorithm())) {
+            return inventory::digest;
+        }
+
+        Map<String, List<String>> fixity = ocflInventory.getFixity()
+            .entrySet()
+            .stream()
+            .filter(entry -> entry.getKey().equalsIgnoreCase(algorithm))
+            .map(Map.Entry::getValue)
+            .findFirst()
+            .orElseThrow(() -> new UnsupportedAlgorithmException(algorithm, id));
+
+        Map<String, String> byContentPath = new HashMap<>();
+        fixity.forEach((digest, contentPaths) -> contentPaths.forEach(path -> byContentPath.put(path, digest)));
+
+        return statePath -> inventory.find(statePath).map(byContentPath::get);
+    }
+
+    /**
+     * Wait for result of S3 request until deadline.
+     */
+    private <T> T await(Future<T> future) throws InterruptedException, ExecutionException, TimeoutException {
+        return deadline.isSet() ? future.get(deadline.remainingNanos(), NANOSECONDS) : future.get();
+    }
+
+    private void pass(String path) {
+        if (fileListener != null) {
+            fileListener.accept(path, Optional.empty());
+        }
+    }
+
+    private void fail(ResultStore.Collector errors, String path, VerificationError error) throws IOException {
+        errors.add(path, error);
+        if (fileListener != null) {
+            fileListener.accept(path, Optional.of(error));
+        }
+    }
+
+    private void checkDeadline(Long id) throws DeadlineExceededException {
+        if (deadline.isExpired()) {
+            throw deadlineExceeded(id);
+        }
+    }
+
+    private DeadlineExceededException deadlineExceeded(Long id) {
+        Metrics.counter("verify.deadline.exceeded").increment();
+        log.warn("Deadline exceeded verifying object {}", id);
+
+        return new DeadlineExceededException(id);
+    }
+
+    private Optional<VerificationError> check(Long id, S3Service s3Service, String key, String expected)
+        throws DeadlineExceededException {
+        // a shared eTag only confirms a match, a mismatch is always requested again
+        if (s3Service.getCachedEtag(key).filter(expected::equals).isPresent()) {
+            return Optional.empty();
+        }
+
+        // queued past deadline or cancellation, nobody reads the result
+        Optional<Duration> timeout = deadline.remaining();
+        if (timeout.filter(Duration::isZero).isPresent()) {
+            throw new DeadlineExceededException(id);
+        }
+        if (cancelled) {
+            throw new CancellationException(format("Cancelled verifying object %s", id));
+        }
+
+        long requestStart = System.nanoTime();
+
+        try {
+            String actual = s3Service.getHeadObjectEtag(key, timeout.orElse(null));
+
+            if (!expected.equals(actual)) {
+                return Optional.of(VerificationError.builder()
+                    .error("Checksums do not match")
+                    .expected(expected)
+                    .actual(actual)
+                    .build());
+            }
+
+            return Optional.empty();
+        } catch (S3UnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            if (deadline.isExpired()) {
+                throw new DeadlineExceededException(id);
+            }
+            log.error(format("Failed to get head obect of manifest entry %s", key), e);
+
+            return Optional.of(VerificationError.from(e.getMessage()));
+        } finally {
+            stats.recordS3Request(key, System.nanoTime() - requestStart);
+        }
+    }
+
 }
@@ -0,0 +1,229 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static edu.harvard.drs.verify.utility.KeyUtility.buildKey;
+
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.dto.CompactInventory;
+import edu.harvard.drs.verify.dto.OcflInventory;
+import io.micrometer.core.instrument.Metrics;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+/**
+ * Startup warm-up, run before the application reports ready to accept traffic.
+ *
+ * <p>Builds the S3 client of every storage target, opens pooled connections to each bucket and
+ * exercises inventory parsing and lookup on a bundled sample inventory, so the first verification
+ * after a deploy does not pay for lazy initialization, TLS handshakes and a cold JIT.
+ */
+@Slf4j
+@Service
+public class WarmupService implements ApplicationRunner {
+
+    static final String SAMPLE_INVENTORY = "warmup/inventory.json";
+
+    private final VerifyConfig.Warmup config;
+
+    private final S3TargetRegistry targetRegistry;
+
+    private final InventoryCodec inventoryCodec;
+
+    private final LedgerService ledgerService;
+
+    private final ConfigurableApplicationContext context;
+
+    /**
+     * Warm-up service constructor, without application context to close on exit.
+     *
+     * @param verifyConfig   verify config
+     * @param targetRegistry storage target registry
+     * @param inventoryCodec inventory codec
+     * @param ledgerService  verification ledger
+     */
+    public WarmupService(
+        VerifyConfig verifyConfig,
+        S3TargetRegistry targetRegistry,
+        InventoryCodec inventoryCodec,
+        LedgerService ledgerService
+    ) {
+        this(verifyConfig, targetRegistry, inventoryCodec, ledgerService, null);
+    }
+
+    /**
+     * Autowired warm-up service constructor.
+     *
+     * @param verifyConfig   verify config
+     * @param targetRegistry storage target registry
+     * @param inventoryCodec inventory codec
+     * @param ledgerService  verification ledger
+     * @param context        application context, closed on exit once warmed up
+     */
+    @Autowired
+    public WarmupService(
+        VerifyConfig verifyConfig,
+        S3TargetRegistry targetRegistry,
+        InventoryCodec inventoryCodec,
+        LedgerService ledgerService,
+        ConfigurableApplicationContext context
+    ) {
+        this.config = verifyConfig.getWarmup();
+        this.targetRegistry = targetRegistry;
+        this.inventoryCodec = inventoryCodec;
+        this.ledgerService = ledgerService;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (config.isEnabled()) {
+            warmUp();
+        }
+
+        if (config.isExit()) {
+            // a training run, i.e. of a class data sharing archive written as the JVM exits
+            log.info("Exiting once started, {} ms after start", ManagementFactory.getRuntimeMXBean().getUptime());
+            System.exit(context == null ? 0 : SpringApplication.exit(context));
+        }
+    }
+
+    private void warmUp() throws IOException {
+        final long start = System.nanoTime();
+
+        long phaseStart = System.nanoTime();
+        Map<String, S3Service> targets = targetRegistry.all();
+        record("clients", phaseStart);
+
+        phaseStart = System.nanoTime();
+        final int opened = openConnections(targets);
+        record("connections", phaseStart);
+
+        phaseStart = System.nanoTime();
+        exerciseInventory();
+        record("inventory", phaseStart);
+
+        record("total", start);
+
+        log.info(
+            "Warmed up {} storage targets with {} connections and {} inventory iterations in {} ms, {} ms after start",
+            targets.size(),
+            opened,
+            config.getIterations(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+            ManagementFactory.getRuntimeMXBean().getUptime()
+        );
+    }
+
+    /**
+     * Probe every bucket with concurrent head bucket requests, each holding a pooled connection open
+     * once complete. Failures are logged rather than failing startup, S3 health reports them.
+     *
+     * @param targets storage targets by name
+     * @return connections opened
+     * @throws InterruptedIOException interrupted waiting for probes
+     */
+    int openConnections(Map<String, S3Service> targets) throws InterruptedIOException {
+        int connections = config.getConnections();
+        if (connections <= 0) {
+            return 0;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(connections, runnable -> {
+            Thread thread = new Thread(runnable, "warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        int opened = 0;
+
+        try {
+            for (Map.Entry<String, S3Service> target : targets.entrySet()) {
+                List<Future<Long>> probes = new ArrayList<>();
+                for (int i = 0; i < connections; i++) {
+                    probes.add(executor.submit(target.getValue()::probe));
+                }
+
+                for (Future<Long> probe : probes) {
+                    try {
+                        probe.get();
+                        opened++;
+                    } catch (ExecutionException e) {
+                        log.warn("Failed to warm up connection to storage target {}: {}",
+                            target.getKey(), e.getCause().getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted warming up connections");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return opened;
+    }
+
+    /**
+     * Parse, index and look up every state path of the sample inventory, as a verification does.
+     *
+     * @throws IOException failed to read sample inventory
+     */
+    void exerciseInventory() throws IOException {
+        ClassPathResource sample = new ClassPathResource(SAMPLE_INVENTORY);
+
+        for (int i = 0; i < config.getIterations(); i++) {
+            OcflInventory ocflInventory;
+            try (InputStream is = sample.getInputStream()) {
+                ocflInventory = inventoryCodec.readJson(is);
+            }
+
+            CompactInventory inventory = CompactInventory.of(ocflInventory);
+            Map<String, String> input = new HashMap<>();
+            for (String statePath : inventory.getStatePaths()) {
+                inventory.find(statePath).ifPresent(manifestKey -> buildKey(0L, manifestKey));
+                inventory.digest(statePath).ifPresent(digest -> input.put(statePath, digest));
+            }
+
+            ledgerService.hash(false, List.of(S3TargetRegistry.DEFAULT_TARGET), input);
+        }
+    }
+
+    private void record(String phase, long start) {
+        Metrics.timer("verify.warmup", "phase", phase).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+}
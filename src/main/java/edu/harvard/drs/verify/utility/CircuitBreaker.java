@@ -0,0 +1,216 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.utility;
+
+/**
+ * Circuit breaker tripping on failure rate over a sliding window of recent calls.
+ *
+ * <p>Once open, calls are refused for the open duration, after which a single trial call is let
+ * through half open. The circuit closes again if it succeeds and reopens if it fails.
+ *
+ * <p>Every permit carries the generation of state it was issued in, and outcomes of permits of
+ * an earlier generation are ignored, so a slow call issued before the circuit opened can neither
+ * count towards the next window nor stand in for the half open trial.
+ */
+public final class CircuitBreaker {
+
+    /**
+     * Circuit breaker state.
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final boolean[] window;
+
+    private final int minimumCalls;
+
+    private final double failureRateThreshold;
+
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+
+    private int next;
+
+    private int calls;
+
+    private int failures;
+
+    private long openedAt;
+
+    private boolean trial;
+
+    private long generation;
+
+    /**
+     * Circuit breaker constructor.
+     *
+     * @param window               number of recent calls failure rate is measured over
+     * @param minimumCalls         calls required before failure rate can trip circuit
+     * @param failureRateThreshold failure rate at or above which circuit trips, i.e. 0.5
+     * @param openNanos            how long circuit stays open before trial call
+     */
+    public CircuitBreaker(int window, int minimumCalls, double failureRateThreshold, long openNanos) {
+        this.window = new boolean[window];
+        this.minimumCalls = Math.min(minimumCalls, window);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openNanos;
+    }
+
+    /**
+     * Acquire permission to call.
+     *
+     * @return false if circuit open
+     */
+    public synchronized boolean tryAcquire() {
+        return acquire() >= 0;
+    }
+
+    /**
+     * Acquire permit to call, to record its outcome with.
+     *
+     * @return permit, negative if circuit open
+     */
+    public synchronized long acquire() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            reset(State.HALF_OPEN);
+        }
+
+        if (state == State.HALF_OPEN) {
+            if (trial) {
+                return -1;
+            }
+            trial = true;
+
+            return generation;
+        }
+
+        return state == State.CLOSED ? generation : -1;
+    }
+
+    /**
+     * Record successful call permitted in current state.
+     */
+    public synchronized void onSuccess() {
+        onSuccess(generation);
+    }
+
+    /**
+     * Record successful call, ignored if permitted before state last changed.
+     *
+     * @param permit permit call was acquired with
+     */
+    public synchronized void onSuccess(long permit) {
+        if (permit != generation) {
+            return;
+        }
+
+        if (state == State.HALF_OPEN) {
+            reset(State.CLOSED);
+            return;
+        }
+
+        record(false);
+    }
+
+    /**
+     * Record failed call permitted in current state.
+     */
+    public synchronized void onFailure() {
+        onFailure(generation);
+    }
+
+    /**
+     * Record failed call, ignored if permitted before state last changed.
+     *
+     * @param permit permit call was acquired with
+     */
+    public synchronized void onFailure(long permit) {
+        if (permit != generation) {
+            return;
+        }
+
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+
+        record(true);
+
+        if (state == State.CLOSED && calls >= minimumCalls && failures >= failureRateThreshold * calls) {
+            open();
+        }
+    }
+
+    /**
+     * Current state.
+     *
+     * @return circuit state
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            return State.HALF_OPEN;
+        }
+
+        return state;
+    }
+
+    /**
+     * Time until an open circuit lets a trial call through.
+     *
+     * @return remaining open nanoseconds, zero unless open
+     */
+    public synchronized long remainingOpenNanos() {
+        return state == State.OPEN
+            ? Math.max(0, openNanos - (System.nanoTime() - openedAt))
+            : 0;
+    }
+
+    private void record(boolean failure) {
+        if (calls == window.length) {
+            if (window[next]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+
+        window[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % window.length;
+    }
+
+    private void open() {
+        reset(State.OPEN);
+        openedAt = System.nanoTime();
+    }
+
+    private void reset(State state) {
+        this.state = state;
+        this.next = 0;
+        this.calls = 0;
+        this.failures = 0;
+        this.trial = false;
+        this.generation++;
+    }
+
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.utility;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring of named nodes, each placed at a number of virtual points so keys spread
+ * evenly, and adding or removing a node only moves the keys it owns.
+ */
+public final class ConsistentHash {
+
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+    private final List<String> nodes;
+
+    /**
+     * Consistent hash constructor.
+     *
+     * @param nodes        node names
+     * @param virtualNodes points on ring per node
+     */
+    public ConsistentHash(Collection<String> nodes, int virtualNodes) {
+        this.nodes = List.copyOf(nodes);
+
+        for (String node : this.nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    /**
+     * Node owning key, the first clockwise of the hash of key.
+     *
+     * @param key key, i.e. object id
+     * @return node name, empty if there are no nodes
+     */
+    public Optional<String> node(String key) {
+        if (ring.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+
+        return Optional.of(entry == null ? ring.firstEntry().getValue() : entry.getValue());
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    private static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(UTF_8));
+
+            long hash = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                hash = (hash << 8) | (digest[i] & 0xff);
+            }
+
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
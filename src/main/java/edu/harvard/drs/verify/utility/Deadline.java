@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.utility;
+
+import java.time.Duration;
+import java.util.Optional;
+import org.springframework.boot.convert.DurationStyle;
+
+/**
+ * Deadline of a verification, past which nobody reads its result.
+ */
+public final class Deadline {
+
+    /**
+     * Request header of timeout from which to set a deadline.
+     */
+    public static final String HEADER = "Verify-Timeout";
+
+    /**
+     * No deadline, never expiring.
+     */
+    public static final Deadline NONE = new Deadline(0, false);
+
+    private final long expiresAt;
+
+    private final boolean set;
+
+    private Deadline(long expiresAt, boolean set) {
+        this.expiresAt = expiresAt;
+        this.set = set;
+    }
+
+    /**
+     * Deadline after timeout from now.
+     *
+     * @param timeout time until deadline
+     * @return deadline
+     */
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos(), true);
+    }
+
+    /**
+     * Deadline of a timeout header value, either a simple duration such as 30s, ISO-8601 or milliseconds.
+     *
+     * @param timeout timeout header value, null or blank for none
+     * @return deadline, none without timeout
+     * @throws IllegalArgumentException neither a duration nor positive
+     */
+    public static Deadline parse(String timeout) {
+        if (timeout == null || timeout.isBlank()) {
+            return NONE;
+        }
+
+        Duration duration = DurationStyle.detectAndParse(timeout.trim());
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Timeout must be positive: " + timeout);
+        }
+
+        return after(duration);
+    }
+
+    public boolean isSet() {
+        return set;
+    }
+
+    /**
+     * Whether deadline has passed.
+     *
+     * @return true when past deadline, never without deadline
+     */
+    public boolean isExpired() {
+        return set && expiresAt - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Time remaining until deadline, zero when past it.
+     *
+     * @return remaining time, empty without deadline
+     */
+    public Optional<Duration> remaining() {
+        if (!set) {
+            return Optional.empty();
+        }
+
+        return Optional.of(Duration.ofNanos(Math.max(0, expiresAt - System.nanoTime())));
+    }
+
+    /**
+     * Nanoseconds remaining until deadline to wait for, zero when past it.
+     *
+     * @return remaining nanoseconds, maximum without deadline
+     */
+    public long remainingNanos() {
+        return set ? Math.max(0, expiresAt - System.nanoTime()) : Long.MAX_VALUE;
+    }
+
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.utility;
+
+import java.util.Arrays;
+
+/**
+ * Hedge policy tracking recent request latency and a budget of extra requests.
+ *
+ * <p>A request still outstanding after the configured percentile of recent latency may be hedged
+ * with a duplicate. Every request earns a fraction of a hedge token up to a small burst, and every
+ * hedge spends a whole token, capping hedges at that fraction of requests.
+ */
+public final class HedgePolicy {
+
+    private static final int MIN_SAMPLES = 20;
+
+    private static final int RECOMPUTE_INTERVAL = 64;
+
+    private static final double MAX_TOKENS = 10;
+
+    private final long[] window;
+
+    private final double percentile;
+
+    private final long minDelayNanos;
+
+    private final double budget;
+
+    private int next;
+
+    private int count;
+
+    private long delayNanos = -1;
+
+    private double tokens;
+
+    /**
+     * Hedge policy constructor.
+     *
+     * @param window        number of recent latencies tracked
+     * @param percentile    percentile of recent latency to hedge after, i.e. 0.95
+     * @param minDelayNanos minimum delay before hedging
+     * @param budget        maximum fraction of requests hedged
+     */
+    public HedgePolicy(int window, double percentile, long minDelayNanos, double budget) {
+        this.window = new long[window];
+        this.percentile = percentile;
+        this.minDelayNanos = minDelayNanos;
+        this.budget = budget;
+    }
+
+    /**
+     * Account for a new request against the hedge budget.
+     */
+    public synchronized void request() {
+        tokens = Math.min(MAX_TOKENS, tokens + budget);
+    }
+
+    /**
+     * Record latency of a completed request.
+     *
+     * @param nanos request latency
+     */
+    public synchronized void record(long nanos) {
+        window[next] = nanos;
+        next = (next + 1) % window.length;
+        count = Math.min(count + 1, window.length);
+
+        if (count >= MIN_SAMPLES && (count < window.length || next % RECOMPUTE_INTERVAL == 0)) {
+            long[] sorted = Arrays.copyOf(window, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.min(count - 1, Math.ceil(percentile * count) - 1);
+            delayNanos = Math.max(minDelayNanos, sorted[Math.max(0, index)]);
+        }
+    }
+
+    /**
+     * Delay after which an outstanding request should be hedged.
+     *
+     * @return delay in nanoseconds, negative until enough latency has been recorded
+     */
+    public synchronized long delayNanos() {
+        return delayNanos;
+    }
+
+    /**
+     * Spend hedge budget for one hedged request.
+     *
+     * @return true if budget allows hedge
+     */
+    public synchronized boolean tryHedge() {
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+
+        return false;
+    }
+
+}
@@ -18,6 +18,7 @@ package edu.harvard.drs.verify.utility;
 
 import static java.lang.String.format;
 import static java.lang.String.valueOf;
+import static org.apache.commons.lang3.StringUtils.isNumeric;
 import static org.apache.commons.lang3.StringUtils.leftPad;
 import static org.apache.commons.lang3.StringUtils.reverse;
 
@@ -26,6 +27,8 @@ import static org.apache.commons.lang3.StringUtils.reverse;
  */
 public final class KeyUtility {
 
+    public static final String INVENTORY = "inventory.json";
+
     /**
      * Private key utility constructor.
      */
@@ -50,4 +53,28 @@ public final class KeyUtility {
         );
     }
 
+    /**
+     * Whether listed prefix is an object root, i.e. {@code 4264/5210/1254624/}.
+     *
+     * @param prefix s3 common prefix
+     * @return true if object root prefix
+     */
+    public static boolean isObjectRoot(String prefix) {
+        String[] segments = prefix.split("/");
+
+        return prefix.endsWith("/")
+            && segments.length == 3
+            && isNumeric(segments[2]);
+    }
+
+    /**
+     * Parse nss id from key built with {@link #buildKey(Long, String)}.
+     *
+     * @param key s3 key
+     * @return nss id
+     */
+    public static Long parseId(String key) {
+        return Long.valueOf(key.split("/")[2]);
+    }
+
 }
@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.utility;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Rate limiter handing out evenly spaced permits.
+ */
+public final class RateLimiter {
+
+    private final long intervalNanos;
+
+    private long next;
+
+    /**
+     * Rate limiter constructor.
+     *
+     * @param permitsPerSecond permits per second, zero or less for unlimited
+     */
+    public RateLimiter(double permitsPerSecond) {
+        this.intervalNanos = permitsPerSecond > 0
+            ? (long) (SECONDS.toNanos(1) / permitsPerSecond)
+            : 0;
+        this.next = System.nanoTime();
+    }
+
+    /**
+     * Block until next permit is available.
+     *
+     * @throws InterruptedException interrupted while waiting for permit
+     */
+    public void acquire() throws InterruptedException {
+        if (intervalNanos == 0) {
+            return;
+        }
+
+        long wait;
+
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (next < now) {
+                next = now;
+            }
+            wait = next - now;
+            next += intervalNanos;
+        }
+
+        if (wait > 0) {
+            NANOSECONDS.sleep(wait);
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+#!/usr/bin/env bash
+#
+# Copyright (c) 2021 President and Fellows of Harvard College
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#   http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+#
+
+# Build an AppCDS archive of the application from its executable jar.
+#
+#   cds.sh target/verify-<version>.jar target/cds
+#
+# Explodes the jar into plain jars on a fixed class path, as class data sharing only archives
+# classes loaded from jars on the class path, runs the application once to list the classes loaded
+# through startup and warm-up, and dumps them into verify.jsa. Run with verify.sh in the output
+# directory, by the same JVM that built the archive.
+
+set -euo pipefail
+
+if [ $# -ne 2 ]; then
+  echo "Usage: $0 <executable jar> <output directory>" >&2
+  exit 1
+fi
+
+JAR="$(cd "$(dirname "$1")" && pwd)/$(basename "$1")"
+OUT="$2"
+BIN="${JAVA_HOME:+$JAVA_HOME/bin/}"
+SCRIPTS="$(cd "$(dirname "$0")" && pwd)"
+
+rm -rf "$OUT"
+mkdir -p "$OUT/exploded" "$OUT/lib"
+cd "$OUT"
+
+(cd exploded && "${BIN}jar" xf "$JAR")
+
+"${BIN}jar" --create --file lib/verify.jar -C exploded/BOOT-INF/classes .
+
+# class path in the order of the jar's classpath index, application classes first
+CLASSPATH="lib/verify.jar"
+for entry in $(sed -n 's/^- "BOOT-INF\/lib\/\(.*\)"$/\1/p' exploded/BOOT-INF/classpath.idx); do
+  mv "exploded/BOOT-INF/lib/$entry" lib/
+  CLASSPATH="$CLASSPATH:lib/$entry"
+done
+
+echo "$CLASSPATH" > classpath
+sed -n 's/^Start-Class: *\([^[:space:]]*\).*$/\1/p' exploded/META-INF/MANIFEST.MF > main-class
+rm -rf exploded
+
+# training run, exiting once started and warmed up without connecting to S3
+"${BIN}java" -Xshare:off -XX:DumpLoadedClassList=verify.classlist -cp "$CLASSPATH" "$(cat main-class)" \
+  --server.port=0 \
+  --audit.enabled=false \
+  --spring.main.lazy-initialization=false \
+  --spring.mvc.servlet.load-on-startup=1 \
+  --verify.warmup.enabled=true \
+  --verify.warmup.connections=0 \
+  --verify.warmup.exit=true
+
+"${BIN}java" -Xshare:dump -XX:SharedClassListFile=verify.classlist -XX:SharedArchiveFile=verify.jsa \
+  -cp "$CLASSPATH"
+
+cp "$SCRIPTS/verify.sh" .
@@ -0,0 +1,75 @@
+#!/usr/bin/env bash
+#
+# Copyright (c) 2021 President and Fellows of Harvard College
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#   http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+#
+
+# Compare startup time and memory footprint of ways to run the application.
+#
+#   startup.sh <runs> <port> <command> [arguments]
+#
+#   startup.sh 5 9001 java -jar target/verify-<version>.jar
+#   startup.sh 5 9001 target/cds/verify.sh
+#
+# Starts the command the given number of times with --server.port=<port>, measuring milliseconds
+# from launch until /actuator/health/readiness reports UP, and the resident set size of the process
+# once ready. Prints each run and the median of both.
+
+set -euo pipefail
+
+if [ $# -lt 3 ]; then
+  echo "Usage: $0 <runs> <port> <command> [arguments]" >&2
+  exit 1
+fi
+
+RUNS="$1"
+PORT="$2"
+shift 2
+
+now() {
+  date +%s%3N
+}
+
+median() {
+  sort -n | awk '{ values[NR] = $1 } END { print values[int((NR + 1) / 2)] }'
+}
+
+STARTUP=()
+RSS=()
+
+for run in $(seq 1 "$RUNS"); do
+  start=$(now)
+  "$@" --server.port="$PORT" > /dev/null 2>&1 &
+  pid=$!
+
+  until curl -sf "http://localhost:$PORT/actuator/health/readiness" > /dev/null 2>&1; do
+    if ! kill -0 "$pid" 2> /dev/null; then
+      echo "Command exited before ready" >&2
+      exit 1
+    fi
+    sleep 0.05
+  done
+
+  ready=$(( $(now) - start ))
+  rss=$(awk '/^VmRSS:/ { print int($2 / 1024) }' "/proc/$pid/status")
+
+  kill "$pid"
+  wait "$pid" 2> /dev/null || true
+
+  echo "run $run: ready in $ready ms, RSS $rss MB"
+  STARTUP+=("$ready")
+  RSS+=("$rss")
+done
+
+echo "median: ready in $(printf '%s\n' "${STARTUP[@]}" | median) ms, RSS $(printf '%s\n' "${RSS[@]}" | median) MB"
@@ -0,0 +1,31 @@
+#!/usr/bin/env bash
+#
+# Copyright (c) 2021 President and Fellows of Harvard College
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#   http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+#
+
+# Run the application from the output directory of cds.sh with its AppCDS archive.
+#
+#   verify.sh [application arguments]
+#
+# JVM options are taken from JAVA_OPTS. The archive is ignored with a warning if this JVM did not
+# build it, rather than failing to start.
+
+set -euo pipefail
+
+cd "$(dirname "$0")"
+
+# shellcheck disable=SC2086
+exec "${JAVA_HOME:+$JAVA_HOME/bin/}java" ${JAVA_OPTS:-} -Xshare:auto -XX:SharedArchiveFile=verify.jsa \
+  -cp "$(cat classpath)" "$(cat main-class)" "$@"
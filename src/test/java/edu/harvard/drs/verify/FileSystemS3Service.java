@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.harvard.drs.verify.config.AwsConfig;
+import edu.harvard.drs.verify.dto.OcflInventory;
+import edu.harvard.drs.verify.dto.VerificationStats;
+import edu.harvard.drs.verify.service.InventoryCodec;
+import edu.harvard.drs.verify.service.S3Service;
+import edu.harvard.drs.verify.service.SharedCache;
+import edu.harvard.drs.verify.utility.KeyUtility;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.codec.digest.DigestUtils;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+/**
+ * S3 service serving test inventories from the file system in place of a bucket.
+ */
+public class FileSystemS3Service extends S3Service {
+
+    public static final Path ROOT = Path.of("src/test/resources/inventory");
+
+    private final Map<String, Path> objects = new TreeMap<>();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final InventoryCodec inventoryCodec = new InventoryCodec();
+
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * File system S3 service of test inventories.
+     *
+     * @throws IOException failed to walk test inventories
+     */
+    public FileSystemS3Service() throws IOException {
+        this(null);
+    }
+
+    /**
+     * File system S3 service of test inventories with shared cache.
+     *
+     * @param sharedCache cache shared by replicas, null for none
+     * @throws IOException failed to walk test inventories
+     */
+    public FileSystemS3Service(SharedCache sharedCache) throws IOException {
+        super(new AwsConfig(), null, sharedCache, new InventoryCodec());
+
+        try (Stream<Path> roots = Files.list(ROOT)) {
+            for (Path root : roots.filter(Files::isDirectory).collect(Collectors.toList())) {
+                Long id = Long.valueOf(root.getFileName().toString());
+                try (Stream<Path> files = Files.walk(root)) {
+                    files.filter(Files::isRegularFile)
+                        .filter(file -> !file.getFileName().toString().equals("verify.json"))
+                        .forEach(file -> objects.put(
+                            KeyUtility.buildKey(id, root.relativize(file).toString()),
+                            file
+                        ));
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove object from the simulated bucket.
+     *
+     * @param key object key
+     */
+    public void remove(String key) {
+        objects.remove(key);
+    }
+
+    /**
+     * Number of requests served.
+     *
+     * @return request count
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    @Override
+    public OcflInventory fetchInventory(Long id, VerificationStats stats) throws IOException {
+        String key = KeyUtility.buildKey(id, KeyUtility.INVENTORY);
+        long start = System.nanoTime();
+
+        Path path = path(key);
+
+        try (InputStream is = Files.newInputStream(path)) {
+            OcflInventory inventory = objectMapper.readValue(is, OcflInventory.class);
+            inventory.setEtag(DigestUtils.md5Hex(Files.readAllBytes(path)));
+
+            return inventory;
+        } finally {
+            stats.recordS3Request(key, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public OcflInventory fetchInventory(Long id, VerificationStats stats, BiConsumer<String, String> headState)
+        throws IOException {
+        if (headState == null) {
+            return fetchInventory(id, stats);
+        }
+
+        String key = KeyUtility.buildKey(id, KeyUtility.INVENTORY);
+        long start = System.nanoTime();
+
+        Path path = path(key);
+
+        try (InputStream is = Files.newInputStream(path)) {
+            OcflInventory inventory = inventoryCodec.readJson(is, headState);
+            inventory.setEtag(DigestUtils.md5Hex(Files.readAllBytes(path)));
+
+            return inventory;
+        } finally {
+            stats.recordS3Request(key, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    protected String requestHeadObjectEtag(String key) {
+        try (InputStream is = Files.newInputStream(path(key))) {
+            return DigestUtils.md5Hex(is);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    protected String requestHeadObjectEtag(String key, Duration apiCallTimeout) {
+        return requestHeadObjectEtag(key);
+    }
+
+    @Override
+    public List<String> listPrefixes(String prefix, String startAfter) {
+        requests.incrementAndGet();
+
+        return objects.keySet()
+            .stream()
+            .filter(key -> key.startsWith(prefix))
+            .filter(key -> startAfter == null || key.compareTo(startAfter) > 0)
+            .filter(key -> key.indexOf('/', prefix.length()) >= 0)
+            .map(key -> key.substring(0, key.indexOf('/', prefix.length()) + 1))
+            .distinct()
+            .limit(2)
+            .collect(Collectors.toList());
+    }
+
+    private Path path(String key) {
+        requests.incrementAndGet();
+
+        Path path = objects.get(key);
+        if (path == null) {
+            throw NoSuchKeyException.builder()
+                .message(key)
+                .build();
+        }
+
+        return path;
+    }
+
+}
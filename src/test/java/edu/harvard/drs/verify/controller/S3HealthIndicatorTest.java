@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.harvard.drs.verify.config.AwsConfig;
+import edu.harvard.drs.verify.service.S3Service;
+import edu.harvard.drs.verify.service.S3TargetRegistry;
+import edu.harvard.drs.verify.utility.CircuitBreaker;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+/**
+ * S3 health indicator tests.
+ */
+public class S3HealthIndicatorTest {
+
+    private final AtomicInteger probes = new AtomicInteger();
+
+    @Test
+    public void testUp() {
+        Map<String, S3Service> targets = new LinkedHashMap<>();
+        targets.put(S3TargetRegistry.DEFAULT_TARGET, service(false));
+
+        Health health = new S3HealthIndicator(new S3TargetRegistry(targets)).health();
+
+        assertEquals(Status.UP, health.getStatus());
+
+        Map<?, ?> details = (Map<?, ?>) health.getDetails().get(S3TargetRegistry.DEFAULT_TARGET);
+        assertEquals("drs-preservation", details.get("bucket"));
+        assertEquals(2.0, details.get("latency"));
+    }
+
+    @Test
+    public void testDownWhenTargetUnreachable() {
+        Map<String, S3Service> targets = new LinkedHashMap<>();
+        targets.put(S3TargetRegistry.DEFAULT_TARGET, service(false));
+        targets.put("replica", service(true));
+
+        Health health = new S3HealthIndicator(new S3TargetRegistry(targets)).health();
+
+        assertEquals(Status.DOWN, health.getStatus());
+
+        Map<?, ?> details = (Map<?, ?>) health.getDetails().get("replica");
+        assertTrue(details.get("error").toString().contains("Unable to execute HTTP request"));
+    }
+
+    @Test
+    public void testProbeReused() {
+        Map<String, S3Service> targets = new LinkedHashMap<>();
+        targets.put(S3TargetRegistry.DEFAULT_TARGET, service(false));
+        S3HealthIndicator healthIndicator = new S3HealthIndicator(new S3TargetRegistry(targets));
+
+        healthIndicator.health();
+        healthIndicator.health();
+
+        assertEquals(1, probes.get());
+    }
+
+    @Test
+    public void testUpWhenCircuitOpen() {
+        Map<String, S3Service> targets = new LinkedHashMap<>();
+        targets.put(S3TargetRegistry.DEFAULT_TARGET, new S3Service(new AwsConfig()) {
+            @Override
+            public long probe() {
+                return 2_000_000;
+            }
+
+            @Override
+            public CircuitBreaker.State getCircuitState() {
+                return CircuitBreaker.State.OPEN;
+            }
+        });
+
+        Health health = new S3HealthIndicator(new S3TargetRegistry(targets)).health();
+
+        assertEquals(Status.UP, health.getStatus());
+
+        Map<?, ?> details = (Map<?, ?>) health.getDetails().get(S3TargetRegistry.DEFAULT_TARGET);
+        assertEquals(CircuitBreaker.State.OPEN, details.get("circuit"));
+    }
+
+    private S3Service service(boolean unreachable) {
+        return new S3Service(new AwsConfig()) {
+            @Override
+            public long probe() {
+                probes.incrementAndGet();
+                if (unreachable) {
+                    throw SdkClientException.create("Unable to execute HTTP request");
+                }
+                return 2_000_000;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import edu.harvard.drs.verify.FileSystemS3Config;
+import edu.harvard.drs.verify.FileSystemS3Service;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+/**
+ * Verify controller compressed and binary content type tests.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(FileSystemS3Config.class)
+public class VerifyControllerEncodingTest {
+
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+
+    private static final MediaType CBOR = MediaType.valueOf("application/cbor");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private Map<String, String> input;
+
+    /**
+     * Setup verify input.
+     *
+     * @throws IOException something went wrong
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        input = new ObjectMapper().readValue(
+            Files.readString(FileSystemS3Service.ROOT.resolve("1254624/verify.json")),
+            new TypeReference<Map<String, String>>() {}
+        );
+    }
+
+    @Test
+    public void shouldVerifyGzip() throws Exception {
+        perform(post("/verify/1254624")
+            .content(gzip(new ObjectMapper().writeValueAsBytes(input)))
+            .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    public void shouldVerifyGzipBadRequest() throws Exception {
+        perform(post("/verify/1254624")
+            .content(new ObjectMapper().writeValueAsBytes(input))
+            .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void shouldVerifySmile() throws Exception {
+        perform(post("/verify/1254624")
+            .content(new ObjectMapper(new SmileFactory()).writeValueAsBytes(input))
+            .contentType(SMILE)
+            .accept(SMILE))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    public void shouldVerifyGzipCborConflict() throws Exception {
+        ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+        input.put("descriptor/400000252_mets.xml", "52fe5cdbf844ebc72fc5d1e10f036280");
+
+        MvcResult result = perform(post("/verify/1254624")
+            .content(gzip(cbor.writeValueAsBytes(input)))
+            .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+            .contentType(CBOR)
+            .accept(CBOR))
+            .andExpect(status().isConflict())
+            .andExpect(content().contentType(CBOR))
+            .andReturn();
+
+        Map<String, Map<String, String>> errors = cbor.readValue(
+            result.getResponse().getContentAsByteArray(),
+            new TypeReference<Map<String, Map<String, String>>>() {}
+        );
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.containsKey("descriptor/400000252_mets.xml"));
+        assertEquals("Checksums do not match", errors.get("descriptor/400000252_mets.xml").get("error"));
+    }
+
+    private byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(os)) {
+            gzip.write(bytes);
+        }
+
+        return os.toByteArray();
+    }
+
+    /**
+     * Perform request, dispatching the result of a verification continuing off the request thread.
+     */
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        if (!result.getRequest().isAsyncStarted()) {
+            return actions;
+        }
+
+        result.getAsyncResult();
+
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
+}
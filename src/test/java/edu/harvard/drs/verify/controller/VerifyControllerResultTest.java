@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.controller;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.jayway.jsonpath.JsonPath;
+import edu.harvard.drs.verify.FileSystemS3Service;
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.service.AdmissionService;
+import edu.harvard.drs.verify.service.LedgerService;
+import edu.harvard.drs.verify.service.ResultStore;
+import edu.harvard.drs.verify.service.S3TargetRegistry;
+import edu.harvard.drs.verify.service.S3WorkScheduler;
+import edu.harvard.drs.verify.service.VerifyService;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+/**
+ * Verify controller summarized and stored result tests.
+ */
+public class VerifyControllerResultTest {
+
+    @TempDir
+    Path directory;
+
+    private MockMvc mockMvc;
+
+    /**
+     * Setup verify controller responding with at most one error.
+     *
+     * @throws IOException something went wrong
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        VerifyConfig verifyConfig = new VerifyConfig();
+        verifyConfig.getResults().setMaxErrors(1);
+        verifyConfig.getResults().setMaxPageSize(3);
+        verifyConfig.getResults().setDirectory(directory.toString());
+
+        ResultStore resultStore = new ResultStore(verifyConfig);
+
+        VerifyController controller = new VerifyController();
+        VerifyService verifyService = new VerifyService(
+            new S3TargetRegistry(Map.of(S3TargetRegistry.DEFAULT_TARGET, new FileSystemS3Service())),
+            new S3WorkScheduler(verifyConfig),
+            new LedgerService(verifyConfig),
+            resultStore
+        );
+        ReflectionTestUtils.setField(controller, "verifyService", verifyService);
+        ReflectionTestUtils.setField(controller, "admissionService", new AdmissionService(verifyConfig));
+        ReflectionTestUtils.setField(controller, "resultStore", resultStore);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    public void shouldSummarizeAndPageErrors() throws Exception {
+        MvcResult result = perform(post("/verify/1254624")
+            .content("{}")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isConflict())
+            .andExpect(header().string(HttpHeaders.LOCATION, containsString("/verify/results/")))
+            .andExpect(jsonPath("$.total").value(4))
+            .andExpect(jsonPath("$.counts['Missing input checksum']").value(4))
+            .andExpect(jsonPath("$.errors.length()").value(1))
+            .andReturn();
+
+        String resultId = JsonPath.read(result.getResponse().getContentAsString(), "$.resultId");
+
+        perform(get("/verify/results/{resultId}?limit=3", resultId)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(3))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("offset=3")));
+
+        perform(get("/verify/results/{resultId}?offset=3&limit=3", resultId)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(header().doesNotExist(HttpHeaders.LINK));
+
+        perform(get("/verify/results/{resultId}?limit=10", resultId)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(3))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("offset=3&limit=3")));
+
+        perform(get("/verify/results/{resultId}?offset=4", resultId)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(0))
+            .andExpect(header().doesNotExist(HttpHeaders.LINK));
+
+        perform(get("/verify/results/{resultId}?offset=-1", resultId))
+            .andExpect(status().isBadRequest());
+
+        perform(get("/verify/results/{resultId}?limit=0", resultId))
+            .andExpect(status().isBadRequest());
+
+        MvcResult download = perform(get("/verify/results/{resultId}/download", resultId))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(VerifyController.NDJSON))
+            .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, startsWith("attachment")))
+            .andReturn();
+
+        assertEquals(4, download.getResponse().getContentAsString().lines().count());
+    }
+
+    @Test
+    public void shouldRespondInFullWithinLimit() throws Exception {
+        perform(post("/verify/1254624/update")
+            .content("{\"descriptor/400000252_mets.xml\": \"52fe5cdbf844ebc72fc5d1e10f036280\"}")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isConflict())
+            .andExpect(header().doesNotExist(HttpHeaders.LOCATION))
+            .andExpect(jsonPath("$['descriptor/400000252_mets.xml'].error").value("Checksums do not match"));
+    }
+
+    @Test
+    public void shouldNotFindUnknownResult() throws Exception {
+        perform(get("/verify/results/{resultId}", "3f1c1d2e-8a8b-4c4d-9e9f-0a0b0c0d0e0f"))
+            .andExpect(status().isNotFound());
+
+        perform(get("/verify/results/{resultId}/download", "not-a-result"))
+            .andExpect(status().isNotFound());
+    }
+
+    /**
+     * Perform request, dispatching the result of a verification continuing off the request thread.
+     */
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        if (!result.getRequest().isAsyncStarted()) {
+            return actions;
+        }
+
+        result.getAsyncResult();
+
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
+}
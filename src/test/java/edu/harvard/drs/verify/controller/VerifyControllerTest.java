@@ -18,6 +18,7 @@ package edu.harvard.drs.verify.controller;
 
 import static java.lang.String.format;
 import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -39,6 +40,9 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import software.amazon.awssdk.services.s3.S3Client;
 
 /**
@@ -80,7 +84,7 @@ public class VerifyControllerTest {
     public void shouldVerify(Long id) throws Exception {
         Path path = Paths.get(format("src/test/resources/inventory/%s/verify.json", id));
         String content = new String(Files.readAllBytes(path));
-        this.mockMvc.perform(post(format("/verify/%s", id))
+        perform(post(format("/verify/%s", id))
             .content(content)
             .contentType(MediaType.APPLICATION_JSON)
             .accept(MediaType.APPLICATION_JSON))
@@ -96,7 +100,7 @@ public class VerifyControllerTest {
             + "\"metadata/400016240_structureMap.xml\": \"06328e877392db47a2b59bfa9614470c\","
             + "\"metadata/400016240_mods.xml\": \"2cffede56db677e4924b24622374ac3b\""
             + "}";
-        this.mockMvc.perform(post("/verify/100000020")
+        perform(post("/verify/100000020")
             .content(content)
             .contentType(MediaType.APPLICATION_JSON)
             .accept(MediaType.APPLICATION_JSON))
@@ -105,7 +109,7 @@ public class VerifyControllerTest {
 
     @Test
     public void shouldVerifyBadRequest() throws Exception {
-        this.mockMvc.perform(post("/verify/100000020")
+        perform(post("/verify/100000020")
             .contentType(MediaType.APPLICATION_JSON)
             .accept(MediaType.APPLICATION_JSON))
             .andExpect(status().isBadRequest());
@@ -120,7 +124,7 @@ public class VerifyControllerTest {
             + "\"metadata/400016240_structureMap.xml\": \"06328e877392db47a2b59bfa9614470c\","
             + "\"metadata/400016240_mods.xml\": \"2cffede56db677e4924b24622374ac3b\""
             + "}";
-        this.mockMvc.perform(post("/verify/100000020")
+        perform(post("/verify/100000020")
             .content(content)
             .contentType(MediaType.APPLICATION_JSON)
             .accept(MediaType.APPLICATION_JSON))
@@ -130,7 +134,7 @@ public class VerifyControllerTest {
     @Test
     public void shouldVerifyNotFound() throws Exception {
         String content = "{}";
-        this.mockMvc.perform(post("/verify/4265456")
+        perform(post("/verify/4265456")
             .content(content)
             .contentType(MediaType.APPLICATION_JSON)
             .accept(MediaType.APPLICATION_JSON))
@@ -144,7 +148,7 @@ public class VerifyControllerTest {
             + "\"metadata/400016240_structureMap.xml\": \"06328e877392db47a2b59bfa9614470c\","
             + "\"metadata/400016240_mods.xml\": \"2cffede56db677e4924b24622374ac3b\""
             + "}";
-        this.mockMvc.perform(post("/verify/100000020/update")
+        perform(post("/verify/100000020/update")
             .content(content)
             .contentType(MediaType.APPLICATION_JSON)
             .accept(MediaType.APPLICATION_JSON))
@@ -158,7 +162,7 @@ public class VerifyControllerTest {
             + "\"data/400016242.doc\": \"f9f645a42c784c2b3d2fe93ccbaf1992\""
             + "}"
             + "}";
-        this.mockMvc.perform(post("/verify/100000020/update")
+        perform(post("/verify/100000020/update")
             .content(content)
             .contentType(MediaType.APPLICATION_JSON)
             .accept(MediaType.APPLICATION_JSON))
@@ -167,7 +171,7 @@ public class VerifyControllerTest {
 
     @Test
     public void shouldVerifyUpdateBadRequest() throws Exception {
-        this.mockMvc.perform(post("/verify/100000020/update")
+        perform(post("/verify/100000020/update")
             .contentType(MediaType.APPLICATION_JSON)
             .accept(MediaType.APPLICATION_JSON))
             .andExpect(status().isBadRequest());
@@ -180,7 +184,7 @@ public class VerifyControllerTest {
             + "\"data/400016242.doc\": \"f9f645a42c784c2b3d2fe93ccbaf1992\","
             + "\"metadata/400016240_mods.xml\": \"2cffede56db677e4924b24622374ac3b\""
             + "}";
-        this.mockMvc.perform(post("/verify/100000020/update")
+        perform(post("/verify/100000020/update")
             .content(content)
             .contentType(MediaType.APPLICATION_JSON)
             .accept(MediaType.APPLICATION_JSON))
@@ -190,11 +194,26 @@ public class VerifyControllerTest {
     @Test
     public void shouldVerifyUpdateNotFound() throws Exception {
         String content = "{}";
-        this.mockMvc.perform(post("/verify/4265456/update")
+        perform(post("/verify/4265456/update")
             .content(content)
             .contentType(MediaType.APPLICATION_JSON)
             .accept(MediaType.APPLICATION_JSON))
             .andExpect(status().isNotFound());
     }
 
+    /**
+     * Perform request, dispatching the result of a verification continuing off the request thread.
+     */
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        if (!result.getRequest().isAsyncStarted()) {
+            return actions;
+        }
+
+        result.getAsyncResult();
+
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
 }
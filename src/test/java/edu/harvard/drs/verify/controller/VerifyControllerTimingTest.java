@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.controller;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import edu.harvard.drs.verify.FileSystemS3Service;
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.dto.OcflInventory;
+import edu.harvard.drs.verify.dto.VerificationStats;
+import edu.harvard.drs.verify.exception.S3UnavailableException;
+import edu.harvard.drs.verify.service.AdmissionService;
+import edu.harvard.drs.verify.service.LedgerService;
+import edu.harvard.drs.verify.service.ResultStore;
+import edu.harvard.drs.verify.service.S3TargetRegistry;
+import edu.harvard.drs.verify.service.S3WorkScheduler;
+import edu.harvard.drs.verify.service.VerifyService;
+import edu.harvard.drs.verify.utility.Deadline;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+/**
+ * Verify controller Server-Timing and stats tests.
+ */
+public class VerifyControllerTimingTest {
+
+    private VerifyController controller;
+
+    private MockMvc mockMvc;
+
+    private String content;
+
+    /**
+     * Setup verify controller against file system S3 service.
+     *
+     * @throws IOException something went wrong
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        controller = new VerifyController();
+        VerifyService verifyService = new VerifyService(
+            new S3TargetRegistry(Map.of(S3TargetRegistry.DEFAULT_TARGET, new FileSystemS3Service())),
+            new S3WorkScheduler(new VerifyConfig()),
+            new LedgerService(new VerifyConfig()),
+            new ResultStore(new VerifyConfig())
+        );
+        ReflectionTestUtils.setField(controller, "verifyService", verifyService);
+        ReflectionTestUtils.setField(controller, "admissionService", new AdmissionService(new VerifyConfig()));
+
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+        content = Files.readString(FileSystemS3Service.ROOT.resolve("1254624/verify.json"));
+    }
+
+    @Test
+    public void shouldRespondWithServerTiming() throws Exception {
+        perform(post("/verify/1254624")
+            .content(content)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(content().string(""))
+            .andExpect(header().string(VerifyController.SERVER_TIMING, containsString("s3;desc=\"5 requests\"")))
+            .andExpect(header().string(VerifyController.SERVER_TIMING, containsString("inventory;dur=")))
+            .andExpect(header().string(VerifyController.SERVER_TIMING, containsString("total;dur=")));
+    }
+
+    @Test
+    public void shouldRespondWithStats() throws Exception {
+        perform(post("/verify/1254624?stats=true")
+            .content(content)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.s3Requests").value(5))
+            .andExpect(jsonPath("$.s3SlowestKey").isString())
+            .andExpect(jsonPath("$.total").isNumber());
+    }
+
+    @Test
+    public void shouldRespondWithServerTimingOnConflict() throws Exception {
+        perform(post("/verify/1254624/update")
+            .content("{\"descriptor/400000252_mets.xml\": \"52fe5cdbf844ebc72fc5d1e10f036280\"}")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isConflict())
+            .andExpect(header().string(VerifyController.SERVER_TIMING, containsString("s3;desc=\"2 requests\"")));
+    }
+
+    @Test
+    public void shouldRejectWhenOverloaded() throws Exception {
+        VerifyConfig verifyConfig = new VerifyConfig();
+        verifyConfig.getAdmission().setMaxInFlight(0);
+        ReflectionTestUtils.setField(controller, "admissionService", new AdmissionService(verifyConfig));
+
+        perform(post("/verify/1254624")
+            .content(content)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isTooManyRequests())
+            .andExpect(header().string(VerifyController.RETRY_AFTER, "1"))
+            .andExpect(header().doesNotExist(VerifyController.SERVER_TIMING));
+    }
+
+    @Test
+    public void shouldFailFastWhenS3Unavailable() throws Exception {
+        FileSystemS3Service unavailable = new FileSystemS3Service() {
+            @Override
+            public OcflInventory fetchInventory(Long id, VerificationStats stats) {
+                throw new S3UnavailableException("S3 circuit breaker of bucket drs-preservation open", 12);
+            }
+        };
+        VerifyService verifyService = new VerifyService(
+            new S3TargetRegistry(Map.of(S3TargetRegistry.DEFAULT_TARGET, unavailable)),
+            new S3WorkScheduler(new VerifyConfig()),
+            new LedgerService(new VerifyConfig()),
+            new ResultStore(new VerifyConfig())
+        );
+        ReflectionTestUtils.setField(controller, "verifyService", verifyService);
+
+        perform(post("/verify/1254624")
+            .content(content)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().string(VerifyController.RETRY_AFTER, "12"));
+    }
+
+    @Test
+    public void shouldTimeOutPastDeadline() throws Exception {
+        FileSystemS3Service slow = new FileSystemS3Service() {
+            @Override
+            public OcflInventory fetchInventory(Long id, VerificationStats stats) throws IOException {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.fetchInventory(id, stats);
+            }
+        };
+        VerifyService verifyService = new VerifyService(
+            new S3TargetRegistry(Map.of(S3TargetRegistry.DEFAULT_TARGET, slow)),
+            new S3WorkScheduler(new VerifyConfig()),
+            new LedgerService(new VerifyConfig()),
+            new ResultStore(new VerifyConfig())
+        );
+        ReflectionTestUtils.setField(controller, "verifyService", verifyService);
+
+        perform(post("/verify/1254624")
+            .header(Deadline.HEADER, "50ms")
+            .content(content)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isGatewayTimeout())
+            .andExpect(content().string("Deadline exceeded verifying object 1254624"));
+    }
+
+    @Test
+    public void shouldCancelQueuedRequestsWhenClientDisconnects() throws Exception {
+        AtomicInteger heads = new AtomicInteger();
+        CountDownLatch requested = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FileSystemS3Service blocking = new FileSystemS3Service() {
+            @Override
+            protected String requestHeadObjectEtag(String key, Duration apiCallTimeout) {
+                heads.incrementAndGet();
+                requested.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.requestHeadObjectEtag(key, apiCallTimeout);
+            }
+        };
+        VerifyConfig verifyConfig = new VerifyConfig();
+        verifyConfig.getScheduler().setWorkers(1);
+        VerifyService verifyService = new VerifyService(
+            new S3TargetRegistry(Map.of(S3TargetRegistry.DEFAULT_TARGET, blocking)),
+            new S3WorkScheduler(verifyConfig),
+            new LedgerService(verifyConfig),
+            new ResultStore(verifyConfig)
+        );
+        ReflectionTestUtils.setField(controller, "verifyService", verifyService);
+
+        MvcResult result = mockMvc.perform(post("/verify/1254624")
+            .content(content)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        try {
+            assertTrue(requested.await(5, TimeUnit.SECONDS));
+
+            // client goes away while the first of four head requests is in flight
+            MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+            for (AsyncListener listener : asyncContext.getListeners()) {
+                listener.onError(new AsyncEvent(asyncContext, new IOException("Connection reset by peer")));
+            }
+        } finally {
+            release.countDown();
+        }
+
+        long waitUntil = System.currentTimeMillis() + 5000;
+        while (result.getResponse().getHeader(VerifyController.SERVER_TIMING) == null
+            && System.currentTimeMillis() < waitUntil) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(result.getResponse().containsHeader(VerifyController.SERVER_TIMING));
+        assertEquals(1, heads.get());
+    }
+
+    @Test
+    public void shouldRejectInvalidTimeout() throws Exception {
+        perform(post("/verify/1254624")
+            .header(Deadline.HEADER, "soon")
+            .content(content)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Perform request, dispatching the result of a verification continuing off the request thread.
+     */
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        if (!result.getRequest().isAsyncStarted()) {
+            return actions;
+        }
+
+        result.getAsyncResult();
+
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
+}
@@ -0,0 +1,494 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.harvard.drs.verify.FileSystemS3Service;
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.dto.BatchRequest;
+import edu.harvard.drs.verify.dto.BatchResult;
+import edu.harvard.drs.verify.dto.VerificationError;
+import edu.harvard.drs.verify.grpc.Checksum;
+import edu.harvard.drs.verify.grpc.FileResult;
+import edu.harvard.drs.verify.grpc.ObjectResult;
+import edu.harvard.drs.verify.grpc.Status;
+import edu.harvard.drs.verify.grpc.VerifyRequest;
+import edu.harvard.drs.verify.grpc.VerifyResponse;
+import edu.harvard.drs.verify.grpc.VerifyStreamGrpc;
+import edu.harvard.drs.verify.service.BatchVerifyService;
+import edu.harvard.drs.verify.service.LedgerService;
+import edu.harvard.drs.verify.service.ResultStore;
+import edu.harvard.drs.verify.service.S3TargetRegistry;
+import edu.harvard.drs.verify.service.S3WorkScheduler;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.StreamObserver;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Verify gRPC controller streaming tests, in process.
+ */
+public class VerifyGrpcControllerTest {
+
+    @TempDir
+    Path directory;
+
+    private Server server;
+
+    private ManagedChannel channel;
+
+    private Map<String, String> input;
+
+    private VerifyConfig verifyConfig;
+
+    private CountDownLatch verified;
+
+    /**
+     * Setup in process gRPC server of verify gRPC controller against file system S3 service.
+     *
+     * @throws IOException something went wrong
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        verifyConfig = new VerifyConfig();
+        verifyConfig.getGrpc().setMaxInFlight(1);
+        verifyConfig.getGrpc().setMaxOpenObjects(2);
+        verifyConfig.getGrpc().setMaxChecksums(6);
+        verifyConfig.getResults().setDirectory(directory.toString());
+
+        start(new FileSystemS3Service());
+
+        input = new ObjectMapper().readValue(
+            FileSystemS3Service.ROOT.resolve("1254624/verify.json").toFile(),
+            new TypeReference<Map<String, String>>() { }
+        );
+    }
+
+    private void start(FileSystemS3Service s3Service) throws IOException {
+        verified = new CountDownLatch(1);
+        BatchVerifyService batchVerifyService = new BatchVerifyService(
+            new S3TargetRegistry(Map.of(S3TargetRegistry.DEFAULT_TARGET, s3Service)),
+            new S3WorkScheduler(verifyConfig),
+            new LedgerService(verifyConfig),
+            new ResultStore(verifyConfig),
+            verifyConfig
+        ) {
+            @Override
+            public BatchResult verify(BatchRequest request, BiConsumer<String, Optional<VerificationError>> files) {
+                try {
+                    return super.verify(request, files);
+                } finally {
+                    verified.countDown();
+                }
+            }
+        };
+
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+            .addService(new VerifyGrpcController(batchVerifyService, verifyConfig))
+            .build()
+            .start();
+        channel = InProcessChannelBuilder.forName(name).build();
+    }
+
+    /**
+     * Shutdown in process gRPC server.
+     *
+     * @throws InterruptedException interrupted awaiting termination
+     */
+    @AfterEach
+    public void cleanup() throws InterruptedException {
+        channel.shutdownNow();
+        server.shutdownNow();
+        server.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testStreamObjectAcrossRequests() throws Exception {
+        List<Checksum> checksums = checksums(input);
+
+        List<VerifyResponse> responses = verify(List.of(
+            VerifyRequest.newBuilder()
+                .setId(1254624)
+                .addAllChecksums(checksums.subList(0, 2))
+                .build(),
+            VerifyRequest.newBuilder()
+                .setId(1254624)
+                .addAllChecksums(checksums.subList(2, checksums.size()))
+                .setLast(true)
+                .build()
+        ));
+
+        assertEquals(input.size() + 1, responses.size());
+
+        List<FileResult> files = responses.subList(0, input.size())
+            .stream()
+            .map(VerifyResponse::getFile)
+            .collect(Collectors.toList());
+        assertTrue(files.stream().allMatch(FileResult::getPassed));
+        assertEquals(
+            checksums.stream().map(Checksum::getPath).collect(Collectors.toList()),
+            files.stream().map(FileResult::getPath).collect(Collectors.toList())
+        );
+
+        ObjectResult object = responses.get(input.size()).getObject();
+        assertEquals(1254624, responses.get(input.size()).getId());
+        assertEquals(Status.PASSED, object.getStatus());
+        assertEquals(0, object.getErrors());
+    }
+
+    @Test
+    public void testStreamFileResults() throws Exception {
+        List<VerifyResponse> responses = verify(List.of(
+            VerifyRequest.newBuilder()
+                .setId(1254624)
+                .setUpdate(true)
+                .addAllChecksums(checksums(Map.of(
+                    "descriptor/400000252_mets.xml", "52fe5cdbf844ebc72fc5d1e10f036280",
+                    "data/400000254.txt", "872c1b7d198907a3f3f9e6735b32f0ee"
+                )))
+                .setLast(true)
+                .build()
+        ));
+
+        assertEquals(3, responses.size());
+
+        Map<String, FileResult> files = files(responses);
+
+        FileResult failed = files.get("descriptor/400000252_mets.xml");
+        assertFalse(failed.getPassed());
+        assertEquals("Checksums do not match", failed.getError());
+        assertEquals("52fe5cdbf844ebc72fc5d1e10f036280", failed.getExpected());
+
+        FileResult passed = files.get("data/400000254.txt");
+        assertTrue(passed.getPassed());
+
+        assertEquals(Status.FAILED, responses.get(2).getObject().getStatus());
+        assertEquals(1, responses.get(2).getObject().getErrors());
+    }
+
+    @Test
+    public void testStreamPassedFilesOfSummarizedFailure() throws Exception {
+        cleanup();
+        verifyConfig.getResults().setMaxErrors(1);
+        start(new FileSystemS3Service());
+
+        List<VerifyResponse> responses = verify(List.of(
+            VerifyRequest.newBuilder()
+                .setId(1254624)
+                .setUpdate(true)
+                .addAllChecksums(checksums(Map.of(
+                    "descriptor/400000252_mets.xml", "52fe5cdbf844ebc72fc5d1e10f036280",
+                    "data/400000254.txt", "872c1b7d198907a3f3f9e6735b32f0ef",
+                    "metadata/400000254_textMD.xml", "0aff68fa16c9be40ca946f403e4e5180"
+                )))
+                .setLast(true)
+                .build()
+        ));
+
+        assertEquals(4, responses.size());
+
+        Map<String, FileResult> files = files(responses);
+        assertFalse(files.get("descriptor/400000252_mets.xml").getPassed());
+        assertFalse(files.get("data/400000254.txt").getPassed());
+        assertTrue(files.get("metadata/400000254_textMD.xml").getPassed());
+
+        ObjectResult object = responses.get(3).getObject();
+        assertEquals(Status.FAILED, object.getStatus());
+        assertEquals(2, object.getErrors());
+        assertFalse(object.getResultId().isEmpty());
+    }
+
+    @Test
+    public void testStreamFileResultsAsVerified() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        restart(release);
+
+        List<VerifyResponse> responses = new CopyOnWriteArrayList<>();
+        CompletableFuture<List<VerifyResponse>> completed = new CompletableFuture<>();
+        StreamObserver<VerifyRequest> stream = VerifyStreamGrpc.newStub(channel)
+            .verify(observer(responses, completed));
+        stream.onNext(VerifyRequest.newBuilder()
+            .setId(1254624)
+            .addAllChecksums(checksums(input))
+            .setLast(true)
+            .build());
+        stream.onCompleted();
+
+        try {
+            // first file responded to while the second is still being requested
+            long waitUntil = System.currentTimeMillis() + 5000;
+            while (responses.isEmpty() && System.currentTimeMillis() < waitUntil) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, responses.size());
+            assertTrue(responses.get(0).getFile().getPassed());
+            assertFalse(completed.isDone());
+        } finally {
+            release.countDown();
+        }
+
+        assertEquals(input.size() + 1, completed.get(10, TimeUnit.SECONDS).size());
+    }
+
+    @Test
+    public void testCancelObjectsInFlight() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger heads = restart(release);
+
+        StreamObserver<VerifyRequest> stream = VerifyStreamGrpc.newStub(channel)
+            .verify(observer(new CopyOnWriteArrayList<>(), new CompletableFuture<>()));
+        stream.onNext(VerifyRequest.newBuilder()
+            .setId(1254624)
+            .addAllChecksums(checksums(input))
+            .setLast(true)
+            .build());
+
+        try {
+            long waitUntil = System.currentTimeMillis() + 5000;
+            while (heads.get() < 2 && System.currentTimeMillis() < waitUntil) {
+                Thread.sleep(10);
+            }
+
+            // client goes away while the second of four head requests is in flight
+            ((ClientCallStreamObserver<VerifyRequest>) stream).cancel("Client gone", null);
+
+            assertTrue(verified.await(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+
+        assertEquals(2, heads.get());
+    }
+
+    @Test
+    public void testWaitForClientToRead() throws Exception {
+        List<VerifyResponse> responses = new CopyOnWriteArrayList<>();
+        CompletableFuture<List<VerifyResponse>> completed = new CompletableFuture<>();
+        AtomicReference<ClientCallStreamObserver<VerifyRequest>> requests = new AtomicReference<>();
+
+        StreamObserver<VerifyResponse> observer = observer(responses, completed);
+        StreamObserver<VerifyRequest> stream = VerifyStreamGrpc.newStub(channel)
+            .verify(new ClientResponseObserver<VerifyRequest, VerifyResponse>() {
+                @Override
+                public void beforeStart(ClientCallStreamObserver<VerifyRequest> requestStream) {
+                    requests.set(requestStream);
+                    requestStream.disableAutoRequestWithInitial(1);
+                }
+
+                @Override
+                public void onNext(VerifyResponse response) {
+                    observer.onNext(response);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    observer.onError(t);
+                }
+
+                @Override
+                public void onCompleted() {
+                    observer.onCompleted();
+                }
+            });
+        stream.onNext(VerifyRequest.newBuilder()
+            .setId(1254624)
+            .addAllChecksums(checksums(input))
+            .setLast(true)
+            .build());
+        stream.onCompleted();
+
+        // verification holds back further responses until the client reads them
+        Thread.sleep(500);
+        assertEquals(1, responses.size());
+        assertFalse(completed.isDone());
+
+        requests.get().request(Integer.MAX_VALUE);
+
+        assertEquals(input.size() + 1, completed.get(10, TimeUnit.SECONDS).size());
+    }
+
+    @Test
+    public void testVerifyObjectsWithoutLastOnHalfClose() throws Exception {
+        List<VerifyResponse> responses = verify(List.of(
+            VerifyRequest.newBuilder()
+                .setId(1254624)
+                .setUpdate(true)
+                .addChecksums(checksum("data/400000254.txt", "872c1b7d198907a3f3f9e6735b32f0ee"))
+                .build(),
+            VerifyRequest.newBuilder()
+                .setId(4265456)
+                .setLast(true)
+                .build()
+        ));
+
+        Map<Long, Status> statuses = responses.stream()
+            .filter(VerifyResponse::hasObject)
+            .collect(Collectors.toMap(VerifyResponse::getId, response -> response.getObject().getStatus()));
+
+        assertEquals(Map.of(1254624L, Status.PASSED, 4265456L, Status.NOT_FOUND), statuses);
+    }
+
+    @Test
+    public void testTooManyOpenObjects() {
+        List<VerifyRequest> requests = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            requests.add(VerifyRequest.newBuilder()
+                .setId(id)
+                .addChecksums(checksum("data/400000254.txt", "872c1b7d198907a3f3f9e6735b32f0ee"))
+                .build());
+        }
+
+        assertExhausted(requests, "More than 2 objects open");
+    }
+
+    @Test
+    public void testTooManyChecksums() {
+        List<Checksum> checksums = new ArrayList<>(checksums(input));
+        checksums.add(checksum("data/extra1.txt", "0"));
+        checksums.add(checksum("data/extra2.txt", "0"));
+        checksums.add(checksum("data/extra3.txt", "0"));
+
+        assertExhausted(List.of(
+            VerifyRequest.newBuilder()
+                .setId(1254624)
+                .addAllChecksums(checksums)
+                .setLast(true)
+                .build()
+        ), "More than 6 checksums open");
+    }
+
+    private void assertExhausted(List<VerifyRequest> requests, String description) {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> verify(requests));
+
+        io.grpc.Status status = ((StatusRuntimeException) e.getCause()).getStatus();
+        assertEquals(io.grpc.Status.Code.RESOURCE_EXHAUSTED, status.getCode());
+        assertEquals(description, status.getDescription());
+    }
+
+    /**
+     * Restart server against file system S3 service of a single worker, holding the second head
+     * request until released.
+     */
+    private AtomicInteger restart(CountDownLatch release) throws Exception {
+        cleanup();
+        verifyConfig.getScheduler().setWorkers(1);
+
+        AtomicInteger heads = new AtomicInteger();
+        start(new FileSystemS3Service() {
+            @Override
+            protected String requestHeadObjectEtag(String key, Duration apiCallTimeout) {
+                if (heads.incrementAndGet() == 2) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.requestHeadObjectEtag(key, apiCallTimeout);
+            }
+        });
+
+        return heads;
+    }
+
+    private List<VerifyResponse> verify(List<VerifyRequest> requests) throws Exception {
+        CompletableFuture<List<VerifyResponse>> completed = new CompletableFuture<>();
+
+        StreamObserver<VerifyRequest> stream = VerifyStreamGrpc.newStub(channel)
+            .verify(observer(new ArrayList<>(), completed));
+
+        requests.forEach(stream::onNext);
+        stream.onCompleted();
+
+        return completed.get(10, TimeUnit.SECONDS);
+    }
+
+    private static StreamObserver<VerifyResponse> observer(
+        List<VerifyResponse> responses,
+        CompletableFuture<List<VerifyResponse>> completed
+    ) {
+        return new StreamObserver<>() {
+            @Override
+            public void onNext(VerifyResponse response) {
+                responses.add(response);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                completed.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+                completed.complete(responses);
+            }
+        };
+    }
+
+    private static Map<String, FileResult> files(List<VerifyResponse> responses) {
+        return responses.stream()
+            .filter(VerifyResponse::hasFile)
+            .map(VerifyResponse::getFile)
+            .collect(Collectors.toMap(FileResult::getPath, file -> file));
+    }
+
+    private static List<Checksum> checksums(Map<String, String> input) {
+        return input.entrySet()
+            .stream()
+            .map(entry -> checksum(entry.getKey(), entry.getValue()))
+            .collect(Collectors.toList());
+    }
+
+    private static Checksum checksum(String path, String value) {
+        return Checksum.newBuilder()
+            .setPath(path)
+            .setValue(value)
+            .build();
+    }
+
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.dto;
+
+import static java.lang.String.format;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Compact inventory tests.
+ */
+public class CompactInventoryTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Compact inventory lookups match OCFL inventory.
+     *
+     * @param id object id
+     * @throws IOException could not read inventory
+     */
+    @ParameterizedTest
+    @ValueSource(longs = { 100000020L, 101000305L, 101081248L, 1254624L, 1254654L, 1254709L })
+    public void testCompactInventoryFind(Long id) throws IOException {
+        OcflInventory inventory = read(id);
+        CompactInventory compact = CompactInventory.of(inventory);
+
+        assertEquals(inventory.getId(), compact.getId());
+        assertEquals(inventory.getDigestAlgorithm(), compact.getDigestAlgorithm());
+
+        int size = 0;
+        for (Map.Entry<String, List<String>> entry : inventory.getVersions()
+            .get(inventory.getHead())
+            .getState()
+            .entrySet()) {
+            for (String statePath : entry.getValue()) {
+                assertTrue(compact.contains(statePath));
+                assertEquals(inventory.find(statePath), compact.find(statePath));
+                assertEquals(entry.getKey(), compact.digest(statePath).get());
+                size++;
+            }
+        }
+
+        assertEquals(size, compact.size());
+        assertEquals(size, compact.getStatePaths().size());
+        assertFalse(compact.contains("data/974358.pdf"));
+        assertFalse(compact.find("data/974358.pdf").isPresent());
+        assertFalse(compact.digest("data/974358.pdf").isPresent());
+    }
+
+    /**
+     * Compact inventory retains less than the inventory json.
+     *
+     * @param id object id
+     * @throws IOException could not read inventory
+     */
+    @ParameterizedTest
+    @ValueSource(longs = { 101000305L, 1254654L })
+    public void testCompactInventoryRetainedBytes(Long id) throws IOException {
+        File file = new File(format("src/test/resources/inventory/%s/inventory.json", id));
+        CompactInventory compact = CompactInventory.of(read(id));
+
+        assertTrue(compact.retainedBytes() > 64L * compact.size());
+        assertTrue(compact.retainedBytes() < file.length());
+    }
+
+    @Test
+    public void testCompactInventoryTooManyContentPrefixes() {
+        OcflInventory inventory = new OcflInventory();
+        inventory.setId("URN-3:HUL.DRS.OBJECT:1");
+        inventory.setHead("v1");
+        OcflVersion version = new OcflVersion();
+        inventory.getVersions().put("v1", version);
+
+        for (int i = 0; i <= Short.MAX_VALUE + 1; i++) {
+            String digest = format("%032x", i);
+            inventory.getManifest().put(digest, List.of(format("v%d/content/%d.txt", i, i)));
+            version.getState().put(digest, List.of(format("%d.txt", i)));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> CompactInventory.of(inventory));
+    }
+
+    private OcflInventory read(Long id) throws IOException {
+        File file = new File(format("src/test/resources/inventory/%s/inventory.json", id));
+
+        return objectMapper.readValue(file, OcflInventory.class);
+    }
+
+}
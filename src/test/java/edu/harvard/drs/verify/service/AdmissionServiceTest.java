@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.exception.OverloadedException;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Admission service tests.
+ */
+public class AdmissionServiceTest {
+
+    private AdmissionService admissionService;
+
+    /**
+     * Setup admission service limited to two verifications and 100 pending requests.
+     */
+    @BeforeEach
+    public void setup() {
+        VerifyConfig verifyConfig = new VerifyConfig();
+        verifyConfig.getAdmission().setMaxInFlight(2);
+        verifyConfig.getAdmission().setMaxPendingRequests(100);
+
+        admissionService = new AdmissionService(verifyConfig);
+    }
+
+    @Test
+    public void testMaxInFlight() throws OverloadedException {
+        try (AdmissionService.Permit first = admissionService.admit(1);
+             AdmissionService.Permit second = admissionService.admit(1)) {
+            assertEquals(2, admissionService.getInFlight());
+
+            OverloadedException e = assertThrows(OverloadedException.class, () -> admissionService.admit(1));
+            assertEquals(1, e.getRetryAfter());
+        }
+
+        assertEquals(0, admissionService.getInFlight());
+        assertEquals(0, admissionService.getPendingRequests());
+
+        admissionService.admit(1).close();
+    }
+
+    @Test
+    public void testMaxPendingRequests() throws OverloadedException {
+        try (AdmissionService.Permit first = admissionService.admit(80)) {
+            assertEquals(80, admissionService.getPendingRequests());
+
+            assertThrows(OverloadedException.class, () -> admissionService.admit(21));
+
+            admissionService.admit(20).close();
+        }
+    }
+
+    @Test
+    public void testAdmitLargeWhenIdle() throws OverloadedException {
+        try (AdmissionService.Permit large = admissionService.admit(1000)) {
+            assertEquals(1000, admissionService.getPendingRequests());
+        }
+    }
+
+    @Test
+    public void testPermitReleasesCompletedRequests() throws OverloadedException {
+        try (AdmissionService.Permit large = admissionService.admit(100)) {
+            assertThrows(OverloadedException.class, () -> admissionService.admit(10));
+
+            for (int i = 0; i < 10; i++) {
+                large.completed();
+            }
+            assertEquals(90, admissionService.getPendingRequests());
+            assertEquals(1, admissionService.getInFlight());
+
+            admissionService.admit(10).close();
+        }
+
+        assertEquals(0, admissionService.getPendingRequests());
+    }
+
+    @Test
+    public void testPermitCompletesAdmittedRequestsOnly() throws OverloadedException {
+        AdmissionService.Permit permit = admissionService.admit(1);
+        permit.completed();
+        permit.completed();
+        permit.close();
+        permit.completed();
+
+        assertEquals(0, admissionService.getInFlight());
+        assertEquals(0, admissionService.getPendingRequests());
+    }
+
+    @Test
+    public void testRequests() {
+        Map<String, String> input = Map.of("a", "1", "b", "2");
+
+        assertEquals(2, AdmissionService.requests(input, List.of(), null));
+        assertEquals(4, AdmissionService.requests(input, List.of("default", "replica"), null));
+        assertEquals(1, AdmissionService.requests(input, List.of("default", "replica"), "sha512"));
+    }
+
+    @Test
+    public void testPermitClosedOnce() throws OverloadedException {
+        AdmissionService.Permit permit = admissionService.admit(10);
+        permit.close();
+        permit.close();
+
+        assertEquals(0, admissionService.getInFlight());
+        assertEquals(0, admissionService.getPendingRequests());
+    }
+
+}
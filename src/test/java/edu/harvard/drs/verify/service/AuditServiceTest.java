@@ -0,0 +1,152 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.harvard.drs.verify.FileSystemS3Service;
+import edu.harvard.drs.verify.config.AuditConfig;
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.dto.AuditCheckpoint;
+import edu.harvard.drs.verify.dto.AuditStatus;
+import edu.harvard.drs.verify.dto.VerificationError;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Audit service tests.
+ */
+public class AuditServiceTest {
+
+    @TempDir
+    Path checkpointDirectory;
+
+    private FileSystemS3Service s3Service;
+
+    private S3WorkScheduler scheduler;
+
+    private AuditService auditService;
+
+    /**
+     * Setup audit service tests.
+     *
+     * @throws IOException something went wrong
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        AuditConfig auditConfig = new AuditConfig();
+        auditConfig.setRequestsPerSecond(0);
+        auditConfig.setCheckpointDirectory(checkpointDirectory.toString());
+
+        s3Service = new FileSystemS3Service();
+        scheduler = new S3WorkScheduler(new VerifyConfig());
+        auditService = new AuditService(auditConfig, s3Service, scheduler);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testAudit() throws IOException, InterruptedException {
+        Map<String, VerificationError> errors = auditService.audit(1254624L);
+
+        assertTrue(errors.isEmpty());
+    }
+
+    @Test
+    public void testAuditMissingContent() throws IOException, InterruptedException {
+        s3Service.remove("4264/5210/1254624/v00001/content/data/400000254.txt");
+
+        Map<String, VerificationError> errors = auditService.audit(1254624L);
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.containsKey("data/400000254.txt"));
+    }
+
+    @Test
+    public void testAuditAll() throws InterruptedException {
+        assertTrue(auditService.start());
+        assertFalse(auditService.start());
+
+        AuditStatus status = await();
+
+        assertEquals(5, status.getPassed());
+        assertEquals(1, status.getFailed());
+        assertEquals(10, status.getShards().size());
+        assertTrue(status.getShards().values().stream().allMatch(AuditCheckpoint.Shard::isComplete));
+        assertFalse(Files.exists(checkpointDirectory.resolve("checkpoint.json")));
+        assertTrue(Files.exists(checkpointDirectory.resolve("failures.ndjson")));
+    }
+
+    @Test
+    public void testAuditRestart() throws InterruptedException {
+        assertTrue(auditService.start());
+        assertTrue(auditService.stop());
+        assertTrue(auditService.start());
+
+        AuditStatus status = await();
+
+        // workers of the stopped run must not finish the restarted one
+        assertTrue(status.getShards().values().stream().allMatch(AuditCheckpoint.Shard::isComplete));
+        assertFalse(Files.exists(checkpointDirectory.resolve("checkpoint.json")));
+    }
+
+    @Test
+    public void testAuditResume() throws IOException, InterruptedException {
+        AuditCheckpoint checkpoint = new AuditCheckpoint();
+        checkpoint.setStarted("2021-10-20T02:45:19.597393Z");
+        AuditService.SHARDS.forEach(shard -> {
+            AuditCheckpoint.Shard progress = new AuditCheckpoint.Shard();
+            progress.setComplete(!shard.equals("4"));
+            checkpoint.getShards().put(shard, progress);
+        });
+        checkpoint.getShards().get("4").setLastKey("4264/5210/1254624/v00001/content/metadata/400000254_textMD.xml");
+
+        new ObjectMapper().writeValue(checkpointDirectory.resolve("checkpoint.json").toFile(), checkpoint);
+
+        assertTrue(auditService.start());
+
+        AuditStatus status = await();
+
+        assertEquals("2021-10-20T02:45:19.597393Z", status.getStarted());
+        assertEquals(0, status.getPassed());
+        assertEquals(1, status.getFailed());
+    }
+
+    private AuditStatus await() throws InterruptedException {
+        for (int i = 0; i < 100 && auditService.status().isRunning(); i++) {
+            Thread.sleep(100);
+        }
+
+        AuditStatus status = auditService.status();
+        assertFalse(status.isRunning());
+
+        return status;
+    }
+
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.harvard.drs.verify.FileSystemS3Service;
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.dto.BatchRequest;
+import edu.harvard.drs.verify.dto.BatchResult;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Batch verify service tests.
+ */
+public class BatchVerifyServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private BatchVerifyService batchVerifyService;
+
+    private String input;
+
+    /**
+     * Setup batch verify service against file system S3 service.
+     *
+     * @throws IOException something went wrong
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        VerifyConfig verifyConfig = new VerifyConfig();
+        verifyConfig.getBatch().setConcurrency(2);
+        verifyConfig.getResults().setDirectory(directory.toString());
+
+        batchVerifyService = new BatchVerifyService(
+            new S3TargetRegistry(Map.of(S3TargetRegistry.DEFAULT_TARGET, new FileSystemS3Service())),
+            new S3WorkScheduler(verifyConfig),
+            new LedgerService(verifyConfig),
+            new ResultStore(verifyConfig),
+            verifyConfig
+        );
+
+        String checksums = Files.readString(FileSystemS3Service.ROOT.resolve("1254624/verify.json"))
+            .replaceAll("\\s+", "");
+
+        input = String.join("\n",
+            "{\"id\":1254624,\"input\":" + checksums + "}",
+            "{\"id\":1254624,\"update\":true,\"input\":{\"descriptor/400000252_mets.xml\":\"0\"}}",
+            "",
+            "{\"id\":4265456,\"input\":{}}",
+            "not json",
+            "{\"input\":{}}",
+            "{\"id\":1254624,\"update\":true,\"input\":{\"data/400000254.txt\":\"872c1b7d198907a3f3f9e6735b32f0ee\"}}"
+        );
+    }
+
+    @Test
+    public void testRun() throws Exception {
+        StringWriter output = new StringWriter();
+
+        final Map<BatchResult.Status, Long> counts = batchVerifyService.run(reader(input), output, 0);
+
+        List<BatchResult> results = parse(output.toString());
+        assertEquals(List.of(0L, 1L, 3L, 4L, 5L, 6L), offsets(results));
+        assertEquals(BatchResult.Status.PASSED, results.get(0).getStatus());
+        assertEquals(BatchResult.Status.FAILED, results.get(1).getStatus());
+        assertEquals(
+            "Checksums do not match",
+            results.get(1).getErrors().get("descriptor/400000252_mets.xml").getError()
+        );
+        assertEquals(BatchResult.Status.NOT_FOUND, results.get(2).getStatus());
+        assertEquals(BatchResult.Status.INVALID, results.get(3).getStatus());
+        assertEquals(BatchResult.Status.INVALID, results.get(4).getStatus());
+        assertNull(results.get(4).getId());
+        assertEquals(BatchResult.Status.PASSED, results.get(5).getStatus());
+
+        assertEquals(2L, counts.get(BatchResult.Status.PASSED));
+        assertEquals(1L, counts.get(BatchResult.Status.FAILED));
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        Path output = directory.resolve("results.ndjson");
+        assertEquals(0, batchVerifyService.resumeOffset(output));
+
+        StringWriter interrupted = new StringWriter();
+        String firstLines = String.join("\n", input.lines().limit(4).toArray(String[]::new));
+        batchVerifyService.run(reader(firstLines), interrupted, 0);
+        Files.writeString(output, interrupted.toString());
+
+        long offset = batchVerifyService.resumeOffset(output);
+        assertEquals(4, offset);
+
+        StringWriter resumed = new StringWriter();
+        batchVerifyService.run(reader(input), resumed, offset);
+
+        assertEquals(List.of(4L, 5L, 6L), offsets(parse(resumed.toString())));
+    }
+
+    @Test
+    public void testResumeAfterTruncatedLine() throws Exception {
+        Path output = directory.resolve("results.ndjson");
+
+        StringWriter interrupted = new StringWriter();
+        String firstLines = String.join("\n", input.lines().limit(4).toArray(String[]::new));
+        batchVerifyService.run(reader(firstLines), interrupted, 0);
+        // interrupted while writing the result of the next line
+        Files.writeString(output, interrupted + "{\"offset\":4,\"id\":1254624,\"sta");
+
+        assertEquals(4, batchVerifyService.resumeOffset(output));
+        assertEquals(interrupted.toString(), Files.readString(output));
+
+        Files.writeString(output, interrupted.toString().stripTrailing());
+
+        assertEquals(4, batchVerifyService.resumeOffset(output));
+        assertEquals(interrupted.toString(), Files.readString(output));
+    }
+
+    @Test
+    public void testAdmittedWithVerifyApi() throws Exception {
+        VerifyConfig verifyConfig = new VerifyConfig();
+        verifyConfig.getAdmission().setMaxInFlight(1);
+        verifyConfig.getResults().setDirectory(directory.toString());
+
+        AdmissionService admissionService = new AdmissionService(verifyConfig);
+        BatchVerifyService admitted = new BatchVerifyService(
+            new S3TargetRegistry(Map.of(S3TargetRegistry.DEFAULT_TARGET, new FileSystemS3Service())),
+            new S3WorkScheduler(verifyConfig),
+            new LedgerService(verifyConfig),
+            new ResultStore(verifyConfig),
+            admissionService,
+            verifyConfig
+        );
+
+        BatchRequest request = new BatchRequest();
+        request.setId(1254624L);
+        request.setUpdate(true);
+        request.setInput(Map.of("descriptor/400000252_mets.xml", "0"));
+        request.setTimeout("100ms");
+
+        try (AdmissionService.Permit verifying = admissionService.admit(1)) {
+            // suggested retry of a second outlasts the timeout
+            BatchResult overloaded = admitted.verify(request);
+            assertEquals(BatchResult.Status.ERROR, overloaded.getStatus());
+            assertEquals("Overloaded with 1 verifications in flight", overloaded.getMessage());
+        }
+
+        assertEquals(BatchResult.Status.FAILED, admitted.verify(request).getStatus());
+        assertEquals(0, admissionService.getInFlight());
+        assertEquals(0, admissionService.getPendingRequests());
+    }
+
+    private BufferedReader reader(String content) {
+        return new BufferedReader(new StringReader(content));
+    }
+
+    private List<BatchResult> parse(String output) throws IOException {
+        List<BatchResult> results = new ArrayList<>();
+        for (String line : output.split("\n")) {
+            results.add(objectMapper.readValue(line, BatchResult.class));
+        }
+
+        return results;
+    }
+
+    private List<Long> offsets(List<BatchResult> results) {
+        List<Long> offsets = new ArrayList<>();
+        results.forEach(result -> offsets.add(result.getOffset()));
+
+        return offsets;
+    }
+
+}
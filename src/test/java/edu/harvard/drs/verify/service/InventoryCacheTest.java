@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.harvard.drs.verify.FileSystemS3Service;
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.dto.OcflInventory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Inventory cache tests.
+ */
+public class InventoryCacheTest {
+
+    private static final String BUCKET = "drs-preservation";
+
+    @TempDir
+    Path directory;
+
+    private VerifyConfig verifyConfig;
+
+    private OcflInventory inventory;
+
+    /**
+     * Setup enabled inventory cache config and test inventory.
+     *
+     * @throws IOException something went wrong
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        verifyConfig = new VerifyConfig();
+        verifyConfig.getInventoryCache().setEnabled(true);
+        verifyConfig.getInventoryCache().setDirectory(directory.toString());
+
+        inventory = new ObjectMapper().readValue(
+            FileSystemS3Service.ROOT.resolve("1254624/inventory.json").toFile(),
+            OcflInventory.class
+        );
+    }
+
+    @Test
+    public void testPutGet() throws IOException {
+        InventoryCache cache = new InventoryCache(verifyConfig);
+        cache.put(BUCKET, 1254624L, "abc", inventory);
+
+        assertEquals(Optional.of("abc"), cache.etag(BUCKET, 1254624L));
+        assertEquals(Optional.empty(), cache.etag("other", 1254624L));
+
+        Optional<OcflInventory> cached = cache.get(BUCKET, 1254624L, "abc");
+
+        assertTrue(cached.isPresent());
+        assertEquals("abc", cached.get().getEtag());
+        cached.get().setEtag(null);
+        assertEquals(inventory, cached.get());
+
+        assertFalse(cache.get(BUCKET, 1254624L, "def").isPresent());
+    }
+
+    @Test
+    public void testReplaceEtag() throws IOException {
+        InventoryCache cache = new InventoryCache(verifyConfig);
+        cache.put(BUCKET, 1254624L, "abc", inventory);
+        cache.put(BUCKET, 1254624L, "def", inventory);
+        cache.put(BUCKET, 1254624L, "def", inventory);
+
+        assertEquals(Optional.of("def"), cache.etag(BUCKET, 1254624L));
+        assertTrue(cache.get(BUCKET, 1254624L, "def").isPresent());
+        assertEquals(1, Files.list(directory.resolve(BUCKET)).count());
+        assertEquals(Files.size(directory.resolve(BUCKET).resolve("1254624.def.smile")), cache.size());
+    }
+
+    @Test
+    public void testConcurrentPut() throws Exception {
+        InventoryCache cache = new InventoryCache(verifyConfig);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> puts = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                puts.add(executor.submit(() -> cache.put(BUCKET, 1254624L, "abc", inventory)));
+            }
+            for (Future<?> put : puts) {
+                put.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(cache.get(BUCKET, 1254624L, "abc").isPresent());
+        assertEquals(1, Files.list(directory.resolve(BUCKET)).count());
+    }
+
+    @Test
+    public void testWarmRestart() throws IOException {
+        InventoryCache cache = new InventoryCache(verifyConfig);
+        cache.put(BUCKET, 1254624L, "abc", inventory);
+        Files.writeString(directory.resolve(BUCKET).resolve("1254654.def.smile.tmp"), "partial");
+
+        InventoryCache restarted = new InventoryCache(verifyConfig);
+
+        assertEquals(cache.size(), restarted.size());
+        assertTrue(restarted.get(BUCKET, 1254624L, "abc").isPresent());
+        assertFalse(Files.exists(directory.resolve(BUCKET).resolve("1254654.def.smile.tmp")));
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() throws IOException {
+        InventoryCache cache = new InventoryCache(verifyConfig);
+        cache.put(BUCKET, 1L, "abc", inventory);
+        long size = cache.size();
+
+        verifyConfig.getInventoryCache().setMaxSize(DataSize.ofBytes(size * 2));
+        cache = new InventoryCache(verifyConfig);
+        cache.put(BUCKET, 2L, "abc", inventory);
+        cache.get(BUCKET, 1L, "abc");
+        cache.put(BUCKET, 3L, "abc", inventory);
+
+        assertEquals(size * 2, cache.size());
+        assertTrue(cache.etag(BUCKET, 1L).isPresent());
+        assertFalse(cache.etag(BUCKET, 2L).isPresent());
+        assertTrue(cache.etag(BUCKET, 3L).isPresent());
+        assertFalse(Files.exists(directory.resolve(BUCKET).resolve("2.abc.smile")));
+    }
+
+    @Test
+    public void testEvictUnreadable() throws IOException {
+        InventoryCache cache = new InventoryCache(verifyConfig);
+        cache.put(BUCKET, 1254624L, "abc", inventory);
+        Files.writeString(directory.resolve(BUCKET).resolve("1254624.abc.smile"), "corrupt");
+
+        assertFalse(cache.get(BUCKET, 1254624L, "abc").isPresent());
+        assertFalse(cache.etag(BUCKET, 1254624L).isPresent());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testUnreadableReplacedConcurrently() throws IOException {
+        AtomicReference<InventoryCache> cache = new AtomicReference<>();
+        InventoryCodec inventoryCodec = new InventoryCodec(verifyConfig) {
+            @Override
+            public OcflInventory readSmile(InputStream is) throws IOException {
+                if (cache.get().etag(BUCKET, 1254624L).filter("abc"::equals).isPresent()) {
+                    // replaced while read, deleting the file being read
+                    cache.get().put(BUCKET, 1254624L, "def", inventory);
+                    throw new IOException("deleted");
+                }
+                return super.readSmile(is);
+            }
+        };
+        cache.set(new InventoryCache(verifyConfig, inventoryCodec));
+        cache.get().put(BUCKET, 1254624L, "abc", inventory);
+
+        assertFalse(cache.get().get(BUCKET, 1254624L, "abc").isPresent());
+        assertEquals(Optional.of("def"), cache.get().etag(BUCKET, 1254624L));
+        assertTrue(cache.get().get(BUCKET, 1254624L, "def").isPresent());
+    }
+
+}
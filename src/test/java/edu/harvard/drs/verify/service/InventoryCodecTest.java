@@ -0,0 +1,292 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static java.lang.String.format;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.dto.OcflInventory;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.CountingInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Inventory codec tests.
+ */
+@Slf4j
+public class InventoryCodecTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Tuned codec parses bundled inventories the same as a plain object mapper.
+     *
+     * @param id object id
+     * @throws IOException could not read inventory
+     */
+    @ParameterizedTest
+    @ValueSource(longs = { 100000020L, 101000305L, 101081248L, 1254624L, 1254654L, 1254709L })
+    public void testReadJson(Long id) throws IOException {
+        File file = new File(format("src/test/resources/inventory/%s/inventory.json", id));
+        OcflInventory expected = objectMapper.readValue(file, OcflInventory.class);
+
+        for (InventoryCodec codec : new InventoryCodec[] { codec(true, false), codec(false, true) }) {
+            try (InputStream is = new FileInputStream(file)) {
+                assertEquals(expected, codec.readJson(is));
+            }
+        }
+    }
+
+    /**
+     * Streaming parse reads the same inventory and calls back every head state path in the manifest.
+     *
+     * @param id object id
+     * @throws IOException could not read inventory
+     */
+    @ParameterizedTest
+    @ValueSource(longs = { 100000020L, 101000305L, 101081248L, 1254624L, 1254654L, 1254709L })
+    public void testReadJsonStreaming(Long id) throws IOException {
+        File file = new File(format("src/test/resources/inventory/%s/inventory.json", id));
+        OcflInventory expected = objectMapper.readValue(file, OcflInventory.class);
+
+        for (InventoryCodec codec : new InventoryCodec[] { codec(true, false), codec(false, true) }) {
+            Map<String, String> headState = new HashMap<>();
+            try (InputStream is = new FileInputStream(file)) {
+                assertEquals(expected, codec.readJson(is, headState::put));
+            }
+
+            assertEquals(headState(expected), headState);
+        }
+    }
+
+    @Test
+    public void testReadJsonStreamingCallsBackWhileReading() throws IOException {
+        byte[] json = scale(101000305L, 100);
+        AtomicLong firstCallBack = new AtomicLong(-1);
+
+        CountingInputStream is = new CountingInputStream(new ByteArrayInputStream(json));
+        Map<String, String> headState = new HashMap<>();
+        OcflInventory inventory = codec(true, false).readJson(is, (statePath, contentPath) -> {
+            firstCallBack.compareAndSet(-1, is.getByteCount());
+            headState.put(statePath, contentPath);
+        });
+
+        assertEquals(headState(inventory), headState);
+        assertTrue(firstCallBack.get() > 0 && firstCallBack.get() < json.length, "first " + firstCallBack);
+    }
+
+    @Test
+    public void testReadJsonStreamingVersionsFirst() throws IOException {
+        ObjectNode json = (ObjectNode) objectMapper.readTree(
+            new File("src/test/resources/inventory/101000305/inventory.json")
+        );
+        ObjectNode reordered = objectMapper.createObjectNode();
+        reordered.set("versions", json.remove("versions"));
+        reordered.setAll(json);
+
+        Map<String, String> headState = new HashMap<>();
+        OcflInventory inventory = codec(true, false).readJson(
+            new ByteArrayInputStream(objectMapper.writeValueAsBytes(reordered)),
+            headState::put
+        );
+
+        assertEquals(objectMapper.treeToValue(reordered, OcflInventory.class), inventory);
+        assertEquals(headState(inventory), headState);
+    }
+
+    @Test
+    public void testReadJsonStreamingUnknownProperty() {
+        byte[] json = "{\"id\": \"1\", \"unknown\": true}".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(
+            UnrecognizedPropertyException.class,
+            () -> codec(true, false).readJson(new ByteArrayInputStream(json), (statePath, contentPath) -> { })
+        );
+    }
+
+    @Test
+    public void testSmileRoundTrip(@TempDir Path directory) throws IOException {
+        InventoryCodec codec = codec(true, true);
+        OcflInventory inventory = objectMapper.readValue(
+            new File("src/test/resources/inventory/101000305/inventory.json"),
+            OcflInventory.class
+        );
+
+        Path path = directory.resolve("inventory.smile");
+        codec.writeSmile(path, inventory);
+
+        try (InputStream is = new FileInputStream(path.toFile())) {
+            assertEquals(inventory, codec.readSmile(is));
+        }
+    }
+
+    @Test
+    public void testInternStrings() throws IOException {
+        byte[] json = scale(101000305L, 10);
+
+        OcflInventory plain = codec(true, false).readJson(new ByteArrayInputStream(json));
+        OcflInventory interned = codec(true, true).readJson(new ByteArrayInputStream(json));
+
+        assertEquals(plain, interned);
+        assertNotSame(statePath(plain, "v00001"), statePath(plain, "v00002"));
+        assertSame(statePath(interned, "v00001"), statePath(interned, "v00002"));
+
+        OcflInventory streamed = codec(true, true).readJson(new ByteArrayInputStream(json), (path, content) -> { });
+
+        assertEquals(plain, streamed);
+        assertSame(statePath(streamed, "v00001"), statePath(streamed, "v00002"));
+        assertSame(statePath(streamed, "v00001"), statePath(streamed, streamed.getHead()));
+    }
+
+    /**
+     * Parse throughput of inventories scaled up from a bundled inventory, plain object mapper against
+     * tuned codec. Logged rather than asserted, as timings on shared build hosts are noisy.
+     *
+     * @throws IOException could not read inventory
+     */
+    @Test
+    public void testScaledThroughput() throws IOException {
+        byte[] json = scale(101000305L, 1_000);
+        InventoryCodec codec = codec(true, false);
+
+        OcflInventory expected = objectMapper.readValue(json, OcflInventory.class);
+        assertEquals(expected, codec.readJson(new ByteArrayInputStream(json)));
+        assertTrue(expected.getManifest().size() > 8_000);
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < 5; i++) {
+                objectMapper.readValue(new ByteArrayInputStream(json), OcflInventory.class);
+            }
+            long plain = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < 5; i++) {
+                codec.readJson(new ByteArrayInputStream(json));
+            }
+            long tuned = System.nanoTime() - start;
+
+            log.info(
+                "{} byte inventory parse round {}: object mapper {} MB/s, codec {} MB/s",
+                json.length,
+                round,
+                mbps(5L * json.length, plain),
+                mbps(5L * json.length, tuned)
+            );
+        }
+    }
+
+    private InventoryCodec codec(boolean blackbird, boolean internStrings) {
+        VerifyConfig verifyConfig = new VerifyConfig();
+        verifyConfig.getCodec().setBlackbird(blackbird);
+        verifyConfig.getCodec().setInternStrings(internStrings);
+
+        return new InventoryCodec(verifyConfig);
+    }
+
+    private Map<String, String> headState(OcflInventory inventory) {
+        Map<String, String> headState = new HashMap<>();
+        inventory.getVersions()
+            .get(inventory.getHead())
+            .getState()
+            .values()
+            .stream()
+            .flatMap(List::stream)
+            .forEach(path -> inventory.find(path).ifPresent(contentPath -> headState.put(path, contentPath)));
+
+        return headState;
+    }
+
+    private long mbps(long bytes, long nanos) {
+        return bytes * 1_000 / nanos;
+    }
+
+    private String statePath(OcflInventory inventory, String version) {
+        return inventory.getVersions()
+            .get(version)
+            .getState()
+            .values()
+            .stream()
+            .flatMap(List::stream)
+            .filter(path -> path.startsWith("data/"))
+            .sorted()
+            .findFirst()
+            .get();
+    }
+
+    /**
+     * Scale bundled inventory by copying every file, with a distinct digest and path per copy, into
+     * the manifest, fixity and the state of every version.
+     */
+    private byte[] scale(Long id, int copies) throws IOException {
+        ObjectNode inventory = (ObjectNode) objectMapper.readTree(
+            new File(format("src/test/resources/inventory/%s/inventory.json", id))
+        );
+
+        scaleDigests((ObjectNode) inventory.get("manifest"), copies);
+        inventory.get("fixity").forEach(fixity -> scaleDigests((ObjectNode) fixity, copies));
+        inventory.get("versions").forEach(version -> scaleDigests((ObjectNode) version.get("state"), copies));
+
+        return objectMapper.writeValueAsBytes(inventory);
+    }
+
+    private void scaleDigests(ObjectNode digests, int copies) {
+        ObjectNode scaled = objectMapper.createObjectNode();
+
+        Iterator<Map.Entry<String, JsonNode>> entries = digests.fields();
+        while (entries.hasNext()) {
+            Map.Entry<String, JsonNode> entry = entries.next();
+            for (int copy = 0; copy < copies; copy++) {
+                String digest = entry.getKey();
+                String suffix = Integer.toHexString(copy);
+                ArrayNode paths = scaled.putArray(digest.substring(0, digest.length() - suffix.length()) + suffix);
+                for (JsonNode path : entry.getValue()) {
+                    paths.add(copy == 0 ? path.asText() : format("%s.%d", path.asText(), copy));
+                }
+            }
+        }
+
+        digests.removeAll();
+        digests.setAll(scaled);
+    }
+
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.harvard.drs.verify.FileSystemS3Service;
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.exception.VerificationException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Ledger service tests.
+ */
+public class LedgerServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private VerifyConfig verifyConfig;
+
+    private LedgerService ledgerService;
+
+    /**
+     * Setup enabled ledger in temporary directory.
+     *
+     * @throws IOException something went wrong
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        verifyConfig = new VerifyConfig();
+        verifyConfig.getLedger().setEnabled(true);
+        verifyConfig.getLedger().setDirectory(directory.toString());
+
+        ledgerService = new LedgerService(verifyConfig);
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        ledgerService.close();
+    }
+
+    @Test
+    public void testHash() {
+        String hash = ledgerService.hash(false, List.of("default"), Map.of("a", "1", "b", "2"));
+
+        assertEquals(hash, ledgerService.hash(false, List.of("default"), Map.of("b", "2", "a", "1")));
+        assertNotEquals(hash, ledgerService.hash(true, List.of("default"), Map.of("a", "1", "b", "2")));
+        assertNotEquals(hash, ledgerService.hash(false, List.of("replica"), Map.of("a", "1", "b", "2")));
+        assertNotEquals(hash, ledgerService.hash(false, List.of("default"), Map.of("a", "1", "b", "3")));
+        assertEquals(hash, ledgerService.hash(false, List.of("default"), null, Map.of("a", "1", "b", "2")));
+        assertNotEquals(hash, ledgerService.hash(false, List.of("default"), "md5", Map.of("a", "1", "b", "2")));
+    }
+
+    @Test
+    public void testPassed() {
+        ledgerService.record(1L, "etag", "input", true);
+
+        assertTrue(ledgerService.passed(1L, "input", () -> "etag"));
+        assertFalse(ledgerService.passed(1L, "other", () -> "etag"));
+        assertFalse(ledgerService.passed(1L, "input", () -> "changed"));
+        assertFalse(ledgerService.passed(2L, "input", () -> "etag"));
+    }
+
+    @Test
+    public void testInputsKeptApart() {
+        String ingest = ledgerService.hash(false, List.of("default"), Map.of("a", "1", "b", "2"));
+        String update = ledgerService.hash(true, List.of("default"), Map.of("b", "2"));
+
+        ledgerService.record(1L, "etag", ingest, true);
+        ledgerService.record(1L, "etag", update, true);
+
+        assertTrue(ledgerService.passed(1L, ingest, () -> "etag"));
+        assertTrue(ledgerService.passed(1L, update, () -> "etag"));
+        assertEquals(2, ledgerService.size());
+    }
+
+    @Test
+    public void testNoEtagRequestedWithoutEntry() {
+        ledgerService.record(1L, "etag", "input", true);
+
+        assertFalse(ledgerService.passed(1L, "other", () -> {
+            throw new AssertionError("eTag requested");
+        }));
+        assertFalse(ledgerService.passed(2L, "input", () -> {
+            throw new AssertionError("eTag requested");
+        }));
+    }
+
+    @Test
+    public void testFailed() {
+        ledgerService.record(1L, "etag", "input", false);
+
+        assertFalse(ledgerService.passed(1L, "input", () -> "etag"));
+    }
+
+    @Test
+    public void testStale() throws IOException {
+        ledgerService.close();
+        verifyConfig.getLedger().setFreshness(Duration.ZERO);
+        ledgerService = new LedgerService(verifyConfig);
+
+        ledgerService.record(1L, "etag", "input", true);
+
+        assertFalse(ledgerService.passed(1L, "input", () -> "etag"));
+        assertEquals(0, ledgerService.size());
+    }
+
+    @Test
+    public void testSweep() throws IOException {
+        ledgerService.record(1L, "etag", "input", true);
+        ledgerService.sweep();
+        assertEquals(1, ledgerService.size());
+
+        ledgerService.close();
+        verifyConfig.getLedger().setFreshness(Duration.ZERO);
+        ledgerService = new LedgerService(verifyConfig);
+
+        ledgerService.record(2L, "etag", "input", true);
+        ledgerService.sweep();
+        assertEquals(0, ledgerService.size());
+    }
+
+    @Test
+    public void testWithoutEtagValidation() throws IOException {
+        ledgerService.close();
+        verifyConfig.getLedger().setValidateEtag(false);
+        ledgerService = new LedgerService(verifyConfig);
+
+        ledgerService.record(1L, "etag", "input", true);
+
+        assertTrue(ledgerService.passed(1L, "input", () -> {
+            throw new AssertionError("eTag requested");
+        }));
+    }
+
+    @Test
+    public void testReloadAndCompact() throws IOException {
+        ledgerService.record(1L, "etag", "input", false);
+        ledgerService.record(1L, "etag", "input", true);
+        ledgerService.record(2L, "etag", "input", true);
+        ledgerService.close();
+
+        Path ledger = directory.resolve("ledger.ndjson");
+        Files.write(ledger, "{\"id\":3,\"etag\":".getBytes(UTF_8), APPEND);
+
+        ledgerService = new LedgerService(verifyConfig);
+
+        assertEquals(2, ledgerService.size());
+        assertTrue(ledgerService.passed(1L, "input", () -> "etag"));
+        assertEquals(2, Files.readAllLines(ledger).size());
+    }
+
+    @Test
+    public void testCompactDropsStale() throws IOException {
+        ledgerService.record(1L, "etag", "input", true);
+        ledgerService.close();
+
+        Path ledger = directory.resolve("ledger.ndjson");
+        String stale = "{\"id\":2,\"etag\":\"etag\",\"input\":\"input\",\"passed\":true,"
+            + "\"timestamp\":\"2021-01-01T00:00:00Z\"}\n";
+        Files.write(ledger, stale.getBytes(UTF_8), APPEND);
+
+        ledgerService = new LedgerService(verifyConfig);
+
+        assertEquals(1, ledgerService.size());
+        assertEquals(1, Files.readAllLines(ledger).size());
+    }
+
+    @Test
+    public void testVerifySkipsUnchanged() throws IOException, VerificationException {
+        FileSystemS3Service s3Service = new FileSystemS3Service();
+        S3WorkScheduler scheduler = new S3WorkScheduler(new VerifyConfig());
+
+        VerifyService verifyService = new VerifyService(
+            new S3TargetRegistry(Map.of(S3TargetRegistry.DEFAULT_TARGET, s3Service)),
+            scheduler,
+            ledgerService,
+            new ResultStore(new VerifyConfig())
+        );
+
+        Map<String, String> input = new ObjectMapper().readValue(
+            FileSystemS3Service.ROOT.resolve("1254624/verify.json").toFile(),
+            new TypeReference<Map<String, String>>() { }
+        );
+
+        try {
+            verifyService.verifyIngest(1254624L, input);
+            assertEquals(5, s3Service.getRequests());
+            assertEquals(null, verifyService.getStats().getLedger());
+
+            verifyService.verifyIngest(1254624L, input);
+            assertEquals(6, s3Service.getRequests());
+            assertEquals("hit", verifyService.getStats().getLedger());
+            assertTrue(verifyService.getStats().serverTiming().endsWith("ledger;desc=\"hit\""));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.dto.VerificationError;
+import edu.harvard.drs.verify.dto.VerificationSummary;
+import edu.harvard.drs.verify.exception.ResultNotFoundException;
+import edu.harvard.drs.verify.exception.VerificationException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Result store tests.
+ */
+public class ResultStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private ResultStore resultStore;
+
+    /**
+     * Setup result store responding with at most two errors.
+     */
+    @BeforeEach
+    public void setup() {
+        VerifyConfig verifyConfig = new VerifyConfig();
+        verifyConfig.getResults().setMaxErrors(2);
+        verifyConfig.getResults().setDirectory(directory.toString());
+        verifyConfig.getResults().setRetention(Duration.ofHours(1));
+
+        resultStore = new ResultStore(verifyConfig);
+    }
+
+    @Test
+    public void testWithinLimit() throws IOException {
+        VerificationException e;
+        try (ResultStore.Collector errors = resultStore.collector()) {
+            assertTrue(errors.isEmpty());
+
+            errors.add("data/a.txt", VerificationError.from("Missing input checksum"));
+            errors.add("data/b.txt", VerificationError.from("Missing input checksum"));
+
+            assertFalse(errors.isEmpty());
+            e = errors.failure();
+        }
+
+        assertFalse(e.getSummary().isPresent());
+        assertEquals(2, e.getErrors().size());
+        assertEquals(0, Files.list(directory).count());
+    }
+
+    @Test
+    public void testBeyondLimit() throws Exception {
+        VerificationException e;
+        try (ResultStore.Collector errors = resultStore.collector()) {
+            for (String path : List.of("data/a.txt", "data/b.txt", "data/c.txt", "data/d.txt")) {
+                errors.add(path, VerificationError.from("Missing input checksum"));
+            }
+            errors.add("data/e.txt", VerificationError.builder()
+                .error("Checksums do not match")
+                .expected("1")
+                .actual("2")
+                .build());
+
+            e = errors.failure();
+        }
+
+        VerificationSummary summary = e.getSummary().get();
+        assertEquals(5, summary.getTotal());
+        assertEquals(Map.of("Missing input checksum", 4L, "Checksums do not match", 1L), summary.getCounts());
+        assertEquals(List.of("data/a.txt", "data/b.txt"), List.copyOf(summary.getErrors().keySet()));
+
+        Map<String, VerificationError> all = resultStore.page(summary.getResultId(), 0, 10);
+        assertEquals(
+            List.of("data/a.txt", "data/b.txt", "data/c.txt", "data/d.txt", "data/e.txt"),
+            List.copyOf(all.keySet())
+        );
+        assertEquals("2", all.get("data/e.txt").getActual());
+
+        Map<String, VerificationError> page = resultStore.page(summary.getResultId(), 3, 1);
+        assertEquals(List.of("data/d.txt"), List.copyOf(page.keySet()));
+
+        assertThrows(IllegalArgumentException.class, () -> resultStore.page(summary.getResultId(), -1, 1));
+        assertThrows(IllegalArgumentException.class, () -> resultStore.page(summary.getResultId(), 0, 0));
+
+        assertTrue(Files.isRegularFile(resultStore.path(summary.getResultId())));
+    }
+
+    @Test
+    public void testIncompleteResultDiscarded() throws IOException {
+        try (ResultStore.Collector errors = resultStore.collector()) {
+            for (String path : List.of("data/a.txt", "data/b.txt", "data/c.txt")) {
+                errors.add(path, VerificationError.from("Missing input checksum"));
+            }
+            assertEquals(1, Files.list(directory).count());
+        }
+
+        assertEquals(0, Files.list(directory).count());
+    }
+
+    @Test
+    public void testResultNotFound() {
+        assertThrows(ResultNotFoundException.class, () -> resultStore.path("3f1c1d2e-8a8b-4c4d-9e9f-0a0b0c0d0e0f"));
+        assertThrows(ResultNotFoundException.class, () -> resultStore.path("../ledger/ledger"));
+    }
+
+    @Test
+    public void testSweep() throws Exception {
+        String expired = storedResultId();
+        final String retained = storedResultId();
+
+        Files.setLastModifiedTime(
+            resultStore.path(expired),
+            FileTime.fromMillis(System.currentTimeMillis() - Duration.ofHours(2).toMillis())
+        );
+
+        resultStore.sweep();
+
+        assertThrows(ResultNotFoundException.class, () -> resultStore.path(expired));
+        assertTrue(Files.isRegularFile(resultStore.path(retained)));
+    }
+
+    private String storedResultId() throws IOException {
+        try (ResultStore.Collector errors = resultStore.collector()) {
+            for (String path : List.of("data/a.txt", "data/b.txt", "data/c.txt")) {
+                errors.add(path, VerificationError.from("Missing input checksum"));
+            }
+
+            return errors.failure()
+                .getSummary()
+                .get()
+                .getResultId();
+        }
+    }
+
+}
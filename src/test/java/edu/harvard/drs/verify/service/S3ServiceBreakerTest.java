@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.harvard.drs.verify.config.AwsConfig;
+import edu.harvard.drs.verify.exception.S3UnavailableException;
+import edu.harvard.drs.verify.utility.CircuitBreaker;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+/**
+ * S3 service circuit breaker and bulkhead tests.
+ */
+public class S3ServiceBreakerTest {
+
+    @Test
+    public void testCircuitOpensOnClientErrors() {
+        AtomicInteger calls = new AtomicInteger();
+        S3Service s3Service = new S3Service(config()) {
+            @Override
+            protected String requestHeadObjectEtag(String key) {
+                calls.incrementAndGet();
+                throw SdkClientException.create("Unable to execute HTTP request");
+            }
+        };
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(SdkClientException.class, () -> s3Service.getHeadObjectEtag("key"));
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, s3Service.getCircuitState());
+
+        S3UnavailableException e = assertThrows(S3UnavailableException.class, () -> s3Service.getHeadObjectEtag("key"));
+        assertEquals(30, e.getRetryAfter());
+        assertEquals(5, calls.get());
+    }
+
+    @Test
+    public void testCircuitIgnoresNotFound() {
+        S3Service s3Service = new S3Service(config()) {
+            @Override
+            protected String requestHeadObjectEtag(String key) {
+                throw NoSuchKeyException.builder()
+                    .statusCode(404)
+                    .message(key)
+                    .build();
+            }
+        };
+
+        for (int i = 0; i < 10; i++) {
+            assertThrows(NoSuchKeyException.class, () -> s3Service.getHeadObjectEtag("key"));
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, s3Service.getCircuitState());
+    }
+
+    @Test
+    public void testBulkheadFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AwsConfig awsConfig = config();
+        awsConfig.getBulkhead().setMaxConcurrentCalls(1);
+        awsConfig.getBulkhead().setMaxWait(Duration.ofMillis(10));
+
+        S3Service s3Service = new S3Service(awsConfig) {
+            @Override
+            protected String requestHeadObjectEtag(String key) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return key;
+            }
+        };
+
+        final CompletableFuture<String> blocking = CompletableFuture.supplyAsync(
+            () -> s3Service.getHeadObjectEtag("first")
+        );
+        started.await();
+
+        assertThrows(S3UnavailableException.class, () -> s3Service.getHeadObjectEtag("second"));
+
+        release.countDown();
+        assertEquals("first", blocking.get());
+        assertEquals("third", s3Service.getHeadObjectEtag("third"));
+    }
+
+    private AwsConfig config() {
+        AwsConfig awsConfig = new AwsConfig();
+        awsConfig.getBreaker().setMinimumCalls(5);
+        awsConfig.getBreaker().setWindow(10);
+
+        return awsConfig;
+    }
+
+}
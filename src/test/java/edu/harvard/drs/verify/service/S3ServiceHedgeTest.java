@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.harvard.drs.verify.config.AwsConfig;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+/**
+ * S3 service hedged request tests.
+ */
+public class S3ServiceHedgeTest {
+
+    @Test
+    public void testHedgeWins() {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch released = new CountDownLatch(1);
+        S3Service s3Service = new S3Service(config(0.5)) {
+            @Override
+            protected String requestHeadObjectEtag(String key) {
+                if (calls.incrementAndGet() == 26) {
+                    // like a socket read, not aborted by interrupt
+                    awaitUninterruptibly(released);
+                }
+                return key;
+            }
+        };
+
+        try {
+            for (int i = 0; i < 25; i++) {
+                assertEquals("key" + i, s3Service.getHeadObjectEtag("key" + i));
+            }
+
+            long start = System.nanoTime();
+            assertEquals("slow", s3Service.getHeadObjectEtag("slow"));
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals(27, calls.get());
+            assertEquals(1, released.getCount());
+            assertTrue(elapsed < 2500, "elapsed " + elapsed);
+        } finally {
+            released.countDown();
+        }
+    }
+
+    @Test
+    public void testAttemptsOffCallingThread() {
+        List<String> threads = new CopyOnWriteArrayList<>();
+        CountDownLatch released = new CountDownLatch(1);
+        S3Service s3Service = new S3Service(config(0.5)) {
+            @Override
+            protected String requestHeadObjectEtag(String key) {
+                threads.add(Thread.currentThread().getName());
+                if (key.equals("slow") && threads.size() == 26) {
+                    awaitUninterruptibly(released);
+                }
+                return key;
+            }
+        };
+
+        try {
+            for (int i = 0; i < 25; i++) {
+                assertEquals("key" + i, s3Service.getHeadObjectEtag("key" + i));
+            }
+            assertEquals("slow", s3Service.getHeadObjectEtag("slow"));
+        } finally {
+            released.countDown();
+        }
+
+        assertEquals(List.of("s3-hedge", "s3-hedge"), threads.subList(25, 27));
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void testHedgeAfterFailedAttempt() {
+        AtomicInteger calls = new AtomicInteger();
+        S3Service s3Service = new S3Service(config(0.5)) {
+            @Override
+            protected String requestHeadObjectEtag(String key) {
+                if (calls.incrementAndGet() == 26) {
+                    sleep(200);
+                    throw NoSuchKeyException.builder()
+                        .message(key)
+                        .build();
+                }
+                return key;
+            }
+        };
+
+        for (int i = 0; i < 25; i++) {
+            assertEquals("key" + i, s3Service.getHeadObjectEtag("key" + i));
+        }
+
+        assertEquals("flaky", s3Service.getHeadObjectEtag("flaky"));
+        assertEquals(27, calls.get());
+    }
+
+    @Test
+    public void testHedgeBudgetExhausted() {
+        AtomicInteger calls = new AtomicInteger();
+        S3Service s3Service = new S3Service(config(0)) {
+            @Override
+            protected String requestHeadObjectEtag(String key) {
+                if (calls.incrementAndGet() > 25) {
+                    sleep(100);
+                }
+                return key;
+            }
+        };
+
+        for (int i = 0; i < 30; i++) {
+            assertEquals("key" + i, s3Service.getHeadObjectEtag("key" + i));
+        }
+
+        assertEquals(30, calls.get());
+    }
+
+    @Test
+    public void testHedgeFailure() {
+        S3Service s3Service = new S3Service(config(0.5)) {
+            @Override
+            protected String requestHeadObjectEtag(String key) {
+                throw NoSuchKeyException.builder()
+                    .message(key)
+                    .build();
+            }
+        };
+
+        assertThrows(NoSuchKeyException.class, () -> s3Service.getHeadObjectEtag("missing"));
+    }
+
+    private AwsConfig config(double budget) {
+        AwsConfig awsConfig = new AwsConfig();
+        awsConfig.getHedge().setEnabled(true);
+        awsConfig.getHedge().setMinDelay(Duration.ofMillis(10));
+        awsConfig.getHedge().setBudget(budget);
+
+        return awsConfig;
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch released) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                released.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.harvard.drs.verify.FileSystemS3Service;
+import edu.harvard.drs.verify.config.AwsConfig;
+import edu.harvard.drs.verify.dto.OcflInventory;
+import edu.harvard.drs.verify.exception.InvalidInventoryException;
+import edu.harvard.drs.verify.utility.CircuitBreaker;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+/**
+ * S3 service inventory sidecar digest tests.
+ */
+public class S3ServiceSidecarTest {
+
+    private static final String ID = "URN-3:HUL.DRS.OBJECT:1254624";
+
+    private final List<String> sidecarKeys = new CopyOnWriteArrayList<>();
+
+    private byte[] inventory;
+
+    private String sidecar;
+
+    /**
+     * Setup inventory and its sidecar.
+     *
+     * @throws IOException something went wrong
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        inventory = Files.readAllBytes(FileSystemS3Service.ROOT.resolve("1254624/inventory.json"));
+        sidecar = DigestUtils.sha512Hex(inventory) + "  inventory.json\n";
+    }
+
+    @Test
+    public void testValidInventory() throws IOException {
+        OcflInventory ocflInventory = s3Service(enabled()).fetchInventory(1254624L);
+
+        assertEquals(ID, ocflInventory.getId());
+        assertEquals("etag", ocflInventory.getEtag());
+        assertEquals(List.of("4264/5210/1254624/inventory.json.sha512"), sidecarKeys);
+    }
+
+    @Test
+    public void testValidInventoryWithTrailingWhitespace() throws IOException {
+        inventory = (new String(inventory, StandardCharsets.UTF_8) + "\n\n  \n").getBytes(StandardCharsets.UTF_8);
+        sidecar = DigestUtils.sha512Hex(inventory).toUpperCase() + "\tinventory.json";
+
+        assertEquals(ID, s3Service(enabled()).fetchInventory(1254624L).getId());
+    }
+
+    @Test
+    public void testValidSha256Inventory() throws IOException {
+        inventory = declare("sha256");
+        sidecar = DigestUtils.sha256Hex(inventory) + "  inventory.json\n";
+
+        assertEquals(ID, s3Service(enabled()).fetchInventory(1254624L).getId());
+        assertTrue(sidecarKeys.contains("4264/5210/1254624/inventory.json.sha256"));
+    }
+
+    @Test
+    public void testInvalidInventory() {
+        sidecar = DigestUtils.sha512Hex("tampered") + "  inventory.json\n";
+        S3Service s3Service = s3Service(enabled());
+
+        for (int i = 0; i < 25; i++) {
+            InvalidInventoryException e = assertThrows(
+                InvalidInventoryException.class,
+                () -> s3Service.fetchInventory(1254624L)
+            );
+            assertEquals("Inventory of object 1254624 does not match sha512 digest of its sidecar", e.getMessage());
+            assertEquals("Does not match sha512 digest of its sidecar", e.getError().getError());
+            assertEquals(DigestUtils.sha512Hex("tampered"), e.getError().getExpected());
+            assertEquals(DigestUtils.sha512Hex(inventory), e.getError().getActual());
+        }
+
+        // invalid content is not an S3 failure
+        assertEquals(CircuitBreaker.State.CLOSED, s3Service.getCircuitState());
+    }
+
+    @Test
+    public void testMissingSidecar() throws IOException {
+        sidecar = null;
+
+        assertEquals(ID, s3Service(enabled()).fetchInventory(1254624L).getId());
+        assertEquals(List.of("4264/5210/1254624/inventory.json.sha512"), sidecarKeys);
+    }
+
+    @Test
+    public void testUnsupportedAlgorithm() throws IOException {
+        inventory = declare("blake2b-512");
+
+        assertEquals(ID, s3Service(enabled()).fetchInventory(1254624L).getId());
+        assertFalse(sidecarKeys.contains("4264/5210/1254624/inventory.json.blake2b-512"));
+    }
+
+    @Test
+    public void testSidecarDisabled() throws IOException {
+        sidecar = null;
+
+        assertEquals(ID, s3Service(new AwsConfig()).fetchInventory(1254624L).getId());
+        assertEquals(List.of(), sidecarKeys);
+    }
+
+    private AwsConfig enabled() {
+        AwsConfig awsConfig = new AwsConfig();
+        awsConfig.getSidecar().setEnabled(true);
+
+        return awsConfig;
+    }
+
+    private byte[] declare(String algorithm) {
+        return new String(inventory, StandardCharsets.UTF_8)
+            .replace("\"digestAlgorithm\" : \"sha512\"", "\"digestAlgorithm\" : \"" + algorithm + "\"")
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private S3Service s3Service(AwsConfig awsConfig) {
+        return new S3Service(awsConfig) {
+            @Override
+            protected ResponseInputStream<GetObjectResponse> requestInventory(GetObjectRequest request) {
+                return new ResponseInputStream<>(
+                    GetObjectResponse.builder().eTag("\"etag\"").build(),
+                    AbortableInputStream.create(new ByteArrayInputStream(inventory))
+                );
+            }
+
+            @Override
+            protected String requestSidecar(String key) {
+                sidecarKeys.add(key);
+                if (sidecar == null) {
+                    throw NoSuchKeyException.builder().message(key).build();
+                }
+                return sidecar;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.service.S3WorkScheduler.Lane;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * S3 work scheduler tests.
+ */
+public class S3WorkSchedulerTest {
+
+    private S3WorkScheduler scheduler;
+
+    /**
+     * Setup scheduler with a single worker.
+     */
+    @BeforeEach
+    public void setup() {
+        VerifyConfig verifyConfig = new VerifyConfig();
+        verifyConfig.getScheduler().setWorkers(1);
+
+        scheduler = new S3WorkScheduler(verifyConfig);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testRoundRobinBatches() throws InterruptedException, ExecutionException {
+        AtomicInteger largeCompleted = new AtomicInteger();
+
+        S3WorkScheduler.Batch large = scheduler.open(Lane.INGEST);
+        for (int i = 0; i < 100; i++) {
+            large.submit(() -> {
+                Thread.sleep(2);
+                return largeCompleted.incrementAndGet();
+            });
+        }
+
+        S3WorkScheduler.Batch small = scheduler.open(Lane.INGEST);
+        int completedBeforeSmall = small.submit(largeCompleted::get).get();
+
+        assertTrue(completedBeforeSmall < 10, "completed " + completedBeforeSmall);
+    }
+
+    @Test
+    public void testLaneWeights() throws InterruptedException, ExecutionException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        scheduler.open(Lane.UPDATE).submit(() -> {
+            blocked.await();
+            return null;
+        });
+
+        List<Lane> order = new ArrayList<>();
+        List<Future<Boolean>> futures = new ArrayList<>();
+        S3WorkScheduler.Batch audit = scheduler.open(Lane.AUDIT);
+        S3WorkScheduler.Batch ingest = scheduler.open(Lane.INGEST);
+        for (int i = 0; i < 20; i++) {
+            futures.add(audit.submit(() -> order.add(Lane.AUDIT)));
+            futures.add(ingest.submit(() -> order.add(Lane.INGEST)));
+        }
+
+        blocked.countDown();
+        for (Future<Boolean> future : futures) {
+            future.get();
+        }
+
+        long ingestFirst = order.subList(0, 9)
+            .stream()
+            .filter(Lane.INGEST::equals)
+            .count();
+
+        assertEquals(8, ingestFirst);
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException, ExecutionException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        S3WorkScheduler.Batch batch = scheduler.open(Lane.INGEST);
+        final Future<Object> running = batch.submit(() -> {
+            blocked.await();
+            return null;
+        });
+        final Future<Object> queued = batch.submit(() -> null);
+
+        Thread.sleep(50);
+        batch.cancel();
+        blocked.countDown();
+        running.get();
+
+        assertTrue(queued.isCancelled());
+        assertEquals(1, scheduler.open(Lane.AUDIT).submit(() -> 1).get());
+    }
+
+}
@@ -0,0 +1,245 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import edu.harvard.drs.verify.FileSystemS3Service;
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.dto.VerificationSummary;
+import edu.harvard.drs.verify.exception.VerificationException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Shard coordinator tests against local worker servers verifying shards from the file system.
+ */
+public class ShardCoordinatorTest extends VerifyServiceFixture {
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<HttpServer> servers = new ArrayList<>();
+
+    private final AtomicInteger shardRequests = new AtomicInteger();
+
+    private VerifyService coordinated;
+
+    /**
+     * Setup coordinator config sharding every input of more than one checksum.
+     */
+    @BeforeEach
+    public void setup() {
+        verifyConfig.getCoordinator().setMinInput(2);
+        verifyConfig.getCoordinator().setShardSize(1);
+        verifyConfig.getCoordinator().setRetries(1);
+        verifyConfig.getResults().setDirectory(directory.toString());
+        verifyConfig.getResults().setMaxErrors(1);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        servers.forEach(server -> server.stop(0));
+    }
+
+    @Test
+    public void testShards() {
+        verifyConfig.getCoordinator().setPeers(List.of("http://localhost"));
+        verifyConfig.getCoordinator().setMinInput(5);
+        verifyConfig.getCoordinator().setShardSize(3);
+        ShardCoordinator coordinator = new ShardCoordinator(verifyConfig, new RestTemplate());
+
+        Map<String, String> large = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            large.put("data/" + i, String.valueOf(i));
+        }
+
+        List<Map<String, String>> shards = coordinator.shards(large);
+
+        assertEquals(4, shards.size());
+        assertEquals(List.of("data/0", "data/1", "data/2"), new ArrayList<>(shards.get(0).keySet()));
+        assertEquals(List.of("data/9"), new ArrayList<>(shards.get(3).keySet()));
+        assertTrue(coordinator.isSharded(10));
+        assertFalse(coordinator.isSharded(4));
+    }
+
+    @Test
+    public void testShardSizeMustBeLessThanMinInput() {
+        verifyConfig.getCoordinator().setPeers(List.of("http://localhost"));
+        verifyConfig.getCoordinator().setShardSize(2);
+
+        assertThrows(IllegalStateException.class, () -> new ShardCoordinator(verifyConfig, new RestTemplate()));
+    }
+
+    @Test
+    public void testVerifyAcrossWorkers() throws Exception {
+        peers(worker(), worker());
+
+        coordinated.verifyIngest(1254624L, input, DEFAULT);
+
+        assertEquals(4, shardRequests.get());
+        assertEquals(1, coordinated.getStats().getS3Requests());
+    }
+
+    @Test
+    public void testMergeErrorsAcrossWorkers() throws Exception {
+        peers(worker(), worker());
+
+        input.put("descriptor/400000252_mets.xml", "52fe5cdbf844ebc72fc5d1e10f036280");
+        input.put("metadata/400000254_textMD.xml", "0aff68fa16c9be40ca946f403e4e5181");
+        input.put("data/unknown.txt", "0aff68fa16c9be40ca946f403e4e5181");
+
+        VerificationException e = assertThrows(VerificationException.class,
+            () -> coordinated.verifyIngest(1254624L, input, DEFAULT));
+
+        VerificationSummary summary = e.getSummary().orElseThrow();
+        assertEquals(3, summary.getTotal());
+        assertEquals(2L, summary.getCounts().get("Checksums do not match"));
+        assertEquals(1L, summary.getCounts().get("Not found in inventory manifest"));
+    }
+
+    @Test
+    public void testRetryFailedShardOnNextWorker() throws Exception {
+        peers(unavailable(), worker());
+
+        coordinated.verifyIngest(1254624L, input, DEFAULT);
+
+        assertEquals(6, shardRequests.get());
+    }
+
+    @Test
+    public void testFailWhenEveryAttemptFails() throws Exception {
+        peers(unavailable(), unavailable());
+
+        assertThrows(IOException.class, () -> coordinated.verifyIngest(1254624L, input, DEFAULT));
+    }
+
+    private void peers(String... peers) throws IOException {
+        verifyConfig.getCoordinator().setPeers(List.of(peers));
+
+        coordinated = verifyService(
+            Map.of(S3TargetRegistry.DEFAULT_TARGET, new FileSystemS3Service()),
+            new ShardCoordinator(verifyConfig, new RestTemplate())
+        );
+    }
+
+    /**
+     * Worker verifying shards as updates, with stored results of more errors than a response carries.
+     */
+    private String worker() throws IOException {
+        ResultStore resultStore = new ResultStore(verifyConfig);
+        S3TargetRegistry targetRegistry = new S3TargetRegistry(Map.of(
+            S3TargetRegistry.DEFAULT_TARGET, new FileSystemS3Service()
+        ));
+        LedgerService ledgerService = new LedgerService(new VerifyConfig());
+
+        return serve(exchange -> {
+            String path = exchange.getRequestURI().getPath();
+
+            if (path.startsWith("/verify/results/")) {
+                String query = exchange.getRequestURI().getQuery();
+                long offset = Long.parseLong(query.replaceAll(".*offset=(\\d+).*", "$1"));
+                int limit = Integer.parseInt(query.replaceAll(".*limit=(\\d+).*", "$1"));
+                String resultId = path.substring("/verify/results/".length());
+                respond(exchange, 200, resultStore.page(resultId, offset, limit));
+
+                return;
+            }
+
+            shardRequests.incrementAndGet();
+            Long id = Long.valueOf(path.split("/")[2]);
+            Map<String, String> shard = objectMapper.readValue(exchange.getRequestBody(),
+                new TypeReference<Map<String, String>>() { });
+
+            try {
+                new VerifyService(targetRegistry, scheduler(), ledgerService, resultStore)
+                    .verifyUpdate(id, shard, DEFAULT);
+                respond(exchange, 200, null);
+            } catch (VerificationException e) {
+                if (e.getSummary().isPresent()) {
+                    String location = "http://127.0.0.1:" + exchange.getLocalAddress().getPort()
+                        + "/verify/results/" + e.getSummary().get().getResultId();
+                    exchange.getResponseHeaders().add("Location", location);
+                    respond(exchange, 409, e.getSummary().get());
+                } else {
+                    respond(exchange, 409, e.getErrors());
+                }
+            }
+        });
+    }
+
+    private String unavailable() throws IOException {
+        return serve(exchange -> {
+            shardRequests.incrementAndGet();
+            respond(exchange, 503, "S3 circuit breaker open");
+        });
+    }
+
+    private String serve(Handler handler) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            try {
+                handler.handle(exchange);
+            } catch (Exception e) {
+                respond(exchange, 500, e.getMessage());
+            }
+        });
+        server.start();
+        servers.add(server);
+
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = body == null ? new byte[0] : objectMapper.writeValueAsString(body).getBytes(UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+
+        void handle(HttpExchange exchange) throws Exception;
+
+    }
+
+}
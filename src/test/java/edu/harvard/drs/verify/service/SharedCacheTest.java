@@ -0,0 +1,272 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.harvard.drs.verify.FileSystemS3Service;
+import edu.harvard.drs.verify.config.VerifyConfig;
+import edu.harvard.drs.verify.dto.OcflInventory;
+import edu.harvard.drs.verify.exception.VerificationException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Shared cache tests, with two caches on one directory standing in for two replicas.
+ */
+public class SharedCacheTest {
+
+    private static final String BUCKET = "drs-preservation";
+
+    private static final String KEY = "4262/5421/1254624/v00001/content/data/400000254.txt";
+
+    @TempDir
+    Path directory;
+
+    private VerifyConfig verifyConfig;
+
+    private OcflInventory inventory;
+
+    /**
+     * Setup enabled shared cache config and test inventory.
+     *
+     * @throws IOException something went wrong
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        verifyConfig = new VerifyConfig();
+        verifyConfig.getSharedCache().setEnabled(true);
+        verifyConfig.getSharedCache().setDirectory(directory.toString());
+
+        inventory = new ObjectMapper().readValue(
+            FileSystemS3Service.ROOT.resolve("1254624/inventory.json").toFile(),
+            OcflInventory.class
+        );
+    }
+
+    @Test
+    public void testInventorySharedByReplicas() {
+        SharedCache first = new SharedCache(verifyConfig);
+        SharedCache second = new SharedCache(verifyConfig);
+
+        first.putInventory(BUCKET, 1254624L, "abc", inventory);
+
+        assertEquals(Optional.of("abc"), second.inventoryEtag(BUCKET, 1254624L));
+        assertEquals(Optional.empty(), second.inventoryEtag("other", 1254624L));
+
+        Optional<OcflInventory> shared = second.getInventory(BUCKET, 1254624L, "abc");
+
+        assertTrue(shared.isPresent());
+        assertEquals("abc", shared.get().getEtag());
+        shared.get().setEtag(null);
+        assertEquals(inventory, shared.get());
+
+        assertEquals(Optional.empty(), second.getInventory(BUCKET, 1254624L, "def"));
+    }
+
+    @Test
+    public void testInventoryReplaced() {
+        SharedCache cache = new SharedCache(verifyConfig);
+
+        cache.putInventory(BUCKET, 1254624L, "abc", inventory);
+        cache.putInventory(BUCKET, 1254624L, "def", inventory);
+
+        assertEquals(Optional.of("def"), cache.inventoryEtag(BUCKET, 1254624L));
+        assertEquals(Optional.empty(), cache.getInventory(BUCKET, 1254624L, "abc"));
+    }
+
+    @Test
+    public void testEtagSharedByReplicas() {
+        SharedCache first = new SharedCache(verifyConfig);
+        SharedCache second = new SharedCache(verifyConfig);
+
+        assertEquals(Optional.empty(), second.etag(BUCKET, KEY));
+
+        first.putEtag(BUCKET, KEY, "872c1b7d198907a3f3f9e6735b32f0ee");
+
+        // written back on flush, off the request path
+        assertEquals(Optional.of("872c1b7d198907a3f3f9e6735b32f0ee"), first.etag(BUCKET, KEY));
+        assertEquals(Optional.empty(), second.etag(BUCKET, KEY));
+
+        first.flush();
+
+        assertEquals(Optional.of("872c1b7d198907a3f3f9e6735b32f0ee"), second.etag(BUCKET, KEY));
+        assertEquals(Optional.empty(), second.etag("other", KEY));
+    }
+
+    @Test
+    public void testEtagWrittenBackOnChange() throws IOException {
+        SharedCache cache = new SharedCache(verifyConfig);
+
+        cache.putEtag(BUCKET, KEY, "a");
+        cache.flush();
+        assertEquals(1, files());
+
+        // unchanged eTag shared recently is not written again
+        deleteEtags();
+        cache.putEtag(BUCKET, KEY, "a");
+        cache.flush();
+        assertEquals(0, files());
+
+        cache.putEtag(BUCKET, KEY, "b");
+        cache.flush();
+        assertEquals(Optional.of("b"), new SharedCache(verifyConfig).etag(BUCKET, KEY));
+    }
+
+    @Test
+    public void testEtagExpires() {
+        verifyConfig.getSharedCache().setEtagTtl(Duration.ZERO.minusMillis(1));
+        SharedCache cache = new SharedCache(verifyConfig);
+
+        cache.putEtag(BUCKET, KEY, "872c1b7d198907a3f3f9e6735b32f0ee");
+
+        assertEquals(Optional.empty(), cache.etag(BUCKET, KEY));
+    }
+
+    @Test
+    public void testMemoryTierBounded() throws IOException {
+        verifyConfig.getSharedCache().setMaxMemoryEtags(1);
+        SharedCache cache = new SharedCache(verifyConfig);
+
+        cache.putEtag(BUCKET, KEY, "a");
+        cache.putEtag(BUCKET, KEY + ".2", "b");
+        cache.flush();
+
+        // evicted from memory, read back from shared directory
+        deleteEtags();
+        assertEquals(Optional.empty(), cache.etag(BUCKET, KEY));
+        assertEquals(Optional.of("b"), cache.etag(BUCKET, KEY + ".2"));
+    }
+
+    @Test
+    public void testSlowSharedReadBounded() throws Exception {
+        verifyConfig.getSharedCache().setReadTimeout(Duration.ofMillis(50));
+        SharedCache first = new SharedCache(verifyConfig);
+        first.putEtag(BUCKET, KEY, "a");
+        first.flush();
+
+        CountDownLatch mounted = new CountDownLatch(1);
+        SharedCache second = new SharedCache(verifyConfig) {
+            @Override
+            Etag readEtag(String bucket, String key) {
+                try {
+                    mounted.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.readEtag(bucket, key);
+            }
+        };
+
+        // hung mount is a miss after read timeout, head requested instead
+        long start = System.nanoTime();
+        assertEquals(Optional.empty(), second.etag(BUCKET, KEY));
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+
+        // read completing late fills in-memory tier
+        mounted.countDown();
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        Optional<String> etag = second.etag(BUCKET, KEY);
+        while (etag.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            etag = second.etag(BUCKET, KEY);
+        }
+        assertEquals(Optional.of("a"), etag);
+    }
+
+    @Test
+    public void testSweep() throws IOException {
+        SharedCache cache = new SharedCache(verifyConfig);
+        cache.putEtag(BUCKET, KEY, "a");
+        cache.putInventory(BUCKET, 1254624L, "abc", inventory);
+        cache.flush();
+
+        cache.sweep();
+        assertEquals(2, files());
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+            }
+        }
+
+        cache.sweep();
+        assertEquals(0, files());
+    }
+
+    @Test
+    public void testVerificationConfirmedBySharedEtags() throws Exception {
+        SharedCache shared = new SharedCache(verifyConfig);
+        FileSystemS3Service first = new FileSystemS3Service(shared);
+        final FileSystemS3Service second = new FileSystemS3Service(new SharedCache(verifyConfig));
+        Map<String, String> input = new ObjectMapper().readValue(
+            FileSystemS3Service.ROOT.resolve("1254624/verify.json").toFile(),
+            new TypeReference<Map<String, String>>() { }
+        );
+
+        verifyService(first).verifyIngest(1254624L, input, List.of(S3TargetRegistry.DEFAULT_TARGET));
+        assertEquals(5, first.getRequests());
+        shared.flush();
+
+        verifyService(second).verifyIngest(1254624L, input, List.of(S3TargetRegistry.DEFAULT_TARGET));
+        assertEquals(1, second.getRequests());
+
+        input.put("descriptor/400000252_mets.xml", "52fe5cdbf844ebc72fc5d1e10f036280");
+        assertThrows(VerificationException.class, () -> verifyService(second)
+            .verifyIngest(1254624L, input, List.of(S3TargetRegistry.DEFAULT_TARGET)));
+        assertEquals(3, second.getRequests());
+    }
+
+    private VerifyService verifyService(S3Service s3Service) throws IOException {
+        return new VerifyService(
+            new S3TargetRegistry(Map.of(S3TargetRegistry.DEFAULT_TARGET, s3Service)),
+            new S3WorkScheduler(verifyConfig),
+            new LedgerService(new VerifyConfig()),
+            new ResultStore(new VerifyConfig())
+        );
+    }
+
+    private void deleteEtags() throws IOException {
+        try (Stream<Path> files = Files.walk(directory.resolve("etags"))) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private long files() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+}
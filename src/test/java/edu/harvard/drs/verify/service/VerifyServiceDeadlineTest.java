@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.harvard.drs.verify.FileSystemS3Service;
+import edu.harvard.drs.verify.exception.DeadlineExceededException;
+import edu.harvard.drs.verify.service.S3WorkScheduler.Lane;
+import edu.harvard.drs.verify.utility.Deadline;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Verify service deadline tests.
+ */
+public class VerifyServiceDeadlineTest extends VerifyServiceFixture {
+
+    private final List<Duration> timeouts = new CopyOnWriteArrayList<>();
+
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    private volatile CountDownLatch release = new CountDownLatch(0);
+
+    private VerifyService verifyService;
+
+    /**
+     * Setup verify service against head object requests held until released on a single worker.
+     *
+     * @throws IOException something went wrong
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        FileSystemS3Service s3Service = new FileSystemS3Service() {
+            @Override
+            protected String requestHeadObjectEtag(String key, Duration apiCallTimeout) {
+                timeouts.add(apiCallTimeout == null ? Duration.ZERO : apiCallTimeout);
+                started.countDown();
+                try {
+                    release.await(10, SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                return super.requestHeadObjectEtag(key, apiCallTimeout);
+            }
+        };
+
+        verifyConfig.getScheduler().setWorkers(1);
+        verifyService = verifyService(s3Service);
+    }
+
+    @Test
+    public void testVerifyWithinDeadline() throws Exception {
+        verifyService.setDeadline(Deadline.after(Duration.ofSeconds(30)));
+        verifyService.verifyIngest(1254624L, input);
+
+        assertEquals(input.size(), timeouts.size());
+        timeouts.forEach(timeout -> assertTrue(timeout.compareTo(Duration.ofSeconds(30)) <= 0, timeout.toString()));
+        timeouts.forEach(timeout -> assertTrue(timeout.compareTo(Duration.ofSeconds(29)) > 0, timeout.toString()));
+    }
+
+    @Test
+    public void testVerifyWithoutDeadline() throws Exception {
+        verifyService.verifyIngest(1254624L, input);
+
+        assertEquals(input.size(), timeouts.size());
+        timeouts.forEach(timeout -> assertEquals(Duration.ZERO, timeout));
+    }
+
+    @Test
+    public void testCancelQueuedRequestsPastDeadline() throws Exception {
+        release = new CountDownLatch(1);
+        verifyService.setDeadline(Deadline.after(Duration.ofMillis(300)));
+
+        long start = System.nanoTime();
+        DeadlineExceededException e = assertThrows(
+            DeadlineExceededException.class,
+            () -> verifyService.verifyIngest(1254624L, input)
+        );
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("Deadline exceeded verifying object 1254624", e.getMessage());
+        assertTrue(started.await(0, SECONDS));
+        // failed at deadline rather than once the held request was released
+        assertTrue(elapsed < 5_000, "elapsed " + elapsed);
+
+        // in-flight request completes, queued requests are never sent ahead of work submitted after
+        release.countDown();
+        scheduler().open(Lane.INGEST).submit(() -> null).get(10, SECONDS);
+        assertEquals(1, timeouts.size());
+        assertTrue(timeouts.get(0).toMillis() <= 300, "timeout " + timeouts.get(0));
+    }
+
+    @Test
+    public void testFailFastPastDeadline() {
+        verifyService.setDeadline(Deadline.after(Duration.ZERO));
+
+        assertThrows(DeadlineExceededException.class, () -> verifyService.verifyIngest(1254624L, input));
+        assertTrue(timeouts.isEmpty());
+    }
+
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.harvard.drs.verify.FileSystemS3Service;
+import edu.harvard.drs.verify.dto.CompactInventory;
+import edu.harvard.drs.verify.dto.OcflInventory;
+import edu.harvard.drs.verify.dto.VerificationStats;
+import edu.harvard.drs.verify.exception.UnsupportedAlgorithmException;
+import edu.harvard.drs.verify.exception.VerificationException;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Verify service inventory digest tests.
+ */
+public class VerifyServiceDigestTest extends VerifyServiceFixture {
+
+    private FileSystemS3Service s3Service;
+
+    private VerifyService verifyService;
+
+    private Map<String, String> md5;
+
+    private Map<String, String> sha512;
+
+    /**
+     * Setup verify service against an inventory with md5 fixity.
+     *
+     * @throws IOException something went wrong
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        md5 = input;
+
+        s3Service = new FileSystemS3Service() {
+            @Override
+            public OcflInventory fetchInventory(Long id, VerificationStats stats) throws IOException {
+                OcflInventory inventory = super.fetchInventory(id, stats);
+                Map<String, List<String>> fixity = new HashMap<>();
+                md5.forEach((path, digest) -> fixity.put(digest, List.of("v00001/content/" + path)));
+                inventory.getFixity().put("md5", fixity);
+
+                return inventory;
+            }
+        };
+        verifyService = verifyService(s3Service);
+
+        CompactInventory inventory = CompactInventory.of(s3Service.fetchInventory(1254624L, new VerificationStats()));
+        sha512 = new HashMap<>();
+        md5.keySet().forEach(path -> sha512.put(path, inventory.digest(path).orElseThrow()));
+    }
+
+    @Test
+    public void testVerifyDigestAlgorithm() throws Exception {
+        long before = s3Service.getRequests();
+
+        verifyService.verifyIngest(1254624L, sha512, DEFAULT, "SHA512");
+
+        assertEquals(1, s3Service.getRequests() - before);
+        assertEquals(1, verifyService.getStats().getS3Requests());
+    }
+
+    @Test
+    public void testVerifyFixityAlgorithm() throws Exception {
+        long before = s3Service.getRequests();
+
+        verifyService.verifyIngest(1254624L, md5, DEFAULT, "md5");
+
+        assertEquals(1, s3Service.getRequests() - before);
+    }
+
+    @Test
+    public void testVerifyDigestMismatch() {
+        Map<String, String> input = new HashMap<>(md5);
+        input.put("descriptor/400000252_mets.xml", "52fe5cdbf844ebc72fc5d1e10f036280");
+
+        VerificationException e = assertThrows(VerificationException.class,
+            () -> verifyService.verifyIngest(1254624L, input, DEFAULT, "md5"));
+
+        assertEquals(1, e.getErrors().size());
+        assertEquals("Checksums do not match", e.getErrors().get("descriptor/400000252_mets.xml").getError());
+    }
+
+    @Test
+    public void testVerifyDigestMissing() {
+        Map<String, String> input = new HashMap<>(md5);
+        input.remove("data/400000254.txt");
+        input.put("data/unknown.txt", "872c1b7d198907a3f3f9e6735b32f0ee");
+
+        VerificationException e = assertThrows(VerificationException.class,
+            () -> verifyService.verifyIngest(1254624L, input, DEFAULT, "md5"));
+
+        assertEquals("Not found in inventory manifest", e.getErrors().get("data/unknown.txt").getError());
+        assertEquals("Missing input checksum", e.getErrors().get("data/400000254.txt").getError());
+    }
+
+    @Test
+    public void testVerifyUnsupportedAlgorithm() {
+        UnsupportedAlgorithmException e = assertThrows(UnsupportedAlgorithmException.class,
+            () -> verifyService.verifyUpdate(1254624L, md5, DEFAULT, "sha256"));
+
+        assertTrue(e.getMessage().contains("sha256"));
+    }
+
+}
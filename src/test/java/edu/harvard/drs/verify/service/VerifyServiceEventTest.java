@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.harvard.drs.verify.FileSystemS3Service;
+import edu.harvard.drs.verify.event.S3RequestEvent;
+import edu.harvard.drs.verify.event.VerificationEvent;
+import edu.harvard.drs.verify.exception.VerificationException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+/**
+ * Verify service flight recorder event tests.
+ */
+public class VerifyServiceEventTest extends VerifyServiceFixture {
+
+    private static final String VERIFICATION = "edu.harvard.drs.verify.Verification";
+
+    private static final String S3_REQUEST = "edu.harvard.drs.verify.S3Request";
+
+    private VerifyService verifyService;
+
+    private Recording recording;
+
+    /**
+     * Setup verify service against file system S3 service and start recording.
+     *
+     * @throws IOException something went wrong
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        verifyService = verifyService(new FileSystemS3Service());
+
+        recording = new Recording();
+        recording.enable(VerificationEvent.class);
+        recording.enable(S3RequestEvent.class);
+        recording.start();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        recording.close();
+    }
+
+    @Test
+    public void testPassedVerificationEvent() throws Exception {
+        verifyService.verifyIngest(1254624L, input);
+
+        List<RecordedEvent> events = events(VERIFICATION);
+        assertEquals(1, events.size());
+
+        RecordedEvent event = events.get(0);
+        assertEquals(1254624L, event.getLong("objectId"));
+        assertFalse(event.getBoolean("update"));
+        assertEquals("default", event.getString("targets"));
+        assertEquals(input.size(), event.getInt("files"));
+        assertEquals("passed", event.getString("outcome"));
+        assertEquals(0, event.getLong("errors"));
+        assertEquals(5, event.getInt("s3Requests"));
+        assertTrue(event.getDuration().toNanos() >= event.getDuration("parse").toNanos());
+    }
+
+    @Test
+    public void testFailedVerificationEvent() throws Exception {
+        Map<String, String> update = Map.of("descriptor/400000252_mets.xml", "52fe5cdbf844ebc72fc5d1e10f036280");
+
+        assertThrows(VerificationException.class, () -> verifyService.verifyUpdate(1254624L, update));
+
+        List<RecordedEvent> events = events(VERIFICATION);
+        assertEquals(1, events.size());
+
+        RecordedEvent event = events.get(0);
+        assertTrue(event.getBoolean("update"));
+        assertEquals(1, event.getInt("files"));
+        assertEquals("failed", event.getString("outcome"));
+        assertEquals(1, event.getLong("errors"));
+    }
+
+    @Test
+    public void testS3RequestEvent() throws Exception {
+        S3RequestEvent event = new S3RequestEvent("drs-preservation", "HeadObject", "1254624/missing.xml");
+        event.begin();
+        event.complete(404, NoSuchKeyException.builder().statusCode(404).build());
+
+        List<RecordedEvent> events = events(S3_REQUEST);
+        assertEquals(1, events.size());
+        assertEquals("HeadObject", events.get(0).getString("operation"));
+        assertEquals("1254624/missing.xml", events.get(0).getString("key"));
+        assertEquals(404, events.get(0).getInt("status"));
+        assertEquals("NoSuchKeyException", events.get(0).getString("error"));
+    }
+
+    private List<RecordedEvent> events(String name) throws IOException {
+        recording.stop();
+
+        Path file = Files.createTempFile("verify", ".jfr");
+        try {
+            recording.dump(file);
+
+            return RecordingFile.readAllEvents(file)
+                .stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .collect(Collectors.toList());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
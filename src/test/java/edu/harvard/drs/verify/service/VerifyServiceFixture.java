@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.harvard.drs.verify.FileSystemS3Service;
+import edu.harvard.drs.verify.config.VerifyConfig;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+
+/**
+ * Verify service test fixture of input checksums of object 1254624, a config to adjust before
+ * building a verify service, and a scheduler shut down after each test.
+ */
+public abstract class VerifyServiceFixture {
+
+    protected static final List<String> DEFAULT = List.of(S3TargetRegistry.DEFAULT_TARGET);
+
+    protected VerifyConfig verifyConfig;
+
+    protected Map<String, String> input;
+
+    private S3WorkScheduler scheduler;
+
+    /**
+     * Setup default config and input checksums.
+     *
+     * @throws IOException something went wrong
+     */
+    @BeforeEach
+    public void setupFixture() throws IOException {
+        verifyConfig = new VerifyConfig();
+        scheduler = null;
+
+        input = new ObjectMapper().readValue(
+            FileSystemS3Service.ROOT.resolve("1254624/verify.json").toFile(),
+            new TypeReference<Map<String, String>>() { }
+        );
+    }
+
+    /**
+     * Shut down scheduler if one was used.
+     */
+    @AfterEach
+    public void cleanupFixture() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * Scheduler of config, created on first use.
+     *
+     * @return S3 work scheduler
+     */
+    protected S3WorkScheduler scheduler() {
+        if (scheduler == null) {
+            scheduler = new S3WorkScheduler(verifyConfig);
+        }
+
+        return scheduler;
+    }
+
+    /**
+     * Verify service of config against default target.
+     *
+     * @param s3Service S3 service of default target
+     * @return verify service
+     * @throws IOException failed to setup ledger or result store
+     */
+    protected VerifyService verifyService(S3Service s3Service) throws IOException {
+        return verifyService(Map.of(S3TargetRegistry.DEFAULT_TARGET, s3Service), null);
+    }
+
+    /**
+     * Verify service of config against targets, coordinating shards when given a coordinator.
+     *
+     * @param targets     S3 service of each target, default first
+     * @param coordinator shard coordinator, null for none
+     * @return verify service
+     * @throws IOException failed to setup ledger or result store
+     */
+    protected VerifyService verifyService(Map<String, S3Service> targets, ShardCoordinator coordinator)
+        throws IOException {
+        return new VerifyService(
+            new S3TargetRegistry(targets),
+            scheduler(),
+            new LedgerService(verifyConfig),
+            new ResultStore(verifyConfig),
+            coordinator,
+            verifyConfig
+        );
+    }
+
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.harvard.drs.verify.FileSystemS3Service;
+import edu.harvard.drs.verify.dto.OcflInventory;
+import edu.harvard.drs.verify.dto.VerificationStats;
+import edu.harvard.drs.verify.exception.VerificationException;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Verify service tests requesting heads while the inventory is parsed.
+ */
+public class VerifyServicePipelineTest extends VerifyServiceFixture {
+
+    private final AtomicInteger heads = new AtomicInteger();
+
+    private volatile CountDownLatch expectedHeads;
+
+    private int headsWhileParsing;
+
+    private VerifyService verifyService;
+
+    /**
+     * Setup verify service with pipelined inventory against an inventory that is not done parsing
+     * until the expected heads were requested.
+     *
+     * @throws IOException something went wrong
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        FileSystemS3Service s3Service = new FileSystemS3Service() {
+            @Override
+            public OcflInventory fetchInventory(
+                Long id,
+                VerificationStats stats,
+                BiConsumer<String, String> headState
+            ) throws IOException {
+                OcflInventory inventory = super.fetchInventory(id, stats, headState);
+                try {
+                    expectedHeads.await(10, SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                headsWhileParsing = heads.get();
+
+                return inventory;
+            }
+
+            @Override
+            protected String requestHeadObjectEtag(String key) {
+                heads.incrementAndGet();
+                expectedHeads.countDown();
+
+                return super.requestHeadObjectEtag(key);
+            }
+        };
+
+        verifyConfig.setPipelineInventory(true);
+        verifyService = verifyService(s3Service);
+    }
+
+    @Test
+    public void testRequestHeadsWhileParsing() throws Exception {
+        expectedHeads = new CountDownLatch(input.size());
+        verifyService.verifyIngest(1254624L, input);
+
+        assertEquals(input.size(), heads.get());
+        assertEquals(input.size(), headsWhileParsing);
+    }
+
+    @Test
+    public void testPipelinedFailures() throws Exception {
+        Map<String, String> update = new HashMap<>();
+        update.put("descriptor/400000252_mets.xml", "52fe5cdbf844ebc72fc5d1e10f036280");
+        update.put("data/missing.xml", "52fe5cdbf844ebc72fc5d1e10f036280");
+        expectedHeads = new CountDownLatch(1);
+
+        VerificationException e = assertThrows(
+            VerificationException.class,
+            () -> verifyService.verifyUpdate(1254624L, update)
+        );
+
+        assertEquals(Set.of("data/missing.xml", "descriptor/400000252_mets.xml"), e.getErrors().keySet());
+        assertEquals("Not found in inventory manifest", e.getErrors().get("data/missing.xml").getError());
+        assertEquals("Checksums do not match", e.getErrors().get("descriptor/400000252_mets.xml").getError());
+        assertEquals(1, heads.get());
+    }
+
+    @Test
+    public void testPipelinedMissingInput() {
+        Map<String, String> partial = new HashMap<>(input);
+        String missing = partial.keySet().iterator().next();
+        partial.remove(missing);
+        expectedHeads = new CountDownLatch(partial.size());
+
+        VerificationException e = assertThrows(
+            VerificationException.class,
+            () -> verifyService.verifyIngest(1254624L, partial)
+        );
+
+        assertEquals(Set.of(missing), e.getErrors().keySet());
+        assertEquals("Missing input checksum", e.getErrors().get(missing).getError());
+    }
+
+}
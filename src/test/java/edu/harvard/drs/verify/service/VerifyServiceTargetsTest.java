@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.harvard.drs.verify.FileSystemS3Service;
+import edu.harvard.drs.verify.config.AwsConfig;
+import edu.harvard.drs.verify.exception.UnknownTargetException;
+import edu.harvard.drs.verify.exception.VerificationException;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.regions.Region;
+
+/**
+ * Verify service storage target tests.
+ */
+public class VerifyServiceTargetsTest extends VerifyServiceFixture {
+
+    private FileSystemS3Service primary;
+
+    private FileSystemS3Service replica;
+
+    private VerifyService verifyService;
+
+    /**
+     * Setup verify service with default and replica targets.
+     *
+     * @throws IOException something went wrong
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        primary = new FileSystemS3Service();
+        replica = new FileSystemS3Service();
+
+        Map<String, S3Service> targets = new LinkedHashMap<>();
+        targets.put(S3TargetRegistry.DEFAULT_TARGET, primary);
+        targets.put("replica", replica);
+        verifyService = verifyService(targets, null);
+    }
+
+    @Test
+    public void testVerifyTargetsSharesInventory() throws Exception {
+        verifyService.verifyIngest(1254624L, input, List.of(S3TargetRegistry.DEFAULT_TARGET, "replica"));
+
+        assertEquals(5, primary.getRequests());
+        assertEquals(4, replica.getRequests());
+        assertEquals(9, verifyService.getStats().getS3Requests());
+    }
+
+    @Test
+    public void testVerifyTargetsMissingReplica() {
+        replica.remove("4264/5210/1254624/v00001/content/data/400000254.txt");
+
+        VerificationException e = assertThrows(
+            VerificationException.class,
+            () -> verifyService.verifyIngest(1254624L, input, List.of(S3TargetRegistry.DEFAULT_TARGET, "replica"))
+        );
+
+        assertEquals(1, e.getErrors().size());
+        assertTrue(e.getErrors().containsKey("replica:data/400000254.txt"));
+    }
+
+    @Test
+    public void testVerifySingleTarget() throws Exception {
+        replica.remove("4264/5210/1254624/v00001/content/data/400000254.txt");
+
+        VerificationException e = assertThrows(
+            VerificationException.class,
+            () -> verifyService.verifyIngest(1254624L, input, List.of("replica"))
+        );
+
+        assertTrue(e.getErrors().containsKey("data/400000254.txt"));
+        assertEquals(0, primary.getRequests());
+    }
+
+    @Test
+    public void testVerifyUnknownTarget() {
+        assertThrows(
+            UnknownTargetException.class,
+            () -> verifyService.verifyIngest(1254624L, input, List.of("missing"))
+        );
+    }
+
+    @Test
+    public void testTargetConfigInherits() {
+        AwsConfig awsConfig = new AwsConfig();
+        awsConfig.setEndpointOverride("http://localhost:9090");
+        AwsConfig.Target target = new AwsConfig.Target();
+        target.setRegion(Region.US_WEST_2);
+        target.setBucketName("drs-preservation-replica");
+
+        AwsConfig targetConfig = awsConfig.forTarget(target);
+
+        assertEquals(Region.US_WEST_2, targetConfig.getRegion());
+        assertEquals("drs-preservation-replica", targetConfig.getBucketName());
+        assertEquals(awsConfig.getAccessKeyId(), targetConfig.getAccessKeyId());
+        assertEquals(awsConfig.getMaxConnections(), targetConfig.getMaxConnections());
+        assertEquals("http://localhost:9090", targetConfig.getEndpointOverride());
+    }
+
+}
@@ -30,6 +30,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.harvard.drs.verify.AmazonS3TestHelper;
 import edu.harvard.drs.verify.config.AwsConfig;
+import edu.harvard.drs.verify.config.VerifyConfig;
 import edu.harvard.drs.verify.dto.VerificationError;
 import edu.harvard.drs.verify.exception.VerificationException;
 import java.io.File;
@@ -72,7 +73,12 @@ public class VerifyServiceTest {
         AwsConfig awsConfig = new AwsConfig();
         awsConfig.setBucketName(AmazonS3TestHelper.bucket);
         awsConfig.setEndpointOverride(AmazonS3TestHelper.endpointOverride);
-        verifyService = new VerifyService(new S3Service(awsConfig));
+        verifyService = new VerifyService(
+            new S3TargetRegistry(Map.of(S3TargetRegistry.DEFAULT_TARGET, new S3Service(awsConfig))),
+            new S3WorkScheduler(new VerifyConfig()),
+            new LedgerService(new VerifyConfig()),
+            new ResultStore(new VerifyConfig())
+        );
 
         om = new ObjectMapper();
     }
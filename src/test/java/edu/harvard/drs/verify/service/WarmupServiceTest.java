@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.harvard.drs.verify.FileSystemS3Service;
+import edu.harvard.drs.verify.config.VerifyConfig;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Warm-up service tests.
+ */
+public class WarmupServiceTest {
+
+    private final AtomicInteger probes = new AtomicInteger();
+
+    private SimpleMeterRegistry registry;
+
+    private VerifyConfig verifyConfig;
+
+    private S3TargetRegistry targetRegistry;
+
+    /**
+     * Setup storage targets counting probes, one of which cannot be reached.
+     *
+     * @throws IOException something went wrong
+     */
+    @BeforeEach
+    public void setup() throws IOException {
+        registry = new SimpleMeterRegistry();
+        Metrics.addRegistry(registry);
+
+        verifyConfig = new VerifyConfig();
+        verifyConfig.getWarmup().setEnabled(true);
+        verifyConfig.getWarmup().setConnections(3);
+        verifyConfig.getWarmup().setIterations(5);
+
+        targetRegistry = new S3TargetRegistry(Map.of(
+            S3TargetRegistry.DEFAULT_TARGET, new FileSystemS3Service() {
+                @Override
+                public long probe() {
+                    probes.incrementAndGet();
+                    return 1;
+                }
+            },
+            "replica", new FileSystemS3Service() {
+                @Override
+                public long probe() {
+                    probes.incrementAndGet();
+                    throw new IllegalStateException("Unreachable");
+                }
+            }
+        ));
+    }
+
+    @AfterEach
+    public void cleanup() {
+        Metrics.removeRegistry(registry);
+    }
+
+    @Test
+    public void testWarmup() throws IOException {
+        WarmupService warmupService = warmupService();
+
+        warmupService.run(null);
+
+        assertEquals(6, probes.get());
+        assertEquals(1, registry.get("verify.warmup").tag("phase", "inventory").timer().count());
+        assertTrue(registry.get("verify.warmup").tag("phase", "total").timer().totalTime(
+            TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    public void testOpenConnections() throws IOException {
+        assertEquals(3, warmupService().openConnections(targetRegistry.all()));
+        assertEquals(6, probes.get());
+    }
+
+    @Test
+    public void testDisabled() throws IOException {
+        verifyConfig.getWarmup().setEnabled(false);
+
+        warmupService().run(null);
+
+        assertEquals(0, probes.get());
+        assertTrue(registry.find("verify.warmup").timers().isEmpty());
+    }
+
+    private WarmupService warmupService() throws IOException {
+        return new WarmupService(verifyConfig, targetRegistry, new InventoryCodec(), new LedgerService(verifyConfig));
+    }
+
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.utility;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Circuit breaker tests.
+ */
+public class CircuitBreakerTest {
+
+    @Test
+    public void testTripsOnFailureRate() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(10, 4, 0.5, MILLISECONDS.toNanos(1000));
+
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquire());
+        assertTrue(circuitBreaker.remainingOpenNanos() > 0);
+    }
+
+    @Test
+    public void testStaysClosedUnderThreshold() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(10, 4, 0.5, MILLISECONDS.toNanos(1000));
+
+        for (int i = 0; i < 100; i++) {
+            circuitBreaker.onFailure();
+            circuitBreaker.onSuccess();
+            circuitBreaker.onSuccess();
+            circuitBreaker.onSuccess();
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    public void testHalfOpenTrial() throws InterruptedException {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(10, 1, 0.5, MILLISECONDS.toNanos(20));
+
+        circuitBreaker.onFailure();
+        assertFalse(circuitBreaker.tryAcquire());
+
+        Thread.sleep(30);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());
+
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        Thread.sleep(30);
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquire());
+        assertTrue(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    public void testStaleCallsIgnoredHalfOpen() throws InterruptedException {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(10, 1, 0.5, MILLISECONDS.toNanos(20));
+
+        final long slow = circuitBreaker.acquire();
+        circuitBreaker.onFailure(circuitBreaker.acquire());
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        Thread.sleep(30);
+        long trial = circuitBreaker.acquire();
+        assertTrue(trial >= 0);
+
+        // call issued before circuit opened completes during trial
+        circuitBreaker.onSuccess(slow);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        circuitBreaker.onFailure(slow);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.acquire() < 0);
+
+        circuitBreaker.onSuccess(trial);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        // nor counts towards window of closed circuit
+        circuitBreaker.onFailure(slow);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.utility;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Consistent hash tests.
+ */
+public class ConsistentHashTest {
+
+    private static final int KEYS = 10_000;
+
+    @Test
+    public void testEmpty() {
+        assertEquals(Optional.empty(), new ConsistentHash(List.of(), 128).node("1254624"));
+    }
+
+    @Test
+    public void testStable() {
+        ConsistentHash first = new ConsistentHash(List.of("a", "b", "c"), 128);
+        ConsistentHash second = new ConsistentHash(List.of("c", "b", "a"), 128);
+
+        for (int i = 0; i < KEYS; i++) {
+            assertEquals(first.node(String.valueOf(i)), second.node(String.valueOf(i)));
+        }
+    }
+
+    @Test
+    public void testSpread() {
+        ConsistentHash hash = new ConsistentHash(List.of("a", "b", "c", "d"), 128);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(hash.node(String.valueOf(i)).orElseThrow(), 1, Integer::sum);
+        }
+
+        assertEquals(4, counts.size());
+        counts.values().forEach(count -> assertTrue(count > KEYS / 8, "uneven spread " + counts));
+    }
+
+    @Test
+    public void testAddingNodeOnlyMovesItsKeys() {
+        ConsistentHash before = new ConsistentHash(List.of("a", "b", "c"), 128);
+        ConsistentHash after = new ConsistentHash(List.of("a", "b", "c", "d"), 128);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String node = after.node(String.valueOf(i)).orElseThrow();
+            if (!node.equals(before.node(String.valueOf(i)).orElseThrow())) {
+                assertEquals("d", node);
+                moved++;
+            }
+        }
+
+        assertTrue(moved > 0 && moved < KEYS / 2, "moved " + moved);
+    }
+
+}
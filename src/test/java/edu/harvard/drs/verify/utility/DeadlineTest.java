@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.utility;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Deadline tests.
+ */
+public class DeadlineTest {
+
+    @Test
+    public void testNone() {
+        assertFalse(Deadline.NONE.isSet());
+        assertFalse(Deadline.NONE.isExpired());
+        assertEquals(Optional.empty(), Deadline.NONE.remaining());
+        assertEquals(Long.MAX_VALUE, Deadline.NONE.remainingNanos());
+    }
+
+    @Test
+    public void testAfter() throws InterruptedException {
+        Deadline deadline = Deadline.after(Duration.ofMillis(50));
+
+        assertTrue(deadline.isSet());
+        assertFalse(deadline.isExpired());
+        assertTrue(deadline.remaining().orElseThrow().toMillis() <= 50);
+
+        Thread.sleep(60);
+
+        assertTrue(deadline.isExpired());
+        assertEquals(Optional.of(Duration.ZERO), deadline.remaining());
+        assertEquals(0, deadline.remainingNanos());
+    }
+
+    @Test
+    public void testParse() {
+        assertSame(Deadline.NONE, Deadline.parse(null));
+        assertSame(Deadline.NONE, Deadline.parse(" "));
+
+        assertTrue(Deadline.parse("30s").remaining().orElseThrow().compareTo(Duration.ofSeconds(29)) > 0);
+        assertTrue(Deadline.parse("PT30S").remaining().orElseThrow().compareTo(Duration.ofSeconds(29)) > 0);
+        assertTrue(Deadline.parse("1500").remaining().orElseThrow().toMillis() <= 1500);
+
+        assertThrows(IllegalArgumentException.class, () -> Deadline.parse("soon"));
+        assertThrows(IllegalArgumentException.class, () -> Deadline.parse("0ms"));
+        assertThrows(IllegalArgumentException.class, () -> Deadline.parse("-1s"));
+    }
+
+}
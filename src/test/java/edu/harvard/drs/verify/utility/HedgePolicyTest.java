@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.utility;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Hedge policy tests.
+ */
+public class HedgePolicyTest {
+
+    @Test
+    public void testDelayNanos() {
+        HedgePolicy policy = new HedgePolicy(100, 0.95, 0, 0.05);
+
+        assertEquals(-1, policy.delayNanos());
+
+        for (int i = 1; i <= 100; i++) {
+            policy.record(i);
+        }
+
+        assertEquals(95, policy.delayNanos());
+    }
+
+    @Test
+    public void testDelayNanosMinimum() {
+        HedgePolicy policy = new HedgePolicy(100, 0.95, 1000, 0.05);
+
+        for (int i = 1; i <= 100; i++) {
+            policy.record(i);
+        }
+
+        assertEquals(1000, policy.delayNanos());
+    }
+
+    @Test
+    public void testTryHedge() {
+        HedgePolicy policy = new HedgePolicy(100, 0.95, 0, 0.1);
+
+        for (int i = 0; i < 9; i++) {
+            policy.request();
+        }
+
+        assertFalse(policy.tryHedge());
+
+        policy.request();
+        policy.request();
+
+        assertTrue(policy.tryHedge());
+        assertFalse(policy.tryHedge());
+    }
+
+}
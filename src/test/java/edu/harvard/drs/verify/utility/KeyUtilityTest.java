@@ -17,6 +17,8 @@
 package edu.harvard.drs.verify.utility;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
 
@@ -43,4 +45,18 @@ public class KeyUtilityTest {
         );
     }
 
+    @Test
+    public void testIsObjectRoot() {
+        assertTrue(KeyUtility.isObjectRoot("4264/5210/1254624/"));
+        assertFalse(KeyUtility.isObjectRoot("4264/5210/"));
+        assertFalse(KeyUtility.isObjectRoot("4264/5210/1254624/inventory.json"));
+        assertFalse(KeyUtility.isObjectRoot("4264/5210/extensions/"));
+    }
+
+    @Test
+    public void testParseId() {
+        assertEquals(1254624L, KeyUtility.parseId(KeyUtility.buildKey(1254624L, "inventory.json")));
+        assertEquals(11112222L, KeyUtility.parseId("2222/1111/11112222/v1/content/data/1.txt"));
+    }
+
 }
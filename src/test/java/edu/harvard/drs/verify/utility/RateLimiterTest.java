@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) 2021 President and Fellows of Harvard College
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.harvard.drs.verify.utility;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Rate limiter tests.
+ */
+public class RateLimiterTest {
+
+    @Test
+    public void testAcquire() throws InterruptedException {
+        RateLimiter rateLimiter = new RateLimiter(100);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 11; i++) {
+            rateLimiter.acquire();
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsed >= 90, "elapsed " + elapsed);
+    }
+
+    @Test
+    public void testAcquireUnlimited() throws InterruptedException {
+        RateLimiter rateLimiter = new RateLimiter(0);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            rateLimiter.acquire();
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsed < 90, "elapsed " + elapsed);
+    }
+
+}